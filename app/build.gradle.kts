@@ -31,6 +31,16 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        // Local unit tests exercise classes that log through android.util.Log
+        unitTests.isReturnDefaultValues = true
+        // Hand -Dbenchmark.* settings to the test JVM (benchmarks only run with benchmark.run=true)
+        unitTests.all { test ->
+            System.getProperties().stringPropertyNames()
+                .filter { it.startsWith("benchmark.") }
+                .forEach { test.systemProperty(it, System.getProperty(it)) }
+        }
+    }
 }
 
 dependencies {
@@ -0,0 +1,98 @@
+package com.example.assignment5;
+
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lets a newer load abort an older one that is still running.
+ *
+ * Every forecast load gets a token stamped with its generation number.
+ * When a newer load supersedes it, the old token is cancelled, which:
+ * - Closes every resource registered with it (e.g., the HTTP connection),
+ *   so a blocked socket read fails immediately instead of running to completion
+ * - Makes {@link #throwIfCancelled()} throw, which stops the parser at its
+ *   next read
+ *
+ * Cancelling is idempotent and may be called from any thread.
+ */
+final class CancellationToken {
+
+    private static final String TAG = "CancellationToken";
+
+    // Generation of the load this token belongs to (higher = newer)
+    final int generation;
+
+    private volatile boolean cancelled = false;
+
+    // Resources to close on cancel (guarded by this)
+    private final List<Closeable> resources = new ArrayList<>();
+
+    CancellationToken(int generation) {
+        this.generation = generation;
+    }
+
+    /**
+     * Cancel the load and close its registered resources.
+     */
+    void cancel() {
+        List<Closeable> toClose;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            toClose = new ArrayList<>(resources);
+            resources.clear();
+        }
+        for (Closeable resource : toClose) {
+            closeQuietly(resource);
+        }
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @throws InterruptedIOException If the load has been cancelled
+     */
+    void throwIfCancelled() throws InterruptedIOException {
+        if (cancelled) {
+            throw new InterruptedIOException("Load " + generation + " was cancelled");
+        }
+    }
+
+    /**
+     * Close this resource when the token is cancelled.
+     * If the token is already cancelled, the resource is closed right away.
+     */
+    void register(Closeable resource) {
+        synchronized (this) {
+            if (!cancelled) {
+                resources.add(resource);
+                return;
+            }
+        }
+        closeQuietly(resource);
+    }
+
+    /**
+     * Stop tracking a resource that finished normally.
+     */
+    synchronized void unregister(Closeable resource) {
+        resources.remove(resource);
+    }
+
+    private static void closeQuietly(Closeable resource) {
+        try {
+            resource.close();
+        } catch (IOException | RuntimeException e) {
+            Log.d(TAG, "Error closing cancelled resource: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.assignment5;
+
+import java.io.IOException;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-host circuit breaker for the weather API.
+ *
+ * - CLOSED: requests flow normally; consecutive failures are counted
+ * - OPEN: after failureThreshold consecutive failures, requests are rejected
+ *   immediately (no network traffic) for openMillis
+ * - HALF_OPEN: once openMillis has passed, a single trial request is let through;
+ *   success closes the circuit, failure opens it again
+ *
+ * While the circuit is open, WeatherHttpClient serves cached responses where
+ * it has them, so refresh taps don't add load to a struggling upstream.
+ */
+final class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * Thrown when a request is rejected because the host's circuit is open.
+     */
+    static final class OpenException extends IOException {
+        OpenException(String host) {
+            super("Circuit open for " + host + " - not sending request");
+        }
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt = 0;
+    private boolean trialInFlight = false;
+
+    /**
+     * @param failureThreshold Consecutive failures that open the circuit
+     * @param openMillis How long the circuit stays open before a trial request
+     * @param clock Time source in milliseconds (System::currentTimeMillis in the app)
+     */
+    CircuitBreaker(int failureThreshold, long openMillis, LongSupplier clock) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Ask whether a request may be sent now. Every allowed request must be
+     * followed by recordSuccess() or recordFailure().
+     */
+    synchronized boolean allowRequest() {
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                return false;
+            }
+            trialInFlight = true;
+            return true;
+        }
+        return state == State.CLOSED;
+    }
+
+    synchronized void recordSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    /**
+     * @return True if this failure opened the circuit
+     */
+    synchronized boolean recordFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = clock.getAsLong();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * The allowed request ended without a verdict (e.g., the caller cancelled it).
+     * Frees the half-open trial slot so another request can try.
+     */
+    synchronized void recordAbandoned() {
+        trialInFlight = false;
+    }
+
+    synchronized State state() {
+        return state;
+    }
+}
@@ -85,5 +85,17 @@ public class City implements Serializable {
         // Concatenate city name, comma, space, and state abbreviation
         return name + ", " + state;
     }
-}
 
+    /**
+     * Get a unique identifier for this city.
+     * 
+     * Combines the city name with its coordinates, so two cities with the same
+     * name still get different keys. Used to key per-city data (models, cached
+     * forecasts, history files).
+     * 
+     * @return A key like "Austin_30.28_-97.76"
+     */
+    public String getKey() {
+        return name + "_" + latitude + "_" + longitude;
+    }
+}
@@ -1,12 +1,11 @@
 package com.example.assignment5;
 
-import java.util.List;
-
 /**
  * Data model class representing a daily weather forecast summary.
  * 
  * This class stores aggregated weather data for a single day, including:
  * - Daily averages calculated from hourly data (temperature, humidity, wind speed, rain)
+ * - Full per-variable statistics (high/low and their hours, sums, counts, total rain)
  * - A user-friendly date label ("Today", "Tomorrow", or formatted date)
  * - Complete hourly data for detailed views
  * 
@@ -16,9 +15,10 @@ import java.util.List;
  * - Pass data to DetailedWeatherActivity when user clicks a day card
  * - Show summary information without needing to process hourly data each time
  * 
- * The class has two constructors:
+ * The class has three constructors:
  * - Simple constructor: Only requires date label and temperature (for basic use)
  * - Full constructor: Includes all weather variables and hourly data (for complete forecasts)
+ * - Statistics constructor: Takes the DailyStats ForecastParser computed while parsing
  */
 public class DailyForecast {
     /**
@@ -63,19 +63,35 @@ public class DailyForecast {
     /**
      * Daily average precipitation/rain amount in millimeters (mm).
      * 
-     * This represents the average hourly rain amount. Note that for display purposes,
-     * the total rain (sum) is often more meaningful than the average, but this field
-     * stores the average for consistency with other averages.
+     * This represents the average hourly rain amount. For display, use totalRain
+     * instead - this field stores the average for consistency with other averages.
      * 
      * Nullable because there may be no rain during the day, or data may be unavailable.
      */
     public final Double averageRain;
     
     /**
-     * Complete list of hourly weather data points for this day.
+     * Total precipitation/rain for the day in millimeters (mm).
+     * 
+     * The sum of the hourly rain readings. Nullable because the forecast may not
+     * include rain (the main screen only downloads ForecastParser.MAIN_VARIABLES).
+     */
+    public final Double totalRain;
+    
+    /**
+     * Per-variable statistics of the day's hours (high/low and their hours, sums,
+     * valid counts), computed once when the forecast was built.
      * 
-     * This list typically contains 24 HourlyWeatherData objects (one for each hour).
-     * It's used to:
+     * Never null; empty (all counts 0) for forecasts made with the simple constructor.
+     */
+    final DailyStats stats;
+    
+    /**
+     * Hourly weather data for this day.
+     * 
+     * This series typically covers 24 hours. It is a view into the columnar
+     * HourlySeries of the whole forecast, so the days of one forecast share
+     * the same arrays. It's used to:
      * - Display detailed hourly charts in DetailedWeatherActivity
      * - Calculate averages if needed
      * - Provide granular weather information beyond daily summaries
@@ -83,7 +99,7 @@ public class DailyForecast {
      * Nullable because some forecast objects may be created without hourly data
      * (e.g., using the simple constructor).
      */
-    public final List<HourlyWeatherData> hourlyData;
+    public final HourlySeries hourlyData;
 
     /**
      * Simple constructor for creating a DailyForecast with minimal data.
@@ -103,7 +119,9 @@ public class DailyForecast {
         this.averageHumidity = null;
         this.averageWindSpeed = null;
         this.averageRain = null;
+        this.totalRain = null;
         this.hourlyData = null;
+        this.stats = new DailyStats();
     }
 
     /**
@@ -118,10 +136,10 @@ public class DailyForecast {
      * @param averageHumidity Daily average humidity percentage, or null if unavailable
      * @param averageWindSpeed Daily average wind speed in mph, or null if unavailable
      * @param averageRain Daily average rain amount in mm, or null if unavailable
-     * @param hourlyData Complete list of hourly weather data for this day (typically 24 hours)
+     * @param hourlyData Hourly weather data for this day (typically 24 hours)
      */
     public DailyForecast(String dateLabel, double averageTempF, Double averageHumidity, 
-                        Double averageWindSpeed, Double averageRain, List<HourlyWeatherData> hourlyData) {
+                        Double averageWindSpeed, Double averageRain, HourlySeries hourlyData) {
         // Store all provided values
         // All fields are final, so they cannot be modified after construction
         this.dateLabel = dateLabel;
@@ -130,6 +148,35 @@ public class DailyForecast {
         this.averageWindSpeed = averageWindSpeed;
         this.averageRain = averageRain;
         this.hourlyData = hourlyData;
+        
+        // Averages were given, but the rest of the statistics come from the hours
+        // (e.g., a forecast read from a snapshot) - computed here, once
+        this.stats = DailyStats.of(hourlyData);
+        this.totalRain = totalOf(stats, ForecastParser.VAR_RAIN);
+    }
+
+    /**
+     * Constructor for a forecast whose statistics were computed while parsing.
+     * 
+     * The averages are taken from the statistics, so nothing loops over the hours again.
+     * 
+     * @param dateLabel User-friendly label for the day (e.g., "Today", "Tomorrow", "Wed 11 19")
+     * @param stats Statistics of the day's hours (not modified afterwards)
+     * @param hourlyData Hourly weather data for this day (typically 24 hours)
+     */
+    DailyForecast(String dateLabel, DailyStats stats, HourlySeries hourlyData) {
+        this.dateLabel = dateLabel;
+        this.averageTempF = stats.mean(ForecastParser.VAR_TEMPERATURE);
+        this.averageHumidity = stats.meanOrNull(ForecastParser.VAR_HUMIDITY);
+        this.averageWindSpeed = stats.meanOrNull(ForecastParser.VAR_WIND);
+        this.averageRain = stats.meanOrNull(ForecastParser.VAR_RAIN);
+        this.totalRain = totalOf(stats, ForecastParser.VAR_RAIN);
+        this.hourlyData = hourlyData;
+        this.stats = stats;
+    }
+
+    private static Double totalOf(DailyStats stats, int variable) {
+        return stats.count(variable) > 0 ? stats.sum(variable) : null;
     }
 }
 
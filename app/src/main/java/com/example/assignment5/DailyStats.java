@@ -0,0 +1,137 @@
+package com.example.assignment5;
+
+import java.util.Arrays;
+
+/**
+ * Per-variable statistics of one day's hourly readings.
+ *
+ * For every variable (indexed by ForecastParser.VAR_*) this holds:
+ * - The number of hours with a reading, their mean and their (compensated) sum,
+ *   kept in a StreamingMean (the sum of VAR_RAIN is the day's total rain)
+ * - The low and high, and the hour of each (index into the day's HourlySeries;
+ *   the first hour wins on ties)
+ *
+ * ForecastParser fills these while it reads the response, so the detail screen
+ * and the day cards don't loop over the hours again. Forecasts built without
+ * the parser (snapshots, tests) get theirs from of(). A DailyStats is not
+ * modified once its DailyForecast has been built.
+ */
+final class DailyStats {
+
+    // Created on the first reading of a variable; null = no readings
+    private final StreamingMean[] means = new StreamingMean[ForecastParser.VARIABLE_COUNT];
+    private final double[] low = new double[ForecastParser.VARIABLE_COUNT];
+    private final double[] high = new double[ForecastParser.VARIABLE_COUNT];
+    private final int[] lowHour = new int[ForecastParser.VARIABLE_COUNT];
+    private final int[] highHour = new int[ForecastParser.VARIABLE_COUNT];
+
+    DailyStats() {
+        Arrays.fill(low, Double.NaN);
+        Arrays.fill(high, Double.NaN);
+        Arrays.fill(lowHour, -1);
+        Arrays.fill(highHour, -1);
+    }
+
+    /**
+     * Compute the statistics of a series in one pass over its hours.
+     *
+     * @param hourlyData The day's hours, or null (gives empty statistics)
+     */
+    static DailyStats of(HourlySeries hourlyData) {
+        DailyStats stats = new DailyStats();
+        if (hourlyData == null) {
+            return stats;
+        }
+        for (int v = 0; v < ForecastParser.VARIABLE_COUNT; v++) {
+            if (!hourlyData.has(v)) {
+                continue;
+            }
+            for (int hour = 0; hour < hourlyData.size(); hour++) {
+                if (hourlyData.isPresent(v, hour)) {
+                    stats.add(v, hour, hourlyData.value(v, hour));
+                }
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Add one reading (only while the day is being built).
+     *
+     * @param variable ForecastParser.VAR_*
+     * @param hour Index of the hour within the day
+     * @param value The reading (not NaN)
+     */
+    void add(int variable, int hour, double value) {
+        StreamingMean m = means[variable];
+        if (m == null) {
+            m = new StreamingMean();
+            means[variable] = m;
+        }
+        if (m.count() == 0 || value < low[variable]) {
+            low[variable] = value;
+            lowHour[variable] = hour;
+        }
+        if (m.count() == 0 || value > high[variable]) {
+            high[variable] = value;
+            highHour[variable] = hour;
+        }
+        m.add(value);
+    }
+
+    /**
+     * Number of hours with a reading of a variable.
+     */
+    int count(int variable) {
+        return means[variable] != null ? (int) means[variable].count() : 0;
+    }
+
+    /**
+     * Sum of the readings (0 if there are none).
+     */
+    double sum(int variable) {
+        return means[variable] != null ? means[variable].sum() : 0;
+    }
+
+    /**
+     * Mean of the readings, or NaN if there are none.
+     */
+    double mean(int variable) {
+        return means[variable] != null ? means[variable].mean() : Double.NaN;
+    }
+
+    /**
+     * Mean of the readings, or null if there are none (the DailyForecast convention).
+     */
+    Double meanOrNull(int variable) {
+        return means[variable] != null ? means[variable].mean() : null;
+    }
+
+    /**
+     * Lowest reading, or NaN if there are none.
+     */
+    double low(int variable) {
+        return low[variable];
+    }
+
+    /**
+     * Highest reading, or NaN if there are none.
+     */
+    double high(int variable) {
+        return high[variable];
+    }
+
+    /**
+     * Hour (index into the day's series) of the lowest reading, or -1 if there are none.
+     */
+    int lowHour(int variable) {
+        return lowHour[variable];
+    }
+
+    /**
+     * Hour (index into the day's series) of the highest reading, or -1 if there are none.
+     */
+    int highHour(int variable) {
+        return highHour[variable];
+    }
+}
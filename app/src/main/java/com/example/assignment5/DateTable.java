@@ -0,0 +1,104 @@
+package com.example.assignment5;
+
+/**
+ * Cached calendar facts for the days around a base date (normally today).
+ *
+ * The parsers used to turn every date key back into numbers with split() /
+ * Integer.parseInt() and build a fresh Calendar and SimpleDateFormat per day
+ * for its label. Days are now plain epoch days (days since 1970-01-01), and
+ * this table answers the remaining questions from arrays built once per date:
+ * - label(): "Today", "Tomorrow" or "Wed 1 17" for the forecast days
+ * - dayOfYear(): 1-366 for the archive window (the regression x value)
+ *
+ * Days outside the table are computed arithmetically, so lookups never fail.
+ * The table for the current base date is shared (see forDay()) and immutable.
+ */
+final class DateTable {
+
+    // Days before the base date covered by the day-of-year table
+    // (more than the archive training window plus its sync margin)
+    private static final int PAST_DAYS = 400;
+
+    // Days from the base date with a cached label (the API's longest forecast)
+    private static final int LABELED_DAYS = 16;
+
+    // Weekday names ("EEE" in Locale.US) by floorMod(epochDay, 7); 1970-01-01 was a Thursday
+    private static final String[] WEEKDAYS = {"Thu", "Fri", "Sat", "Sun", "Mon", "Tue", "Wed"};
+
+    private static volatile DateTable shared;
+
+    private final int baseDay;
+    private final String[] labels = new String[LABELED_DAYS];
+    private final short[] daysOfYear = new short[PAST_DAYS + LABELED_DAYS];
+
+    private DateTable(int baseDay) {
+        this.baseDay = baseDay;
+        for (int i = 0; i < LABELED_DAYS; i++) {
+            labels[i] = computeLabel(baseDay + i, i);
+        }
+        for (int i = 0; i < daysOfYear.length; i++) {
+            daysOfYear[i] = (short) computeDayOfYear(baseDay - PAST_DAYS + i);
+        }
+    }
+
+    /**
+     * Get the table for a base date, reusing the shared one if it is for the same day.
+     *
+     * @param baseDay Epoch day of the base date (e.g., ForecastParser.epochDay(today))
+     */
+    static DateTable forDay(int baseDay) {
+        DateTable table = shared;
+        if (table == null || table.baseDay != baseDay) {
+            table = new DateTable(baseDay);
+            shared = table;
+        }
+        return table;
+    }
+
+    /**
+     * Human-readable label for the day `offset` days after the base date.
+     *
+     * @return "Today", "Tomorrow", or e.g. "Wed 1 17" (day name, month number, day number)
+     */
+    String label(int offset) {
+        if (offset >= 0 && offset < LABELED_DAYS) {
+            return labels[offset];
+        }
+        return computeLabel(baseDay + offset, offset);
+    }
+
+    /**
+     * Day of year (1-366) of an epoch day.
+     */
+    int dayOfYear(int epochDay) {
+        int index = epochDay - (baseDay - PAST_DAYS);
+        if (index >= 0 && index < daysOfYear.length) {
+            return daysOfYear[index];
+        }
+        return computeDayOfYear(epochDay);
+    }
+
+    /**
+     * Day of year (1-366) of an epoch day, from the shared table if it covers the day.
+     */
+    static int dayOfYearOf(int epochDay) {
+        DateTable table = shared;
+        return table != null ? table.dayOfYear(epochDay) : computeDayOfYear(epochDay);
+    }
+
+    private static String computeLabel(int epochDay, int offset) {
+        if (offset == 0) {
+            return "Today";
+        } else if (offset == 1) {
+            return "Tomorrow";
+        }
+        // "EEE M d" without leading zeros
+        int date = HistoricalAggregator.civilDate(epochDay);
+        return WEEKDAYS[Math.floorMod(epochDay, 7)] + " " + (date / 100 % 100) + " " + (date % 100);
+    }
+
+    private static int computeDayOfYear(int epochDay) {
+        int year = HistoricalAggregator.civilDate(epochDay) / 10000;
+        return epochDay - HistoricalAggregator.epochDay(year, 1, 1) + 1;
+    }
+}
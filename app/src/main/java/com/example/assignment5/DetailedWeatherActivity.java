@@ -1,6 +1,7 @@
 package com.example.assignment5;
 
 import android.os.Bundle;
+import android.util.Log;
 import android.view.View;
 import android.widget.ImageButton;
 import android.widget.TextView;
@@ -14,7 +15,12 @@ import com.github.mikephil.charting.data.LineData;
 import com.github.mikephil.charting.data.LineDataSet;
 import com.github.mikephil.charting.formatter.ValueFormatter;
 
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
 import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 
@@ -33,11 +39,23 @@ import java.util.Locale;
  * The charts are created using the MPAndroidChart library, which provides
  * professional-looking, interactive line charts with zoom and scroll capabilities.
  * 
- * Data is passed from MainActivity via Intent extras, containing the hourly
- * weather data for the selected day.
+ * MainActivity passes only the key of the selected day via Intent extras
+ * (city key, forecast generation, day index). The hourly data itself is read
+ * by reference from the ForecastRepository; if the process was restarted and
+ * the repository is empty, the day is loaded from the city's snapshot on disk.
+ * 
+ * The main screen only downloads the variables it shows (temperature, humidity,
+ * wind). When the passed data has no rain column, this activity draws what it
+ * has right away and then fetches the detailed variable set for just this day
+ * and city, upgrading the charts when it arrives. The upgraded day is kept in
+ * the ForecastRepository, so it is fetched at most once per forecast.
  */
 public class DetailedWeatherActivity extends AppCompatActivity {
 
+    // Intent extras identifying the forecast the selected day belongs to
+    static final String EXTRA_CITY_KEY = "cityKey";
+    static final String EXTRA_GENERATION = "generation";
+
     // ========== CHART VIEWS ==========
     // LineChart objects from MPAndroidChart library for displaying hourly data trends
     
@@ -74,16 +92,19 @@ public class DetailedWeatherActivity extends AppCompatActivity {
     // ========== NAVIGATION ==========
     // Button to return to the main forecast screen
     private ImageButton backButton;
+    
+    // Cancelled when the activity is destroyed, so a pending upgrade fetch is aborted
+    private final CancellationToken upgradeToken = new CancellationToken(0);
 
     /**
      * Called when the activity is first created.
      * 
      * This method:
      * 1. Sets up the layout
-     * 2. Retrieves hourly weather data passed from MainActivity via Intent
+     * 2. Looks up the selected day's hourly data in the ForecastRepository
      * 3. Initializes all UI components
      * 4. Sets up the line charts with hourly data
-     * 5. Calculates and displays daily averages
+     * 5. Displays the daily averages, high/low and rain total
      * 
      * @param savedInstanceState Bundle containing saved state (null for first creation)
      */
@@ -107,11 +128,10 @@ public class DetailedWeatherActivity extends AppCompatActivity {
         // This will be displayed at the top of the screen
         String dayLabelStr = getIntent().getStringExtra("dayLabel");
         
-        // Get the list of hourly weather data points for this day
-        // HourlyWeatherData implements Serializable, so it can be passed via Intent
-        // This list contains 24 HourlyWeatherData objects (one for each hour of the day)
-        ArrayList<HourlyWeatherData> hourlyData = (ArrayList<HourlyWeatherData>) 
-            getIntent().getSerializableExtra("hourlyData");
+        // Get the key of the forecast this day belongs to
+        // The forecast itself stays in the ForecastRepository - nothing is copied
+        String cityKey = getIntent().getStringExtra(EXTRA_CITY_KEY);
+        long generation = getIntent().getLongExtra(EXTRA_GENERATION, 0);
 
         // Initialize all view references by finding them by ID from the layout
         initializeViews();
@@ -120,20 +140,165 @@ public class DetailedWeatherActivity extends AppCompatActivity {
         // finish() closes the current activity and returns to the previous one
         backButton.setOnClickListener(v -> finish());
         
+        // Set the day label at the top of the screen
+        // Use provided label or default to "Day Details" if not provided
+        dayLabel.setText(dayLabelStr != null ? dayLabelStr : "Day Details");
+        
+        if (cityKey == null) {
+            return;
+        }
+        ForecastRepository repository = ForecastRepository.getInstance();
+        ForecastRepository.Entry entry = repository.get(cityKey, generation);
+        if (entry != null) {
+            // Normal case: MainActivity published this forecast in the same process
+            // Prefer the day with the detailed variables if it was already upgraded
+            if (dayIndex < entry.forecasts.size()) {
+                DailyForecast detailed = repository.detailed(entry, dayIndex);
+                showDay(detailed != null ? detailed : entry.forecasts.get(dayIndex), entry, dayIndex);
+            }
+        } else {
+            // The process was restarted (or the generation was dropped) - read the
+            // city's snapshot from disk instead of showing an empty screen
+            TaskRuntime.getInstance().execute(new LoadSnapshotDayTask(cityKey, dayIndex),
+                TaskRuntime.Pool.IO, TaskRuntime.Priority.HIGH);
+        }
+    }
+    
+    /**
+     * Draw the charts and summary of a day, then fetch the detailed variables
+     * if the day doesn't have them yet.
+     * 
+     * @param forecast The day, or null if it could not be loaded
+     * @param entry The repository entry the day belongs to, or null if unknown
+     *              (read from a snapshot - no upgrade fetch then)
+     * @param dayIndex Index of the day in the entry
+     */
+    private void showDay(DailyForecast forecast, ForecastRepository.Entry entry, int dayIndex) {
         // Only set up charts and display data if we have valid hourly data
-        // This prevents crashes if data wasn't passed correctly
-        if (hourlyData != null && !hourlyData.isEmpty()) {
-            // Set the day label at the top of the screen
-            // Use provided label or default to "Day Details" if not provided
-            dayLabel.setText(dayLabelStr != null ? dayLabelStr : "Day Details");
-            
-            // Set up all four line charts with the hourly data
-            // This creates the visual graphs showing trends throughout the day
-            setupCharts(hourlyData);
-            
-            // Calculate daily averages and totals, then display them in summary TextViews
-            // This shows the user quick statistics without having to read the charts
-            calculateAndDisplayAverages(hourlyData);
+        // This prevents crashes if the day has no hours
+        if (forecast == null || forecast.hourlyData == null || forecast.hourlyData.size() == 0) {
+            return;
+        }
+        HourlySeries hourlyData = forecast.hourlyData;
+        
+        // Set up all four line charts with the hourly data
+        // This creates the visual graphs showing trends throughout the day
+        setupCharts(hourlyData);
+        
+        // Display daily averages and totals (computed when the forecast was parsed)
+        // This shows the user quick statistics without having to read the charts
+        displayStatistics(forecast);
+        
+        // The main screen's data has no rain column - fetch the detailed
+        // variables for this day in the background and redraw when they arrive
+        if (!hourlyData.has(ForecastParser.VAR_RAIN) && entry != null) {
+            totalRainText.setText("Total: --");
+            TaskRuntime.getInstance().execute(
+                new UpgradeDayTask(entry, dayIndex, hourlyData.date(0)),
+                TaskRuntime.Pool.IO, TaskRuntime.Priority.HIGH);
+        }
+    }
+    
+    /**
+     * Task that reads one day from a city's ForecastSnapshotStore snapshot.
+     * Used when the forecast the screen was opened for is no longer in memory.
+     */
+    private class LoadSnapshotDayTask extends TaskRuntime.Task<DailyForecast> {
+        private final String cityKey;
+        private final int dayIndex;
+        
+        LoadSnapshotDayTask(String cityKey, int dayIndex) {
+            super(upgradeToken);
+            this.cityKey = cityKey;
+            this.dayIndex = dayIndex;
+        }
+        
+        @Override
+        protected DailyForecast doInBackground() {
+            List<DailyForecast> forecasts = ForecastSnapshotStore.load(
+                new File(getFilesDir(), "forecasts"), cityKey, Calendar.getInstance());
+            return forecasts != null && dayIndex < forecasts.size() ? forecasts.get(dayIndex) : null;
+        }
+        
+        @Override
+        protected void onPostExecute(DailyForecast forecast) {
+            if (upgradeToken.isCancelled() || isFinishing()) {
+                return;
+            }
+            Log.d("Forecast", "Detail view of " + cityKey + " loaded from snapshot: " + (forecast != null));
+            // The snapshot doesn't carry the City, so the rain upgrade is skipped
+            showDay(forecast, null, dayIndex);
+        }
+    }
+    
+    /**
+     * Called when the activity is being destroyed.
+     * Aborts the upgrade fetch if it is still running.
+     */
+    @Override
+    protected void onDestroy() {
+        upgradeToken.cancel();
+        super.onDestroy();
+    }
+    
+    /**
+     * Task that fetches the detailed variable set (ForecastParser.DETAIL_VARIABLES)
+     * for one day of one city.
+     * 
+     * The request covers a single day, so it is about a seventh of the main
+     * forecast's size even though it has one more column. The result is stored
+     * with the day's repository entry, so the day is never fetched twice.
+     */
+    private class UpgradeDayTask extends TaskRuntime.Task<DailyForecast> {
+        private final ForecastRepository.Entry entry;
+        private final int dayIndex;
+        // Day to fetch, "yyyy-MM-dd" in the city's time zone
+        private final String date;
+        
+        UpgradeDayTask(ForecastRepository.Entry entry, int dayIndex, String date) {
+            super(upgradeToken);
+            this.entry = entry;
+            this.dayIndex = dayIndex;
+            this.date = date;
+        }
+        
+        @Override
+        protected DailyForecast doInBackground() {
+            String url = MainActivity.buildForecastUrl(Collections.singletonList(entry.city),
+                ForecastParser.DETAIL_VARIABLES, date);
+            try (WeatherHttpClient.Response response =
+                     WeatherTransport.current().get(url, 10000, upgradeToken)) {
+                if (response.code != HttpURLConnection.HTTP_OK) {
+                    throw new IOException("Server error: " + response.code);
+                }
+                List<DailyForecast> days = ForecastParser.parse(response.body(), Calendar.getInstance(), 1);
+                if (days.isEmpty()) {
+                    return null;
+                }
+                // Keep it even if this screen is closed before it arrives
+                ForecastRepository.getInstance().putDetailed(entry, dayIndex, days.get(0));
+                return days.get(0);
+            } catch (Exception e) {
+                if (!upgradeToken.isCancelled()) {
+                    Log.w("Forecast", "Could not fetch detailed variables for " + date, e);
+                }
+                return null;
+            }
+        }
+        
+        @Override
+        protected void onPostExecute(DailyForecast detailed) {
+            if (upgradeToken.isCancelled() || isFinishing()) {
+                return;
+            }
+            if (detailed == null || detailed.hourlyData == null || detailed.hourlyData.size() == 0) {
+                // Keep the main-screen charts; just show that rain is unknown
+                totalRainText.setText("Total: N/A");
+                return;
+            }
+            Log.d("Forecast", "Upgraded " + date + " to detailed variables");
+            setupCharts(detailed.hourlyData);
+            displayStatistics(detailed);
         }
     }
 
@@ -172,21 +337,20 @@ public class DetailedWeatherActivity extends AppCompatActivity {
      * is missing.
      * 
      * Charts are only displayed if the corresponding data is available in the
-     * hourly data. If data is missing (null), the chart is hidden to avoid
+     * hourly data. If a variable's column is missing, the chart is hidden to avoid
      * showing empty or misleading graphs.
      * 
-     * @param hourlyData List of HourlyWeatherData objects containing hourly weather
-     *                  measurements for the selected day
+     * @param hourlyData HourlySeries containing hourly weather measurements
+     *                  for the selected day
      */
-    private void setupCharts(List<HourlyWeatherData> hourlyData) {
+    private void setupCharts(HourlySeries hourlyData) {
         // ========== TEMPERATURE CHART ==========
         // Temperature is always required, so always set up this chart
         setupTemperatureChart(hourlyData);
         
         // ========== HUMIDITY CHART ==========
         // Check if humidity data is available (it's optional in the API response)
-        // We check the first data point as a quick way to see if any humidity data exists
-        if (hourlyData.get(0).humidity != null) {
+        if (hourlyData.has(ForecastParser.VAR_HUMIDITY)) {
             // Humidity data is available - set up and display the chart
             setupHumidityChart(hourlyData);
         } else {
@@ -196,7 +360,7 @@ public class DetailedWeatherActivity extends AppCompatActivity {
         
         // ========== WIND SPEED CHART ==========
         // Check if wind speed data is available (it's optional in the API response)
-        if (hourlyData.get(0).windSpeed != null) {
+        if (hourlyData.has(ForecastParser.VAR_WIND)) {
             // Wind speed data is available - set up and display the chart
             setupWindChart(hourlyData);
         } else {
@@ -206,8 +370,10 @@ public class DetailedWeatherActivity extends AppCompatActivity {
         
         // ========== RAIN/PRECIPITATION CHART ==========
         // Check if rain/precipitation data is available (it's optional in the API response)
-        if (hourlyData.get(0).rain != null) {
+        if (hourlyData.has(ForecastParser.VAR_RAIN)) {
             // Rain data is available - set up and display the chart
+            // (it may have been hidden before the detailed variables arrived)
+            rainChart.setVisibility(android.view.View.VISIBLE);
             setupRainChart(hourlyData);
         } else {
             // No rain data - hide the chart
@@ -227,9 +393,9 @@ public class DetailedWeatherActivity extends AppCompatActivity {
      * 
      * The chart uses a red color scheme to represent temperature.
      * 
-     * @param hourlyData List of HourlyWeatherData objects containing hourly temperature readings
+     * @param hourlyData HourlySeries containing hourly temperature readings
      */
-    private void setupTemperatureChart(List<HourlyWeatherData> hourlyData) {
+    private void setupTemperatureChart(HourlySeries hourlyData) {
         // Create lists to hold chart data points and X-axis labels
         // Entry objects represent (x, y) coordinates on the chart
         ArrayList<Entry> entries = new ArrayList<>();
@@ -238,27 +404,16 @@ public class DetailedWeatherActivity extends AppCompatActivity {
         
         // Iterate through all hourly data points and create chart entries
         for (int i = 0; i < hourlyData.size(); i++) {
-            // Get the hourly data for this hour
-            HourlyWeatherData data = hourlyData.get(i);
-            
-            // Create a chart entry: x = index (hour number), y = temperature value
-            // Entry constructor: Entry(float x, float y)
-            // We cast temperature to float because Entry requires float values
-            entries.add(new Entry(i, (float) data.temperature));
-            
-            // Extract the hour from the time string to create a readable label
-            // Time format is ISO 8601: "2024-01-15T14:00" (year-month-dayThour:minute)
-            String timeStr = data.time;
-            if (timeStr != null && timeStr.length() > 13) {
-                // Extract hour portion: substring(11, 13) gets characters at positions 11-12
-                // For "2024-01-15T14:00", positions 11-12 are "14"
-                String hour = timeStr.substring(11, 13);
-                // Format as "14:00" for display
-                labels.add(hour + ":00");
-            } else {
-                // Fallback: if time string is invalid, just use the index number
-                labels.add(String.valueOf(i));
+            // Only add entry if this hour has a temperature reading (value() is NaN otherwise)
+            if (hourlyData.isPresent(ForecastParser.VAR_TEMPERATURE, i)) {
+                // Create a chart entry: x = index (hour number), y = temperature value
+                // Entry constructor: Entry(float x, float y)
+                // We cast temperature to float because Entry requires float values
+                entries.add(new Entry(i, (float) hourlyData.value(ForecastParser.VAR_TEMPERATURE, i)));
             }
+            
+            // Label every hour from its timestamp, e.g. "14:00" for 2:00 PM
+            labels.add(hourLabel(hourlyData, i));
         }
         
         // ========== CONFIGURE CHART DATA SET ==========
@@ -328,32 +483,22 @@ public class DetailedWeatherActivity extends AppCompatActivity {
      * Similar to setupTemperatureChart() but for humidity data.
      * Uses a blue color scheme to represent humidity.
      * 
-     * @param hourlyData List of HourlyWeatherData objects containing hourly humidity readings
+     * @param hourlyData HourlySeries containing hourly humidity readings
      */
-    private void setupHumidityChart(List<HourlyWeatherData> hourlyData) {
+    private void setupHumidityChart(HourlySeries hourlyData) {
         // Create lists for chart data points and X-axis labels
         ArrayList<Entry> entries = new ArrayList<>();
         ArrayList<String> labels = new ArrayList<>();
         
         // Iterate through hourly data and create chart entries
         for (int i = 0; i < hourlyData.size(); i++) {
-            HourlyWeatherData data = hourlyData.get(i);
-            
-            // Only add entry if humidity data exists (it's nullable)
-            if (data.humidity != null) {
+            // Only add entry if this hour has a humidity reading
+            if (hourlyData.isPresent(ForecastParser.VAR_HUMIDITY, i)) {
                 // Create chart entry: x = hour index, y = humidity percentage
-                // floatValue() converts Double to float
-                entries.add(new Entry(i, data.humidity.floatValue()));
+                entries.add(new Entry(i, (float) hourlyData.value(ForecastParser.VAR_HUMIDITY, i)));
                 
-                // Extract hour label from time string
-                String timeStr = data.time;
-                if (timeStr != null && timeStr.length() > 13) {
-                    // Extract hour (positions 11-12) and format as "HH:00"
-                    labels.add(timeStr.substring(11, 13) + ":00");
-                } else {
-                    // Fallback to index if time string is invalid
-                    labels.add(String.valueOf(i));
-                }
+                // Label the hour from its timestamp ("HH:00")
+                labels.add(hourLabel(hourlyData, i));
             }
         }
         
@@ -388,20 +533,18 @@ public class DetailedWeatherActivity extends AppCompatActivity {
      * Similar to other chart setup methods but for wind speed.
      * Uses a green color scheme to represent wind speed.
      * 
-     * @param hourlyData List of HourlyWeatherData objects containing hourly wind speed readings
+     * @param hourlyData HourlySeries containing hourly wind speed readings
      */
-    private void setupWindChart(List<HourlyWeatherData> hourlyData) {
+    private void setupWindChart(HourlySeries hourlyData) {
         // Create list for chart data points
         ArrayList<Entry> entries = new ArrayList<>();
         
         // Iterate through hourly data and create chart entries
         for (int i = 0; i < hourlyData.size(); i++) {
-            HourlyWeatherData data = hourlyData.get(i);
-            
-            // Only add entry if wind speed data exists (it's nullable)
-            if (data.windSpeed != null) {
+            // Only add entry if this hour has a wind speed reading
+            if (hourlyData.isPresent(ForecastParser.VAR_WIND, i)) {
                 // Create chart entry: x = hour index, y = wind speed in mph
-                entries.add(new Entry(i, data.windSpeed.floatValue()));
+                entries.add(new Entry(i, (float) hourlyData.value(ForecastParser.VAR_WIND, i)));
             }
         }
         
@@ -426,20 +569,18 @@ public class DetailedWeatherActivity extends AppCompatActivity {
      * Similar to other chart setup methods but for precipitation.
      * Uses a purple color scheme to represent rain.
      * 
-     * @param hourlyData List of HourlyWeatherData objects containing hourly rain/precipitation readings
+     * @param hourlyData HourlySeries containing hourly rain/precipitation readings
      */
-    private void setupRainChart(List<HourlyWeatherData> hourlyData) {
+    private void setupRainChart(HourlySeries hourlyData) {
         // Create list for chart data points
         ArrayList<Entry> entries = new ArrayList<>();
         
         // Iterate through hourly data and create chart entries
         for (int i = 0; i < hourlyData.size(); i++) {
-            HourlyWeatherData data = hourlyData.get(i);
-            
-            // Only add entry if rain data exists (it's nullable)
-            if (data.rain != null) {
+            // Only add entry if this hour has a rain reading
+            if (hourlyData.isPresent(ForecastParser.VAR_RAIN, i)) {
                 // Create chart entry: x = hour index, y = rain amount in mm
-                entries.add(new Entry(i, data.rain.floatValue()));
+                entries.add(new Entry(i, (float) hourlyData.value(ForecastParser.VAR_RAIN, i)));
             }
         }
         
@@ -459,83 +600,44 @@ public class DetailedWeatherActivity extends AppCompatActivity {
     }
 
     /**
-     * Calculate daily averages and totals from hourly data, then display them in TextViews.
+     * Display the day's averages, high/low and rain total in the summary TextViews.
      * 
-     * This method:
-     * 1. Sums all hourly values for each weather variable
-     * 2. Calculates averages by dividing sums by count
-     * 3. For rain, displays total (sum) rather than average (more meaningful)
-     * 4. Formats and displays results in the summary TextViews
+     * The statistics were computed once when the forecast was parsed (see DailyStats),
+     * so nothing loops over the hourly data here.
      * 
-     * Note: Some variables (humidity, wind, rain) are optional and may be null.
-     * We track counts separately to calculate averages correctly when some hours
-     * have missing data.
+     * Note: Some variables (humidity, wind, rain) are optional and may be missing.
+     * A variable with no valid hours is shown as "N/A".
      * 
-     * @param hourlyData List of HourlyWeatherData objects containing hourly measurements
+     * @param forecast The day to display
      */
-    private void calculateAndDisplayAverages(List<HourlyWeatherData> hourlyData) {
-        // Initialize accumulators for summing values
-        // These will hold the sum of all hourly values for each variable
-        double tempSum = 0;        // Sum of all hourly temperatures
-        double humiditySum = 0;    // Sum of all hourly humidity percentages
-        double windSum = 0;        // Sum of all hourly wind speeds
-        double rainSum = 0;        // Sum of all hourly rain amounts
-        
-        // Initialize counters for optional variables
-        // We need separate counts because some hours may have null values
-        int humidityCount = 0;  // Number of hours with valid humidity data
-        int windCount = 0;      // Number of hours with valid wind speed data
-        int rainCount = 0;      // Number of hours with valid rain data
-        
-        // Iterate through all hourly data points and accumulate sums
-        for (HourlyWeatherData data : hourlyData) {
-            // Temperature is always present, so always add it
-            tempSum += data.temperature;
-            
-            // Humidity is optional - only add if not null
-            if (data.humidity != null) {
-                humiditySum += data.humidity;
-                humidityCount++;  // Increment count for average calculation
-            }
-            
-            // Wind speed is optional - only add if not null
-            if (data.windSpeed != null) {
-                windSum += data.windSpeed;
-                windCount++;  // Increment count for average calculation
-            }
-            
-            // Rain is optional - only add if not null
-            if (data.rain != null) {
-                rainSum += data.rain;
-                rainCount++;  // Increment count (though we'll use sum, not average)
-            }
+    private void displayStatistics(DailyForecast forecast) {
+        DailyStats stats = forecast.stats;
+        
+        // ========== DISPLAY TEMPERATURE AVERAGE, HIGH AND LOW ==========
+        if (stats.count(ForecastParser.VAR_TEMPERATURE) > 0) {
+            avgTempText.setText(String.format(Locale.US, "Average: %.1f°F (high %.0f° at %s, low %.0f° at %s)",
+                stats.mean(ForecastParser.VAR_TEMPERATURE),
+                stats.high(ForecastParser.VAR_TEMPERATURE),
+                hourLabel(forecast.hourlyData, stats.highHour(ForecastParser.VAR_TEMPERATURE)),
+                stats.low(ForecastParser.VAR_TEMPERATURE),
+                hourLabel(forecast.hourlyData, stats.lowHour(ForecastParser.VAR_TEMPERATURE))));
+        } else {
+            avgTempText.setText("Average: N/A");
         }
         
-        // ========== CALCULATE AND DISPLAY TEMPERATURE AVERAGE ==========
-        // Temperature is always available, so divide by total number of hours
-        double avgTemp = tempSum / hourlyData.size();
-        // Format with 1 decimal place and display
-        avgTempText.setText(String.format(Locale.US, "Average: %.1f°F", avgTemp));
-        
-        // ========== CALCULATE AND DISPLAY HUMIDITY AVERAGE ==========
-        // Check if we have any humidity data
-        if (humidityCount > 0) {
-            // Calculate average by dividing sum by count of valid values
-            double avgHumidity = humiditySum / humidityCount;
+        // ========== DISPLAY HUMIDITY AVERAGE ==========
+        if (forecast.averageHumidity != null) {
             // Format as percentage with 1 decimal place
-            avgHumidityText.setText(String.format(Locale.US, "Average: %.1f%%", avgHumidity));
+            avgHumidityText.setText(String.format(Locale.US, "Average: %.1f%%", forecast.averageHumidity));
         } else {
             // No humidity data available - show "N/A"
             avgHumidityText.setText("Average: N/A");
         }
         
-        // ========== CALCULATE AND DISPLAY WIND SPEED AVERAGE ==========
-        // Check if we have any wind speed data
-        if (windCount > 0) {
-            // Calculate average by dividing sum by count of valid values
-            double avgWind = windSum / windCount;
+        // ========== DISPLAY WIND SPEED AVERAGE ==========
+        if (forecast.averageWindSpeed != null) {
             // Format with 1 decimal place and unit
-            avgWindText.setText(String.format(Locale.US, "Average: %.1f mph", avgWind));
+            avgWindText.setText(String.format(Locale.US, "Average: %.1f mph", forecast.averageWindSpeed));
         } else {
             // No wind speed data available - show "N/A"
             avgWindText.setText("Average: N/A");
@@ -544,14 +646,23 @@ public class DetailedWeatherActivity extends AppCompatActivity {
         // ========== DISPLAY RAIN TOTAL ==========
         // For rain, we display the total (sum) rather than average
         // This is more meaningful - users want to know total precipitation for the day
-        if (rainCount > 0) {
+        if (forecast.totalRain != null) {
             // Display total rain with 2 decimal places (more precision for small amounts)
-            totalRainText.setText(String.format(Locale.US, "Total: %.2f mm", rainSum));
+            totalRainText.setText(String.format(Locale.US, "Total: %.2f mm", forecast.totalRain));
         } else {
-            // No rain data - show 0 mm
-            totalRainText.setText("Total: 0 mm");
+            // Rain wasn't downloaded (or every hour is missing) - unknown, not zero
+            totalRainText.setText("Total: N/A");
         }
     }
-}
 
+    /**
+     * X-axis label for an hour, e.g. "14:00" for 2:00 PM.
+     */
+    private static String hourLabel(HourlySeries hourlyData, int hour) {
+        if (hourlyData == null || hour < 0) {
+            return "--";
+        }
+        return String.format(Locale.US, "%02d:00", hourlyData.hourOfDay(hour));
+    }
+}
 
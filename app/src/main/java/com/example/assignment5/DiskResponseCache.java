@@ -0,0 +1,440 @@
+package com.example.assignment5;
+
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded on-disk cache of weather API responses with HTTP revalidation.
+ *
+ * Each cached response is stored as two files in the cache directory:
+ * - "<hash>.meta": the normalized URL and the validators the server sent
+ *   (ETag and Last-Modified)
+ * - "<hash>.body": the decoded (uncompressed) response body
+ *
+ * WeatherHttpClient uses the validators to send conditional GETs
+ * (If-None-Match / If-Modified-Since). When the server answers
+ * 304 Not Modified, the body is served from disk and no payload is downloaded.
+ *
+ * The cache is keyed by the normalized request URL (lowercase host, query
+ * parameters sorted by name), so the same request built in a different
+ * parameter order still hits. Total body size is capped, and the least
+ * recently used entries are evicted first.
+ *
+ * get() opens the body file right away and the Entry keeps the stream, so a
+ * commit() or eviction while the request is on the network (which deletes or
+ * replaces the file) can't take away the body that matches the validators sent.
+ */
+final class DiskResponseCache {
+
+    private static final String TAG = "DiskResponseCache";
+
+    // Bump when the .meta layout changes so old entries are ignored
+    private static final int META_VERSION = 1;
+
+    private final File directory;
+    private final long maxBytes;
+
+    // Cache key → body size in bytes, in least-recently-used order (access-ordered)
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes = 0;
+
+    // Counters for monitoring cache effectiveness
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Open (or create) a cache in the given directory.
+     *
+     * @param directory Directory for cache files (e.g., new File(getCacheDir(), "http"))
+     * @param maxBytes Maximum total size of cached bodies
+     */
+    DiskResponseCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w(TAG, "Could not create cache directory " + directory);
+        }
+        loadIndex();
+    }
+
+    /**
+     * Rebuild the in-memory LRU index from the files on disk.
+     * The body file's last-modified time records when it was last used.
+     */
+    private void loadIndex() {
+        File[] bodies = directory.listFiles((dir, name) -> name.endsWith(".body"));
+        if (bodies == null) {
+            return;
+        }
+        Arrays.sort(bodies, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File body : bodies) {
+            String key = body.getName().substring(0, body.getName().length() - ".body".length());
+            if (new File(directory, key + ".meta").isFile()) {
+                index.put(key, body.length());
+                totalBytes += body.length();
+            } else {
+                deleteQuietly(body);
+            }
+        }
+        trimToSize();
+    }
+
+    /**
+     * Normalize a request URL so equivalent requests share one cache entry.
+     *
+     * - Scheme and host are lowercased
+     * - Query parameters are sorted by name (values are kept in order)
+     *
+     * @param url The request URL
+     * @return A canonical form of the URL
+     */
+    static String normalizeUrl(String url) {
+        try {
+            URL parsed = new URL(url);
+            StringBuilder normalized = new StringBuilder()
+                .append(parsed.getProtocol().toLowerCase(Locale.US)).append("://")
+                .append(parsed.getHost().toLowerCase(Locale.US));
+            if (parsed.getPort() != -1 && parsed.getPort() != parsed.getDefaultPort()) {
+                normalized.append(':').append(parsed.getPort());
+            }
+            normalized.append(parsed.getPath().isEmpty() ? "/" : parsed.getPath());
+            if (parsed.getQuery() != null && !parsed.getQuery().isEmpty()) {
+                List<String> params = new ArrayList<>(Arrays.asList(parsed.getQuery().split("&")));
+                // Stable sort on the name only, so repeated parameters keep their order
+                Collections.sort(params, (a, b) -> paramName(a).compareTo(paramName(b)));
+                normalized.append('?');
+                for (int i = 0; i < params.size(); i++) {
+                    if (i > 0) {
+                        normalized.append('&');
+                    }
+                    normalized.append(params.get(i));
+                }
+            }
+            return normalized.toString();
+        } catch (IOException e) {
+            return url;
+        }
+    }
+
+    private static String paramName(String param) {
+        int equals = param.indexOf('=');
+        return equals >= 0 ? param.substring(0, equals) : param;
+    }
+
+    /**
+     * Hash a normalized URL into a file-name-safe cache key.
+     */
+    static String keyFor(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                .digest(normalizeUrl(url).getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (int i = 0; i < 16; i++) {
+                hex.append(Character.forDigit((digest[i] >> 4) & 0xF, 16))
+                   .append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is always available on Android
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Look up the cached entry for a URL.
+     *
+     * The entry holds the body open; close it if the body isn't used.
+     *
+     * @return The entry with its validators, or null if nothing usable is cached
+     */
+    synchronized Entry get(String url) {
+        String key = keyFor(url);
+        // index.get() (not containsKey) so the lookup counts as a use for LRU ordering
+        if (index.get(key) == null) {
+            return null;
+        }
+        File metaFile = new File(directory, key + ".meta");
+        File bodyFile = new File(directory, key + ".body");
+        try (DataInputStream meta = new DataInputStream(new FileInputStream(metaFile))) {
+            if (meta.readInt() != META_VERSION || !normalizeUrl(url).equals(meta.readUTF())) {
+                remove(key);
+                return null;
+            }
+            String etag = meta.readUTF();
+            String lastModified = meta.readUTF();
+            long storedAt = meta.readLong();
+            return new Entry(key, bodyFile, new FileInputStream(bodyFile), etag.isEmpty() ? null : etag,
+                lastModified.isEmpty() ? null : lastModified, storedAt);
+        } catch (IOException e) {
+            Log.w(TAG, "Dropping unreadable cache entry " + key, e);
+            remove(key);
+            return null;
+        }
+    }
+
+    /**
+     * Start writing a new body for a URL.
+     *
+     * The returned stream wraps the network stream: every byte the caller reads
+     * is also written to a temporary file. The entry only replaces the old one
+     * if the body was read to the end (see {@link Writer#commit()}).
+     *
+     * @param url The request URL
+     * @param etag ETag response header, or null
+     * @param lastModified Last-Modified response header, or null
+     * @param source The decoded response body
+     */
+    Writer edit(String url, String etag, String lastModified, InputStream source) throws IOException {
+        String key = keyFor(url);
+        File temp = new File(directory, key + "." + Thread.currentThread().getId() + ".tmp");
+        return new Writer(url, key, etag, lastModified, source, temp);
+    }
+
+    /**
+     * Record that a request was answered from the cache (304 Not Modified).
+     */
+    synchronized void markHit(Entry entry) {
+        hitCount.incrementAndGet();
+        // Refresh LRU position in memory and on disk
+        index.get(entry.key);
+        if (!entry.bodyFile.setLastModified(System.currentTimeMillis())) {
+            Log.d(TAG, "Could not touch " + entry.bodyFile);
+        }
+    }
+
+    /**
+     * Record that a request needed a full download.
+     */
+    void markMiss() {
+        missCount.incrementAndGet();
+    }
+
+    long hitCount() {
+        return hitCount.get();
+    }
+
+    long missCount() {
+        return missCount.get();
+    }
+
+    long evictionCount() {
+        return evictionCount.get();
+    }
+
+    synchronized long size() {
+        return totalBytes;
+    }
+
+    private synchronized void commit(String url, String key, String etag, String lastModified,
+                                     File temp) throws IOException {
+        File metaFile = new File(directory, key + ".meta");
+        File bodyFile = new File(directory, key + ".body");
+        // Write the metadata next to the body's temp file, then move both into place
+        File metaTemp = new File(temp.getPath() + ".meta");
+        try (DataOutputStream meta = new DataOutputStream(new FileOutputStream(metaTemp))) {
+            meta.writeInt(META_VERSION);
+            meta.writeUTF(normalizeUrl(url));
+            meta.writeUTF(etag != null ? etag : "");
+            meta.writeUTF(lastModified != null ? lastModified : "");
+            meta.writeLong(System.currentTimeMillis());
+        } catch (IOException e) {
+            deleteQuietly(metaTemp);
+            throw e;
+        }
+        remove(key);
+        if (!temp.renameTo(bodyFile) || !metaTemp.renameTo(metaFile)) {
+            deleteQuietly(bodyFile);
+            deleteQuietly(metaTemp);
+            deleteQuietly(temp);
+            throw new IOException("Could not store cache entry " + key);
+        }
+        index.put(key, bodyFile.length());
+        totalBytes += bodyFile.length();
+        trimToSize();
+    }
+
+    private void remove(String key) {
+        Long size = index.remove(key);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        deleteQuietly(new File(directory, key + ".meta"));
+        deleteQuietly(new File(directory, key + ".body"));
+    }
+
+    /**
+     * Evict least recently used entries until the cache fits in maxBytes.
+     */
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            it.remove();
+            totalBytes -= eldest.getValue();
+            deleteQuietly(new File(directory, eldest.getKey() + ".meta"));
+            deleteQuietly(new File(directory, eldest.getKey() + ".body"));
+            evictionCount.incrementAndGet();
+        }
+    }
+
+    private static void deleteQuietly(File file) {
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Could not delete " + file);
+        }
+    }
+
+    /**
+     * A cached response: its validators and the body, opened when it was looked up.
+     */
+    static final class Entry implements Closeable {
+        final String key;
+        final File bodyFile;
+        final String etag;
+        final String lastModified;
+        final long storedAt;
+        // Open body stream, until openBody() hands it out or close() closes it
+        private InputStream body;
+
+        Entry(String key, File bodyFile, InputStream body, String etag, String lastModified, long storedAt) {
+            this.key = key;
+            this.bodyFile = bodyFile;
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.storedAt = storedAt;
+        }
+
+        /**
+         * Take the cached body for reading (the caller closes it). Can be called once.
+         */
+        synchronized InputStream openBody() throws IOException {
+            if (body == null) {
+                throw new IOException("Cached body of " + key + " was already taken or closed");
+            }
+            InputStream opened = body;
+            body = null;
+            return opened;
+        }
+
+        /**
+         * Close the body if it was never taken with openBody().
+         */
+        @Override
+        public synchronized void close() {
+            if (body != null) {
+                try {
+                    body.close();
+                } catch (IOException e) {
+                    Log.d(TAG, "Could not close cached body: " + e.getMessage());
+                }
+                body = null;
+            }
+        }
+    }
+
+    /**
+     * Stream that copies everything read through it into a pending cache entry.
+     */
+    final class Writer extends FilterInputStream {
+        private final String url;
+        private final String key;
+        private final String etag;
+        private final String lastModified;
+        private final File temp;
+        private OutputStream out;
+        private boolean reachedEnd = false;
+
+        private Writer(String url, String key, String etag, String lastModified,
+                       InputStream source, File temp) throws IOException {
+            super(source);
+            this.url = url;
+            this.key = key;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.temp = temp;
+            this.out = new FileOutputStream(temp);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b == -1) {
+                reachedEnd = true;
+            } else if (out != null) {
+                out.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read == -1) {
+                reachedEnd = true;
+            } else if (out != null) {
+                out.write(buffer, offset, read);
+            }
+            return read;
+        }
+
+        /**
+         * Throw the partial copy away without storing it (e.g., the load was cancelled).
+         */
+        void abandon() {
+            try {
+                if (out != null) {
+                    out.close();
+                    out = null;
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Could not close pending cache entry for " + url, e);
+            }
+            deleteQuietly(temp);
+        }
+
+        /**
+         * Store the copied body as the new cache entry if it was read completely,
+         * otherwise throw the partial copy away.
+         */
+        void commit() {
+            try {
+                if (out != null) {
+                    out.close();
+                    out = null;
+                }
+                if (reachedEnd) {
+                    DiskResponseCache.this.commit(url, key, etag, lastModified, temp);
+                } else {
+                    deleteQuietly(temp);
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Could not cache response for " + url, e);
+                deleteQuietly(temp);
+            }
+        }
+    }
+}
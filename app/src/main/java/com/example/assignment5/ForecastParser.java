@@ -0,0 +1,468 @@
+package com.example.assignment5;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * Streaming parser that turns an Open Meteo forecast response into DailyForecast objects.
+ *
+ * The forecast API returns hourly data as parallel arrays. We request
+ * timeformat=unixtime, so times are epoch seconds, and the location's
+ * offset from UTC comes in a separate field:
+ * {
+ *   "utc_offset_seconds": -21600,
+ *   "hourly": {
+ *     "time": [1705298400, 1705302000, ...],
+ *     "temperature_2m": [45.2, 44.8, ...],
+ *     "relative_humidity_2m": [65, 67, ...],
+ *     ...
+ *   }
+ * }
+ *
+ * Instead of loading the whole response into a String and building a JSONObject tree,
+ * this class reads the HTTP stream once with JsonPullParser:
+ * - The "time" array assigns every hour to a day bucket (local time / 86400 -
+ *   integer division, no date strings or Calendars) as soon as the UTC offset
+ *   is known; if "utc_offset_seconds" comes after "hourly", the raw times are
+ *   bucketed when it arrives (or when the location object ends)
+ * - Each variable array is then read value by value, and every value is added
+ *   straight into its day's running sum and count
+ * - Values are kept only in primitive double arrays (needed for the hourly charts),
+ *   and hours beyond the requested number of days are skipped without being stored
+ * - Those arrays become one HourlySeries per location, and each DailyForecast
+ *   gets a view of its day's hours (no per-hour objects)
+ *
+ * Peak memory is a few primitive arrays instead of the full payload string plus a DOM.
+ *
+ * How the data is interpreted:
+ * - Hours are grouped by local date: unixtime plus utc_offset_seconds (older
+ *   recordings with "yyyy-MM-ddTHH:mm" strings are taken as local time already),
+ *   and each day is labeled by its offset from today (see DateTable)
+ * - Null values are allowed: the hour is marked missing in the HourlySeries and
+ *   left out of the day's statistics, so averages cover the hours that have a value
+ * - Days without any temperature reading are dropped; a response without a
+ *   time or temperature array is rejected with an IOException
+ */
+final class ForecastParser {
+
+    // ========== HOURLY VARIABLES ==========
+    // Column indexes for the hourly variables we understand.
+    // A response may contain any subset of them (see MAIN_VARIABLES / DETAIL_VARIABLES);
+    // columns that were not requested stay null in the parsed data.
+    static final int VAR_TEMPERATURE = 0;
+    static final int VAR_HUMIDITY = 1;
+    static final int VAR_WIND = 2;
+    static final int VAR_RAIN = 3;
+    static final int VAR_PRESSURE = 4;
+    static final int VAR_VISIBILITY = 5;
+    static final int VARIABLE_COUNT = 6;
+
+    // Open Meteo names for each column index above
+    static final String[] VARIABLE_NAMES = {
+        "temperature_2m",
+        "relative_humidity_2m",
+        "wind_speed_10m",
+        "rain",
+        "surface_pressure",
+        "visibility"
+    };
+
+    // Variables the main screen shows (temperature, humidity and wind on the day cards)
+    static final int[] MAIN_VARIABLES = {VAR_TEMPERATURE, VAR_HUMIDITY, VAR_WIND};
+
+    // Variables the detailed day view charts - the main set plus rain
+    // (pressure and visibility are not displayed anywhere, so they are never requested)
+    static final int[] DETAIL_VARIABLES = {VAR_TEMPERATURE, VAR_HUMIDITY, VAR_WIND, VAR_RAIN};
+
+    private ForecastParser() {
+        // Static helpers only
+    }
+
+    /**
+     * Parse a forecast response stream into daily forecasts.
+     *
+     * @param in The response body stream (read once, not closed by this method)
+     * @param today Today's date, used to generate "Today"/"Tomorrow" labels
+     * @param maxDays Maximum number of days to keep (e.g., 7 for the main screen)
+     * @return List of DailyForecast objects in chronological order
+     * @throws IOException If reading fails or the JSON is malformed
+     */
+    static List<DailyForecast> parse(InputStream in, Calendar today, int maxDays) throws IOException {
+        List<List<DailyForecast>> locations = parseBatch(in, today, maxDays);
+        if (locations.size() != 1) {
+            throw new IOException("Expected a single location but got " + locations.size());
+        }
+        return locations.get(0);
+    }
+
+    /**
+     * Parse a forecast response that may cover several locations.
+     *
+     * When the request lists several comma-separated coordinates, Open Meteo
+     * answers with a JSON array holding one forecast object per location,
+     * in the same order as the coordinates. A single-location request
+     * answers with just the object.
+     *
+     * @param in The response body stream (read once, not closed by this method)
+     * @param today Today's date, used to generate "Today"/"Tomorrow" labels
+     * @param maxDays Maximum number of days to keep per location
+     * @return One list of DailyForecast objects per location, in request order
+     * @throws IOException If reading fails or the JSON is malformed
+     */
+    static List<List<DailyForecast>> parseBatch(InputStream in, Calendar today, int maxDays)
+            throws IOException {
+        JsonPullParser parser = new JsonPullParser(in);
+        List<List<DailyForecast>> locations = new ArrayList<>();
+
+        if (parser.peek() == JsonPullParser.Token.BEGIN_ARRAY) {
+            parser.beginArray();
+            while (parser.hasNext()) {
+                locations.add(parseLocation(parser, today, maxDays));
+            }
+            parser.endArray();
+        } else {
+            locations.add(parseLocation(parser, today, maxDays));
+        }
+        return locations;
+    }
+
+    /**
+     * Parse one location's forecast object.
+     */
+    private static List<DailyForecast> parseLocation(JsonPullParser parser, Calendar today, int maxDays)
+            throws IOException {
+        DailyAccumulator accumulator = new DailyAccumulator(maxDays);
+
+        parser.beginObject();
+        while (parser.hasNext()) {
+            String name = parser.nextName();
+            if ("hourly".equals(name)) {
+                readHourly(parser, accumulator);
+            } else if ("utc_offset_seconds".equals(name)) {
+                accumulator.setUtcOffset(parser.nextLong());
+            } else {
+                // Skip metadata such as "hourly_units", "elevation", "timezone"
+                parser.skipValue();
+            }
+        }
+        parser.endObject();
+
+        return accumulator.build(today);
+    }
+
+    /**
+     * Read the "hourly" object, routing each array to the accumulator.
+     */
+    private static void readHourly(JsonPullParser parser, DailyAccumulator accumulator) throws IOException {
+        parser.beginObject();
+        while (parser.hasNext()) {
+            String name = parser.nextName();
+            if ("time".equals(name)) {
+                accumulator.readTimes(parser);
+            } else {
+                int variable = variableIndex(name);
+                if (variable >= 0) {
+                    accumulator.readColumn(parser, variable);
+                } else {
+                    parser.skipValue();
+                }
+            }
+        }
+        parser.endObject();
+    }
+
+    /**
+     * Build the value of the "hourly=" query parameter for a set of variables.
+     *
+     * @param variables Column indexes, e.g. MAIN_VARIABLES
+     * @return Comma-separated Open Meteo names, e.g. "temperature_2m,relative_humidity_2m,wind_speed_10m"
+     */
+    static String hourlyParameter(int[] variables) {
+        StringBuilder names = new StringBuilder();
+        for (int variable : variables) {
+            if (names.length() > 0) {
+                names.append(',');
+            }
+            names.append(VARIABLE_NAMES[variable]);
+        }
+        return names.toString();
+    }
+
+    /**
+     * Map an Open Meteo variable name to our column index.
+     *
+     * @return The column index, or -1 if we don't use this variable
+     */
+    static int variableIndex(String name) {
+        for (int i = 0; i < VARIABLE_COUNT; i++) {
+            if (VARIABLE_NAMES[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Generate a human-readable label for a day based on its offset from today.
+     *
+     * - Offset 0 (today) → "Today"
+     * - Offset 1 (tomorrow) → "Tomorrow"
+     * - Offset 2+ → Formatted date like "Wed 11 19" (day name, month number, day number)
+     *
+     * Labels come from the cached DateTable for the base date.
+     *
+     * @param baseDate The base date to calculate from (typically today's date)
+     * @param offset Number of days from the base date (0 = today, 1 = tomorrow, etc.)
+     * @return A user-friendly label string like "Today", "Tomorrow", or "Wed 11 19"
+     */
+    static String labelForOffset(Calendar baseDate, int offset) {
+        return DateTable.forDay(epochDay(baseDate)).label(offset);
+    }
+
+    /**
+     * Days since 1970-01-01 of a calendar date (ignores the time of day).
+     * Computed from the fields directly - no date string is built or parsed.
+     */
+    static int epochDay(Calendar date) {
+        return HistoricalAggregator.epochDay(date.get(Calendar.YEAR),
+            date.get(Calendar.MONTH) + 1, date.get(Calendar.DAY_OF_MONTH));
+    }
+
+    /**
+     * Running per-day aggregation fed directly by the pull parser.
+     *
+     * Hours arrive in time order, so a new day starts whenever the epoch day
+     * of the timestamp changes. No maps, boxed lists or sorting are needed.
+     */
+    private static final class DailyAccumulator {
+        // Maximum number of days to keep; later hours are skipped
+        private final int maxDays;
+
+        // Location's offset from UTC; unixtime values + offset = local wall-clock seconds
+        private long utcOffsetSeconds = 0;
+        private boolean offsetKnown = false;
+
+        // Per-hour timestamps (see HourlySeries) and the day bucket each hour belongs to.
+        // Until bucketTimes() runs, times holds the values as read (unixtime without offset)
+        private long[] times = new long[192];
+        private int[] rowDay = new int[192];
+        private int rowCount = 0;
+        private boolean timesRead = false;
+        private boolean unixTimes = false;
+        private boolean bucketed = false;
+
+        // Per-day epoch days and the first row of each day
+        private final int[] dayEpochDays;
+        private final int[] dayStart;
+        private int dayCount = 0;
+
+        // Per-variable hourly values (NaN = missing) and how many were read
+        private final double[][] columns = new double[VARIABLE_COUNT][];
+        private final int[] columnLength = new int[VARIABLE_COUNT];
+
+        // Per-day running statistics (sums, counts, highs and lows) of every variable
+        private final DailyStats[] stats;
+
+        // Columns that arrived before the hours were bucketed and still need to be aggregated
+        private final boolean[] deferred = new boolean[VARIABLE_COUNT];
+
+        DailyAccumulator(int maxDays) {
+            this.maxDays = maxDays;
+            this.dayEpochDays = new int[maxDays];
+            this.dayStart = new int[maxDays + 1];
+            this.stats = new DailyStats[maxDays];
+        }
+
+        /**
+         * Record the location's UTC offset. Open Meteo sends it before "hourly";
+         * if the times were already read they are bucketed now.
+         */
+        void setUtcOffset(long seconds) {
+            utcOffsetSeconds = seconds;
+            offsetKnown = true;
+            if (timesRead && !bucketed) {
+                bucketTimes();
+            }
+        }
+
+        /**
+         * Read the "time" array. Accepts unixtime numbers and, for older recordings,
+         * "yyyy-MM-ddTHH:mm" strings (already local time).
+         *
+         * Hours are assigned to day buckets right away unless they are unixtime and
+         * the UTC offset hasn't been seen yet.
+         */
+        void readTimes(JsonPullParser parser) throws IOException {
+            parser.beginArray();
+            while (parser.hasNext()) {
+                long time;
+                if (parser.peek() == JsonPullParser.Token.NUMBER) {
+                    time = parser.nextLong();
+                    unixTimes = true;
+                } else {
+                    String timeString = parser.nextString();
+                    time = HourlySeries.parseTime(timeString);
+                    if (time == Long.MIN_VALUE) {
+                        throw new IOException("Malformed forecast time: " + timeString);
+                    }
+                }
+                if (rowCount == times.length) {
+                    times = Arrays.copyOf(times, rowCount * 2);
+                }
+                times[rowCount++] = time;
+            }
+            parser.endArray();
+            timesRead = true;
+
+            if (offsetKnown || !unixTimes) {
+                bucketTimes();
+            }
+        }
+
+        /**
+         * Convert the read times to local time, assign every hour to a day bucket and
+         * aggregate any columns that showed up before this point.
+         */
+        private void bucketTimes() {
+            long offset = unixTimes ? utcOffsetSeconds : 0;
+            if (rowDay.length < rowCount) {
+                rowDay = new int[rowCount];
+            }
+            int rows = 0;
+            for (; rows < rowCount; rows++) {
+                long time = times[rows] + offset;
+                int epochDay = (int) Math.floorDiv(time, HourlySeries.SECONDS_PER_DAY);
+                boolean newDay = dayCount == 0 || epochDay != dayEpochDays[dayCount - 1];
+                if (newDay && dayCount == maxDays) {
+                    // Past the last day we display - drop the rest
+                    break;
+                }
+                if (newDay) {
+                    dayEpochDays[dayCount] = epochDay;
+                    dayStart[dayCount] = rows;
+                    stats[dayCount] = new DailyStats();
+                    dayCount++;
+                }
+                times[rows] = time;
+                rowDay[rows] = dayCount - 1;
+            }
+            rowCount = rows;
+            dayStart[dayCount] = rowCount;
+            bucketed = true;
+
+            for (int v = 0; v < VARIABLE_COUNT; v++) {
+                if (deferred[v]) {
+                    columnLength[v] = Math.min(columnLength[v], rowCount);
+                    for (int row = 0; row < columnLength[v]; row++) {
+                        accumulate(v, row, columns[v][row]);
+                    }
+                    deferred[v] = false;
+                }
+            }
+        }
+
+        /**
+         * Read one variable array, adding each value straight into its day's statistics.
+         */
+        void readColumn(JsonPullParser parser, int variable) throws IOException {
+            double[] values = new double[bucketed ? Math.max(rowCount, 1) : 192];
+            int length = 0;
+            int index = 0;
+
+            parser.beginArray();
+            while (parser.hasNext()) {
+                double value;
+                if (parser.peek() == JsonPullParser.Token.NULL) {
+                    // Open Meteo uses null for hours without a reading
+                    parser.nextNull();
+                    value = Double.NaN;
+                } else {
+                    value = parser.nextDouble();
+                }
+
+                if (!bucketed || index < rowCount) {
+                    if (length == values.length) {
+                        values = Arrays.copyOf(values, length * 2);
+                    }
+                    values[length++] = value;
+                    if (bucketed) {
+                        accumulate(variable, index, value);
+                    }
+                }
+                index++;
+            }
+            parser.endArray();
+
+            columns[variable] = values;
+            columnLength[variable] = length;
+            deferred[variable] = !bucketed;
+        }
+
+        private void accumulate(int variable, int row, double value) {
+            if (!Double.isNaN(value)) {
+                int day = rowDay[row];
+                stats[day].add(variable, row - dayStart[day], value);
+            }
+        }
+
+        /**
+         * Wrap the time axis and value columns in one HourlySeries for the location.
+         * NaN values (and hours past the end of a short column) are marked missing.
+         */
+        private HourlySeries buildSeries() {
+            double[][] seriesColumns = new double[VARIABLE_COUNT][];
+            BitSet[] missing = new BitSet[VARIABLE_COUNT];
+            for (int v = 0; v < VARIABLE_COUNT; v++) {
+                if (columns[v] == null) {
+                    continue;
+                }
+                double[] values = columns[v].length >= rowCount ? columns[v] : Arrays.copyOf(columns[v], rowCount);
+                BitSet missingHours = new BitSet(rowCount);
+                for (int row = 0; row < rowCount; row++) {
+                    if (row >= columnLength[v] || Double.isNaN(values[row])) {
+                        missingHours.set(row);
+                    }
+                }
+                seriesColumns[v] = values;
+                missing[v] = missingHours;
+            }
+            return new HourlySeries(times, seriesColumns, missing, rowCount);
+        }
+
+        /**
+         * Turn the accumulated statistics into DailyForecast objects.
+         *
+         * Days without a single temperature reading are left out - there is no
+         * average to show on their day card (it would be NaN).
+         */
+        List<DailyForecast> build(Calendar today) throws IOException {
+            if (!timesRead || columns[VAR_TEMPERATURE] == null) {
+                throw new IOException("Forecast response is missing hourly time or temperature data");
+            }
+            if (!bucketed) {
+                // No utc_offset_seconds in the response - unixtime is taken as UTC
+                bucketTimes();
+            }
+
+            // One series for the location; each day is a view of its own hours
+            HourlySeries series = buildSeries();
+            int todayEpochDay = epochDay(today);
+            DateTable dates = DateTable.forDay(todayEpochDay);
+            List<DailyForecast> forecasts = new ArrayList<>(dayCount);
+            for (int day = 0; day < dayCount; day++) {
+                if (stats[day].count(VAR_TEMPERATURE) == 0) {
+                    continue;
+                }
+                String label = dates.label(dayEpochDays[day] - todayEpochDay);
+                forecasts.add(new DailyForecast(label, stats[day],
+                    series.slice(dayStart[day], dayStart[day + 1])));
+            }
+            return forecasts;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.assignment5;
+
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide store of the forecasts the app has loaded, shared by reference
+ * between activities.
+ *
+ * MainActivity used to keep forecasts in its own map and hand the detail screen
+ * a serialized copy of a day through the Intent. Now:
+ * - Every forecast that is loaded (fetched, prefetched or read from a snapshot)
+ *   is published here and gets a new generation number
+ * - The detail screen is started with just (city key, generation, day index)
+ *   and reads the same immutable DailyForecast objects - nothing is copied
+ *   or serialized when a day is opened
+ * - The last GENERATIONS_KEPT generations of each city are kept, so a detail
+ *   screen opened just before a refresh still finds the data it was opened for
+ * - A day the detail screen upgraded to the detailed variables (rain) is kept
+ *   with its entry (see putDetailed()), so reopening it or rotating the screen
+ *   doesn't download it again
+ *
+ * The repository lives as long as the process, not the activity, so a
+ * recreated MainActivity (e.g., after rotation) starts with its forecasts.
+ * If the process was killed, the detail screen falls back to the city's
+ * ForecastSnapshotStore snapshot on disk.
+ */
+final class ForecastRepository {
+
+    private static final String TAG = "ForecastRepository";
+
+    // Generations kept per city (the current one and the one it replaced)
+    private static final int GENERATIONS_KEPT = 2;
+
+    /**
+     * One published forecast of one city. Immutable, except for the upgraded days.
+     */
+    static final class Entry {
+        final City city;
+        final long generation;
+        // One DailyForecast per day, first entry = today (unmodifiable)
+        final List<DailyForecast> forecasts;
+        // Days re-fetched with ForecastParser.DETAIL_VARIABLES, by day index
+        // (null = not upgraded; guarded by the repository)
+        private final DailyForecast[] detailed;
+
+        Entry(City city, long generation, List<DailyForecast> forecasts) {
+            this.city = city;
+            this.generation = generation;
+            this.forecasts = Collections.unmodifiableList(forecasts);
+            this.detailed = new DailyForecast[forecasts.size()];
+        }
+    }
+
+    private static ForecastRepository instance;
+
+    // City key → published entries, newest first
+    private final Map<String, ArrayDeque<Entry>> entries = new HashMap<>();
+    private long nextGeneration = 1;
+
+    ForecastRepository() {
+    }
+
+    /**
+     * Get the process-wide repository.
+     */
+    static synchronized ForecastRepository getInstance() {
+        if (instance == null) {
+            instance = new ForecastRepository();
+        }
+        return instance;
+    }
+
+    /**
+     * Publish a city's forecast as its newest generation.
+     *
+     * @param city The city the forecast is for
+     * @param forecasts The forecast, first entry = today (must not be modified afterwards)
+     * @return The new entry
+     */
+    synchronized Entry publish(City city, List<DailyForecast> forecasts) {
+        Entry entry = new Entry(city, nextGeneration++, forecasts);
+        ArrayDeque<Entry> history = entries.get(city.getKey());
+        if (history == null) {
+            history = new ArrayDeque<>(GENERATIONS_KEPT + 1);
+            entries.put(city.getKey(), history);
+        }
+        history.addFirst(entry);
+        while (history.size() > GENERATIONS_KEPT) {
+            history.removeLast();
+        }
+        return entry;
+    }
+
+    /**
+     * Publish a forecast only if the city has none yet (e.g., a snapshot read
+     * from disk must not replace a forecast that was already fetched).
+     *
+     * @return The new entry, or null if the city already had one
+     */
+    synchronized Entry publishIfAbsent(City city, List<DailyForecast> forecasts) {
+        return latest(city.getKey()) == null ? publish(city, forecasts) : null;
+    }
+
+    /**
+     * The newest forecast of a city.
+     *
+     * @return The entry, or null if nothing was published for the city
+     */
+    synchronized Entry latest(String cityKey) {
+        ArrayDeque<Entry> history = entries.get(cityKey);
+        return history != null ? history.peekFirst() : null;
+    }
+
+    /**
+     * Keep a day of an entry that was re-fetched with the detailed variables.
+     * It is dropped together with the entry's generation.
+     */
+    synchronized void putDetailed(Entry entry, int dayIndex, DailyForecast detailed) {
+        if (dayIndex >= 0 && dayIndex < entry.detailed.length) {
+            entry.detailed[dayIndex] = detailed;
+        }
+    }
+
+    /**
+     * The detailed version of a day of an entry.
+     *
+     * @return The day from putDetailed(), or null if it was not upgraded yet
+     */
+    synchronized DailyForecast detailed(Entry entry, int dayIndex) {
+        return dayIndex >= 0 && dayIndex < entry.detailed.length ? entry.detailed[dayIndex] : null;
+    }
+
+    /**
+     * A specific generation of a city's forecast.
+     *
+     * @return The entry, or null if it was never published in this process or has been dropped
+     */
+    synchronized Entry get(String cityKey, long generation) {
+        ArrayDeque<Entry> history = entries.get(cityKey);
+        if (history != null) {
+            for (Entry entry : history) {
+                if (entry.generation == generation) {
+                    return entry;
+                }
+            }
+        }
+        Log.d(TAG, "Generation " + generation + " of " + cityKey + " is not in memory");
+        return null;
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.assignment5;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * Compact binary snapshots of the last good forecast for each city.
+ *
+ * On a cold start the app used to show placeholder cards until the network
+ * fetch finished. MainActivity now renders the city's snapshot right away
+ * (stale-while-revalidate) and replaces it when the fresh forecast arrives.
+ *
+ * Day labels ("Today", "Tomorrow", "Wed 11 19") are relative, so they are not
+ * stored. Each day is stored with its epoch day (taken from its first hour) and
+ * load() labels it from dayEpochDay - epochDay(today), the same way ForecastParser
+ * does. A parsed forecast isn't necessarily "day 0 = today, no gaps": days without
+ * temperature readings are left out, and in another time zone the city's first day
+ * can be the device's yesterday or tomorrow.
+ *
+ * File format (DataOutputStream), one file per city:
+ *   int magic, int version, long savedAtMillis, int snapshotEpochDay, int dayCount,
+ *   then per day: int dayEpochDay, double averageTempF, byte nullMask, [present averages],
+ *   int hoursLength, the day's hours as HourlySeries.encode() bytes
+ *
+ * The encoded hours hold time deltas and only the readings that exist (missing
+ * hours are a bitmap), instead of a long and a double per hour per variable.
+ */
+final class ForecastSnapshotStore {
+
+    private static final String TAG = "ForecastSnapshotStore";
+
+    // "FSNP" - identifies our files
+    private static final int MAGIC = 0x46534E50;
+
+    // Bump when the file layout changes so old snapshots are ignored
+    private static final int FORMAT_VERSION = 4;
+
+    private ForecastSnapshotStore() {
+    }
+
+    /**
+     * Write a city's forecast snapshot (atomically, via a temp file).
+     *
+     * Each call writes its own temp file, so the prefetcher and a foreground
+     * batch can save the same city at the same time; the last rename wins.
+     * Days without hours can't be placed on a date and are not saved.
+     *
+     * @param directory Directory for snapshots (e.g., new File(getFilesDir(), "forecasts"))
+     * @param cityKey Unique key of the city
+     * @param today The date the forecast was parsed for
+     * @param forecasts The forecast to store, in day order
+     */
+    static void save(File directory, String cityKey, Calendar today, List<DailyForecast> forecasts)
+            throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create snapshot directory " + directory);
+        }
+        File file = fileFor(directory, cityKey);
+        File temp = File.createTempFile(file.getName(), ".tmp", directory);
+        boolean saved = false;
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(System.currentTimeMillis());
+                out.writeInt(ForecastParser.epochDay(today));
+                int dayCount = 0;
+                for (DailyForecast day : forecasts) {
+                    if (hasHours(day)) {
+                        dayCount++;
+                    }
+                }
+                out.writeInt(dayCount);
+                for (DailyForecast day : forecasts) {
+                    if (!hasHours(day)) {
+                        continue;
+                    }
+                    out.writeInt(day.hourlyData.epochDay(0));
+                    out.writeDouble(day.averageTempF);
+                    writeNullable(out, day.averageHumidity, day.averageWindSpeed, day.averageRain);
+                    // A day view encodes only its own hours, not the whole location's series
+                    byte[] hours = day.hourlyData.encode();
+                    out.writeInt(hours.length);
+                    out.write(hours);
+                }
+            }
+            if (!temp.renameTo(file)) {
+                throw new IOException("Could not save forecast snapshot " + file);
+            }
+            saved = true;
+        } finally {
+            if (!saved && !temp.delete()) {
+                Log.w(TAG, "Could not delete " + temp);
+            }
+        }
+    }
+
+    /**
+     * Read a city's snapshot, relabelled for today.
+     *
+     * Days before the city's current day are dropped. At save time the first day
+     * was the city's current day (or later, if it had no readings), so a day is in
+     * the past once its offset from today is below min(0, first day's offset then).
+     *
+     * @param directory Directory for snapshots
+     * @param cityKey Unique key of the city
+     * @param today Today's date
+     * @return The remaining days, or null if there is no usable snapshot
+     */
+    static List<DailyForecast> load(File directory, String cityKey, Calendar today) {
+        File file = fileFor(directory, cityKey);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            in.readLong();  // savedAtMillis (for debugging)
+            int todayEpochDay = ForecastParser.epochDay(today);
+            int snapshotEpochDay = in.readInt();
+            int dayCount = in.readInt();
+            if (todayEpochDay < snapshotEpochDay || dayCount < 0) {
+                // Clock moved backwards (or a corrupt count) - labels can't be trusted
+                return null;
+            }
+
+            DateTable dates = DateTable.forDay(todayEpochDay);
+            List<DailyForecast> forecasts = new ArrayList<>();
+            int firstOffset = 0;
+            for (int i = 0; i < dayCount; i++) {
+                int dayEpochDay = in.readInt();
+                double averageTempF = in.readDouble();
+                Double[] averages = readNullable(in, 3);
+                int hoursLength = in.readInt();
+                if (hoursLength <= 0) {
+                    throw new IOException("Corrupt snapshot");
+                }
+                byte[] hours = new byte[hoursLength];
+                in.readFully(hours);
+                if (i == 0) {
+                    // Offset of the first day from the day the snapshot was taken
+                    firstOffset = Math.min(0, dayEpochDay - snapshotEpochDay);
+                }
+                int offset = dayEpochDay - todayEpochDay;
+                if (offset < firstOffset) {
+                    // Already in the past
+                    continue;
+                }
+                forecasts.add(new DailyForecast(dates.label(offset),
+                    averageTempF, averages[0], averages[1], averages[2], HourlySeries.decode(hours)));
+            }
+            return forecasts.isEmpty() ? null : forecasts;
+        } catch (IOException | IllegalArgumentException e) {
+            Log.w(TAG, "Could not read forecast snapshot " + file, e);
+            return null;
+        }
+    }
+
+    private static boolean hasHours(DailyForecast day) {
+        return day.hourlyData != null && day.hourlyData.size() > 0;
+    }
+
+    private static File fileFor(File directory, String cityKey) {
+        return new File(directory, cityKey.replaceAll("[^A-Za-z0-9._-]", "_") + ".snap");
+    }
+
+    /**
+     * Write a bit mask of which values are null, followed by the non-null values.
+     */
+    private static void writeNullable(DataOutputStream out, Double... values) throws IOException {
+        int mask = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                mask |= 1 << i;
+            }
+        }
+        out.writeByte(mask);
+        for (Double value : values) {
+            if (value != null) {
+                out.writeDouble(value);
+            }
+        }
+    }
+
+    private static Double[] readNullable(DataInputStream in, int count) throws IOException {
+        int mask = in.readUnsignedByte();
+        Double[] values = new Double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = (mask & (1 << i)) != 0 ? null : in.readDouble();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,383 @@
+package com.example.assignment5;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Single-pass streaming aggregator for Open Meteo archive (historical) responses.
+ *
+ * The archive API returns hourly temperatures in Celsius as two parallel arrays.
+ * We request timeformat=unixtime, so times are epoch seconds plus a UTC offset
+ * (0 for the UTC archive requests):
+ * {
+ *   "utc_offset_seconds": 0,
+ *   "hourly": {
+ *     "time": [1705276800, 1705280400, ...],
+ *     "temperature_2m": [7.3, 6.9, ...]
+ *   }
+ * }
+ *
+ * Rows come in time order, so each day is a contiguous run of hours. This class:
+ * 1. Reads the "time" array and records only the runs (epoch day, hour count),
+ *    bucketing each hour by integer division - no per-row strings
+ *    ("yyyy-MM-ddTHH:mm" strings are still accepted for older recordings)
+ * 2. Reads the "temperature_2m" array value by value, adding to the current run's running mean (StreamingMean)
+ * 3. Closes each day as soon as its last hour arrives and hands the daily mean,
+ *    minimum and maximum (in Fahrenheit) to a DaySink
+ *
+ * There is no intermediate map, no boxed List<Double> per day and no sort.
+ * Memory is proportional to the number of days, not the number of hours,
+ * so multi-year windows (tens of thousands of hours) cost a few KB.
+ */
+final class HistoricalAggregator {
+
+    /**
+     * Receives one completed day at a time, in chronological order.
+     */
+    interface DaySink {
+        /**
+         * @param epochDay Days since 1970-01-01 (see dateString() for "yyyy-MM-dd")
+         * @param dayOfYear Day of year (1-366)
+         * @param meanTempF Average of the valid hourly temperatures for the day, in Fahrenheit
+         * @param minTempF Lowest hourly temperature of the day, in Fahrenheit
+         * @param maxTempF Highest hourly temperature of the day, in Fahrenheit
+         * @param validHours Number of hours that had a temperature (24 for a complete UTC day)
+         */
+        void onDay(int epochDay, int dayOfYear, double meanTempF, double minTempF, double maxTempF,
+                   int validHours) throws IOException;
+    }
+
+    // Marks a run of hours whose time couldn't be read (same value epochDay() returns)
+    private static final int INVALID_DAY = Integer.MIN_VALUE;
+
+    private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+    // Cumulative days before each month in a non-leap year (index 0 = January)
+    private static final int[] DAYS_BEFORE_MONTH = {
+        0, 31, 59, 90, 120, 151, 181, 212, 243, 273, 304, 334
+    };
+
+    // Offset from UTC of the response's times (utc_offset_seconds)
+    private long utcOffsetSeconds = 0;
+
+    // Runs of consecutive hours sharing the same day (INVALID_DAY for unparseable times)
+    private int[] runEpochDay = new int[128];
+    private int[] runLength = new int[128];
+    private int runCount = 0;
+    private int hourCount = 0;
+    private boolean timesRead = false;
+
+    // Temperatures seen before the time axis (only if the API reorders keys)
+    private double[] pendingTemps = null;
+    private int pendingCount = 0;
+
+    // Current position while walking the temperature column
+    private int currentRun = 0;
+    private int hourInRun = 0;
+    // Running mean of the current day (reused for every day, so nothing is allocated per day)
+    private final StreamingMean runMean = new StreamingMean();
+    private double runMin = Double.POSITIVE_INFINITY;
+    private double runMax = Double.NEGATIVE_INFINITY;
+
+    // Counters for logging
+    private int validPoints = 0;
+    private int invalidPoints = 0;
+    private int daysEmitted = 0;
+    private int temperatureCount = 0;
+
+    private final DaySink sink;
+
+    private HistoricalAggregator(DaySink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Stream an archive response and emit one daily mean per date.
+     *
+     * @param in The response body stream (read once, not closed by this method)
+     * @param sink Receives each completed day in chronological order
+     * @return Summary of how many hours and days were processed
+     * @throws IOException If reading fails, the JSON is malformed, or no valid days are found
+     */
+    static Summary aggregate(InputStream in, DaySink sink) throws IOException {
+        HistoricalAggregator aggregator = new HistoricalAggregator(sink);
+        JsonPullParser parser = new JsonPullParser(in);
+
+        parser.beginObject();
+        while (parser.hasNext()) {
+            String name = parser.nextName();
+            if ("hourly".equals(name)) {
+                aggregator.readHourly(parser);
+            } else if ("utc_offset_seconds".equals(name)) {
+                if (aggregator.timesRead) {
+                    throw new IOException("utc_offset_seconds arrived after the hourly times");
+                }
+                aggregator.utcOffsetSeconds = parser.nextLong();
+            } else {
+                parser.skipValue();
+            }
+        }
+        parser.endObject();
+
+        if (aggregator.hourCount == 0 || aggregator.temperatureCount == 0) {
+            throw new IOException("Empty data arrays from API");
+        }
+        if (aggregator.daysEmitted == 0) {
+            throw new IOException("No valid dates found in API response");
+        }
+        return new Summary(aggregator.validPoints, aggregator.invalidPoints, aggregator.daysEmitted,
+            aggregator.hourCount, aggregator.temperatureCount);
+    }
+
+    private void readHourly(JsonPullParser parser) throws IOException {
+        parser.beginObject();
+        while (parser.hasNext()) {
+            String name = parser.nextName();
+            if ("time".equals(name)) {
+                readTimes(parser);
+            } else if ("temperature_2m".equals(name)) {
+                readTemperatures(parser);
+            } else {
+                parser.skipValue();
+            }
+        }
+        parser.endObject();
+    }
+
+    /**
+     * Record the day runs from the time axis.
+     * Invalid times form runs with INVALID_DAY so their hours are skipped.
+     */
+    private void readTimes(JsonPullParser parser) throws IOException {
+        parser.beginArray();
+        while (parser.hasNext()) {
+            int epochDay;
+            JsonPullParser.Token token = parser.peek();
+            if (token == JsonPullParser.Token.NUMBER) {
+                epochDay = (int) Math.floorDiv(parser.nextLong() + utcOffsetSeconds, SECONDS_PER_DAY);
+            } else if (token == JsonPullParser.Token.STRING) {
+                epochDay = epochDay(parser.nextString());
+            } else {
+                parser.skipValue();
+                epochDay = INVALID_DAY;
+            }
+
+            if (runCount > 0 && runEpochDay[runCount - 1] == epochDay) {
+                runLength[runCount - 1]++;
+            } else {
+                if (runCount == runLength.length) {
+                    int size = runCount * 2;
+                    runEpochDay = Arrays.copyOf(runEpochDay, size);
+                    runLength = Arrays.copyOf(runLength, size);
+                }
+                runEpochDay[runCount] = epochDay;
+                runLength[runCount] = 1;
+                runCount++;
+            }
+            hourCount++;
+        }
+        parser.endArray();
+        timesRead = true;
+
+        // Replay temperatures that arrived before the time axis
+        for (int i = 0; i < pendingCount; i++) {
+            addTemperature(pendingTemps[i]);
+        }
+        pendingTemps = null;
+        finishPartialRun();
+    }
+
+    private void readTemperatures(JsonPullParser parser) throws IOException {
+        parser.beginArray();
+        while (parser.hasNext()) {
+            double celsius;
+            if (parser.peek() == JsonPullParser.Token.NULL) {
+                parser.nextNull();
+                celsius = Double.NaN;
+            } else {
+                celsius = parser.nextDouble();
+            }
+            temperatureCount++;
+
+            if (timesRead) {
+                addTemperature(celsius);
+            } else {
+                // Unusual key order - keep primitives until the time axis shows up
+                if (pendingTemps == null) {
+                    pendingTemps = new double[2048];
+                } else if (pendingCount == pendingTemps.length) {
+                    pendingTemps = Arrays.copyOf(pendingTemps, pendingCount * 2);
+                }
+                pendingTemps[pendingCount++] = celsius;
+            }
+        }
+        parser.endArray();
+        if (timesRead) {
+            finishPartialRun();
+        }
+    }
+
+    /**
+     * Add one hourly Celsius reading to the current day, closing the day on its last hour.
+     */
+    private void addTemperature(double celsius) throws IOException {
+        if (currentRun >= runCount) {
+            // More temperatures than time entries - ignore the extra values
+            return;
+        }
+
+        boolean validTime = runEpochDay[currentRun] != INVALID_DAY;
+        if (!validTime || Double.isNaN(celsius) || Double.isInfinite(celsius)) {
+            invalidPoints++;
+        } else {
+            // Archive API returns temperature in Celsius, convert to Fahrenheit
+            double fahrenheit = (celsius * 9.0 / 5.0) + 32.0;
+            runMean.add(fahrenheit);
+            runMin = Math.min(runMin, fahrenheit);
+            runMax = Math.max(runMax, fahrenheit);
+            validPoints++;
+        }
+
+        hourInRun++;
+        if (hourInRun == runLength[currentRun]) {
+            closeRun();
+        }
+    }
+
+    /**
+     * If the temperature column ended mid-day, emit what we have for that day.
+     */
+    private void finishPartialRun() throws IOException {
+        if (hourInRun > 0 && currentRun < runCount) {
+            closeRun();
+        }
+    }
+
+    private void closeRun() throws IOException {
+        int epochDay = runEpochDay[currentRun];
+        int runValid = (int) runMean.count();
+        if (runValid > 0 && epochDay != INVALID_DAY) {
+            sink.onDay(epochDay, DateTable.dayOfYearOf(epochDay), runMean.mean(),
+                runMin, runMax, runValid);
+            daysEmitted++;
+        }
+        currentRun++;
+        hourInRun = 0;
+        runMean.reset();
+        runMin = Double.POSITIVE_INFINITY;
+        runMax = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Compute the day of year directly from the characters of "yyyy-MM-dd...".
+     *
+     * @return Day of year (1-366), or -1 if the date is malformed
+     */
+    static int dayOfYear(String date) {
+        int year = digits(date, 0, 4);
+        int month = digits(date, 5, 7);
+        int day = digits(date, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31
+                || date.charAt(4) != '-' || date.charAt(7) != '-') {
+            return -1;
+        }
+        boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+        return DAYS_BEFORE_MONTH[month - 1] + day + (leap && month > 2 ? 1 : 0);
+    }
+
+    /**
+     * Convert a "yyyy-MM-dd" date to days since 1970-01-01 (arithmetic, no Calendar).
+     *
+     * @param date Date string (only the first 10 characters are used)
+     * @return The epoch day, or Integer.MIN_VALUE if the date is malformed
+     */
+    static int epochDay(String date) {
+        if (date == null || date.length() < 10 || dayOfYear(date) < 0) {
+            return Integer.MIN_VALUE;
+        }
+        return epochDay(digits(date, 0, 4), digits(date, 5, 7), digits(date, 8, 10));
+    }
+
+    /**
+     * Convert a calendar date to days since 1970-01-01 (arithmetic, no Calendar).
+     *
+     * @param year Full year, e.g. 2024
+     * @param month Month, 1-12
+     * @param day Day of month, 1-31
+     */
+    static int epochDay(int year, int month, int day) {
+        // Days-from-civil: count from March so the leap day is the last day of the year
+        int y = month <= 2 ? year - 1 : year;
+        int era = y / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfShiftedYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfShiftedYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * Convert days since 1970-01-01 back to a "yyyy-MM-dd" date (inverse of epochDay()).
+     */
+    static String dateString(int epochDay) {
+        int date = civilDate(epochDay);
+        int year = date / 10000;
+        int month = date / 100 % 100;
+        int day = date % 100;
+        char[] out = {
+            (char) ('0' + year / 1000 % 10), (char) ('0' + year / 100 % 10),
+            (char) ('0' + year / 10 % 10), (char) ('0' + year % 10), '-',
+            (char) ('0' + month / 10), (char) ('0' + month % 10), '-',
+            (char) ('0' + day / 10), (char) ('0' + day % 10)
+        };
+        return new String(out);
+    }
+
+    /**
+     * Calendar date of days since 1970-01-01, packed as year * 10000 + month * 100 + day
+     * (e.g. 20240115), so callers can pick the fields without building a string.
+     */
+    static int civilDate(int epochDay) {
+        int z = epochDay + 719468;
+        int era = (z >= 0 ? z : z - 146096) / 146097;
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfShiftedYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfShiftedYear + 2) / 153;
+        int day = dayOfShiftedYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth + (shiftedMonth < 10 ? 3 : -9);
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 10000 + month * 100 + day;
+    }
+
+    private static int digits(String s, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Counts describing one aggregation run (used for logging).
+     */
+    static final class Summary {
+        final int validPoints;
+        final int invalidPoints;
+        final int days;
+        final int timeCount;
+        final int temperatureCount;
+
+        Summary(int validPoints, int invalidPoints, int days, int timeCount, int temperatureCount) {
+            this.validPoints = validPoints;
+            this.invalidPoints = invalidPoints;
+            this.days = days;
+            this.timeCount = timeCount;
+            this.temperatureCount = temperatureCount;
+        }
+    }
+}
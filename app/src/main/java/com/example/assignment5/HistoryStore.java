@@ -0,0 +1,364 @@
+package com.example.assignment5;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-city persistent store of daily historical temperatures, kept as a
+ * memory-mapped columnar file.
+ *
+ * Training used to download the full 120-day archive window every time and
+ * keep the result only briefly as a List of objects. This store keeps the
+ * days we already have on disk and remembers the last fully synced date,
+ * so a sync only asks the archive for the days since then:
+ * 1. evictBefore() drops days that fell out of the training window
+ * 2. missingFrom() tells the caller which date to request from
+ * 3. add() appends each downloaded day
+ * 4. save() publishes the new row count and flushes the file
+ *
+ * Readers (training, logging) call scan() with a DayVisitor. Rows are read
+ * straight from the mapped buffer into primitive parameters - no objects are
+ * allocated per day and the data lives in the page cache, not the Java heap,
+ * so years of history per city cost the heap nothing.
+ *
+ * Only complete days (all 24 UTC hours present) advance the synced date.
+ * The archive publishes recent days with a delay, so a partial day is kept
+ * as provisional and replaced on the next sync.
+ *
+ * File layout (big-endian):
+ *   header (HEADER_BYTES): magic, version, capacity, count, lastSyncedDay
+ *   then one column per field, each `capacity` entries long:
+ *   - epochDay   int     days since 1970-01-01, ascending
+ *   - meanTempF  double  daily mean temperature
+ *   - minTempF   float   daily minimum temperature
+ *   - maxTempF   float   daily maximum temperature
+ *   - dayOfYear  short   1-366 (the regression x value)
+ *   - validHours byte    hours with data (24 = complete UTC day)
+ * When the file is full it is rewritten with twice the capacity.
+ *
+ * Rows are only ever appended in place past the published count. Anything that
+ * moves existing rows (growing, evicting) writes a complete new file next to the
+ * old one and renames it over it, so a crash leaves either the old or the new
+ * file, never half-shifted rows.
+ */
+final class HistoryStore {
+
+    private static final String TAG = "HistoryStore";
+
+    // "HIST" - identifies our files
+    private static final int MAGIC = 0x48495354;
+
+    // Bump when the file layout changes so old files are ignored
+    private static final int FORMAT_VERSION = 2;
+
+    private static final int HEADER_BYTES = 32;
+    private static final int OFFSET_CAPACITY = 8;
+    private static final int OFFSET_COUNT = 12;
+    private static final int OFFSET_LAST_SYNCED = 16;
+
+    // Bytes per row across all columns (4 + 8 + 4 + 4 + 2 + 1)
+    private static final int ROW_BYTES = 23;
+
+    // Rows allocated for a new file (a little over a year of days)
+    private static final int INITIAL_CAPACITY = 512;
+
+    // A complete day in the UTC archive response
+    static final int HOURS_PER_DAY = 24;
+
+    // Sentinel for "nothing synced yet"
+    static final int NEVER_SYNCED = Integer.MIN_VALUE;
+
+    // One instance per file, so readers and the syncing thread share one mapping
+    private static final Map<String, HistoryStore> OPEN_STORES = new HashMap<>();
+
+    /**
+     * Receives one stored day at a time, oldest first.
+     */
+    interface DayVisitor {
+        void visit(int epochDay, int dayOfYear, double meanTempF, float minTempF, float maxTempF,
+                   int validHours);
+    }
+
+    private final File file;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int count = 0;
+
+    // Last day up to which the store is complete (NEVER_SYNCED if none)
+    private int lastSyncedDay = NEVER_SYNCED;
+
+    private HistoryStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Open the store for one city, mapping its file (created if missing).
+     *
+     * @param directory Directory for history files (e.g., new File(getFilesDir(), "history"))
+     * @param cityKey Unique key of the city (see MainActivity.getCityKey())
+     * @throws IOException If the file cannot be created or mapped
+     */
+    static HistoryStore open(File directory, String cityKey) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w(TAG, "Could not create history directory " + directory);
+        }
+        File file = new File(directory, fileNameFor(cityKey));
+        synchronized (OPEN_STORES) {
+            HistoryStore store = OPEN_STORES.get(file.getPath());
+            if (store == null) {
+                store = new HistoryStore(file);
+                store.map();
+                OPEN_STORES.put(file.getPath(), store);
+            }
+            return store;
+        }
+    }
+
+    /**
+     * Make a file-name-safe name from a city key (e.g., "Austin_30.28_-97.76").
+     */
+    static String fileNameFor(String cityKey) {
+        return cityKey.replaceAll("[^A-Za-z0-9._-]", "_") + ".hist";
+    }
+
+    private void map() throws IOException {
+        if (file.isFile() && file.length() >= HEADER_BYTES) {
+            buffer = mapFile(file, file.length());
+            if (buffer.getInt(0) == MAGIC && buffer.getInt(4) == FORMAT_VERSION
+                    && file.length() == fileBytes(buffer.getInt(OFFSET_CAPACITY))) {
+                capacity = buffer.getInt(OFFSET_CAPACITY);
+                count = Math.min(buffer.getInt(OFFSET_COUNT), capacity);
+                lastSyncedDay = buffer.getInt(OFFSET_LAST_SYNCED);
+                return;
+            }
+            // A damaged or old-format file only costs us a full re-sync
+            Log.d(TAG, "Ignoring unreadable history file " + file);
+        }
+        capacity = INITIAL_CAPACITY;
+        buffer = createFile(file, capacity);
+        count = 0;
+        lastSyncedDay = NEVER_SYNCED;
+        writeHeader();
+    }
+
+    private static long fileBytes(int capacity) {
+        return HEADER_BYTES + (long) capacity * ROW_BYTES;
+    }
+
+    private static MappedByteBuffer mapFile(File file, long size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+             FileChannel channel = raf.getChannel()) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static MappedByteBuffer createFile(File file, int capacity) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(0);
+            raf.setLength(fileBytes(capacity));
+        }
+        MappedByteBuffer mapped = mapFile(file, fileBytes(capacity));
+        mapped.putInt(0, MAGIC);
+        mapped.putInt(4, FORMAT_VERSION);
+        mapped.putInt(OFFSET_CAPACITY, capacity);
+        return mapped;
+    }
+
+    // Column start offsets for the current capacity
+    private int dayColumn() {
+        return HEADER_BYTES;
+    }
+
+    private int meanColumn() {
+        return dayColumn() + capacity * 4;
+    }
+
+    private int minColumn() {
+        return meanColumn() + capacity * 8;
+    }
+
+    private int maxColumn() {
+        return minColumn() + capacity * 4;
+    }
+
+    private int dayOfYearColumn() {
+        return maxColumn() + capacity * 4;
+    }
+
+    private int hoursColumn() {
+        return dayOfYearColumn() + capacity * 2;
+    }
+
+    private void writeHeader() {
+        buffer.putInt(OFFSET_COUNT, count);
+        buffer.putInt(OFFSET_LAST_SYNCED, lastSyncedDay);
+    }
+
+    /**
+     * Publish the row count and synced date, and flush the mapping to disk.
+     */
+    synchronized void save() {
+        writeHeader();
+        buffer.force();
+    }
+
+    /**
+     * Drop days before the start of the training window.
+     *
+     * The remaining rows are written to a new file that replaces the old one
+     * (see rewrite()), so the rows on disk are never half-shifted.
+     *
+     * @param firstDay First epoch day to keep
+     * @return Number of days evicted
+     * @throws IOException If the file could not be rewritten (the store is unchanged)
+     */
+    synchronized int evictBefore(int firstDay) throws IOException {
+        int keepFrom = 0;
+        while (keepFrom < count && buffer.getInt(dayColumn() + keepFrom * 4) < firstDay) {
+            keepFrom++;
+        }
+        if (keepFrom > 0) {
+            rewrite(capacity, keepFrom);
+        }
+        return keepFrom;
+    }
+
+    /**
+     * First day that still has to be downloaded for the window [windowStart, ...].
+     *
+     * Also discards provisional (incomplete) days after the synced date,
+     * since the download starting here will replace them.
+     *
+     * @param windowStart First epoch day of the training window
+     */
+    synchronized int missingFrom(int windowStart) {
+        while (count > 0 && buffer.getInt(dayColumn() + (count - 1) * 4) > lastSyncedDay) {
+            count--;
+        }
+        if (lastSyncedDay == NEVER_SYNCED || lastSyncedDay < windowStart) {
+            return windowStart;
+        }
+        return lastSyncedDay + 1;
+    }
+
+    /**
+     * Append one downloaded day. Days must arrive in ascending order.
+     * The row is persisted by the next save().
+     *
+     * @param day Days since 1970-01-01
+     * @param meanTempF Daily mean temperature in Fahrenheit
+     * @param minTempF Daily minimum temperature in Fahrenheit
+     * @param maxTempF Daily maximum temperature in Fahrenheit
+     * @param validHours Hours with data; fewer than HOURS_PER_DAY marks the day provisional
+     * @throws IOException If the file had to grow and could not be rewritten
+     */
+    synchronized void add(int day, double meanTempF, double minTempF, double maxTempF,
+                          int validHours) throws IOException {
+        int lastDay = count > 0 ? buffer.getInt(dayColumn() + (count - 1) * 4) : Integer.MIN_VALUE;
+        if (day == Integer.MIN_VALUE || day <= lastDay) {
+            return;
+        }
+        if (count == capacity) {
+            // Columns are at capacity-dependent offsets, so growing rewrites the file
+            rewrite(capacity * 2, 0);
+        }
+        buffer.putInt(dayColumn() + count * 4, day);
+        buffer.putDouble(meanColumn() + count * 8, meanTempF);
+        buffer.putFloat(minColumn() + count * 4, (float) minTempF);
+        buffer.putFloat(maxColumn() + count * 4, (float) maxTempF);
+        buffer.putShort(dayOfYearColumn() + count * 2, (short) DateTable.dayOfYearOf(day));
+        buffer.put(hoursColumn() + count, (byte) Math.min(validHours, Byte.MAX_VALUE));
+        count++;
+        // Only an unbroken run of complete days moves the synced date forward:
+        // once a provisional day is stored, later days stay provisional too
+        boolean previousSynced = count == 1 || lastDay <= lastSyncedDay;
+        if (validHours >= HOURS_PER_DAY && previousSynced) {
+            lastSyncedDay = day;
+        }
+    }
+
+    /**
+     * Write rows [keepFrom, count) to a new file with the given capacity, then
+     * rename it over the current file.
+     *
+     * The new file is complete and flushed before the rename, and the rename
+     * replaces the old file in one step, so a crash at any point leaves a
+     * readable file. If anything fails, the store keeps its current mapping.
+     */
+    private void rewrite(int newCapacity, int keepFrom) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        MappedByteBuffer rewritten = createFile(temp, newCapacity);
+        int newMean = HEADER_BYTES + newCapacity * 4;
+        int newMin = newMean + newCapacity * 8;
+        int newMax = newMin + newCapacity * 4;
+        int newDayOfYear = newMax + newCapacity * 4;
+        int newHours = newDayOfYear + newCapacity * 2;
+        int remaining = count - keepFrom;
+        for (int i = 0; i < remaining; i++) {
+            int from = i + keepFrom;
+            rewritten.putInt(HEADER_BYTES + i * 4, buffer.getInt(dayColumn() + from * 4));
+            rewritten.putDouble(newMean + i * 8, buffer.getDouble(meanColumn() + from * 8));
+            rewritten.putFloat(newMin + i * 4, buffer.getFloat(minColumn() + from * 4));
+            rewritten.putFloat(newMax + i * 4, buffer.getFloat(maxColumn() + from * 4));
+            rewritten.putShort(newDayOfYear + i * 2, buffer.getShort(dayOfYearColumn() + from * 2));
+            rewritten.put(newHours + i, buffer.get(hoursColumn() + from));
+        }
+        rewritten.putInt(OFFSET_COUNT, remaining);
+        rewritten.putInt(OFFSET_LAST_SYNCED, lastSyncedDay);
+        rewritten.force();
+        if (!temp.renameTo(file)) {
+            throw new IOException("Could not rewrite history file " + file);
+        }
+        buffer = rewritten;
+        capacity = newCapacity;
+        count = remaining;
+    }
+
+    /**
+     * Visit every stored day, oldest first, without allocating.
+     */
+    void scan(DayVisitor visitor) {
+        scan(0, Integer.MAX_VALUE, visitor);
+    }
+
+    /**
+     * Visit the stored days with index in [from, to), oldest first, without allocating.
+     */
+    synchronized void scan(int from, int to, DayVisitor visitor) {
+        int end = Math.min(to, count);
+        for (int i = Math.max(0, from); i < end; i++) {
+            visitor.visit(buffer.getInt(dayColumn() + i * 4),
+                buffer.getShort(dayOfYearColumn() + i * 2),
+                buffer.getDouble(meanColumn() + i * 8),
+                buffer.getFloat(minColumn() + i * 4),
+                buffer.getFloat(maxColumn() + i * 4),
+                buffer.get(hoursColumn() + i));
+        }
+    }
+
+    /**
+     * Save and forget this store, so the next open() maps the file again.
+     */
+    void close() {
+        save();
+        synchronized (OPEN_STORES) {
+            OPEN_STORES.remove(file.getPath());
+        }
+    }
+
+    synchronized int lastSyncedDay() {
+        return lastSyncedDay;
+    }
+
+    synchronized int size() {
+        return count;
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.assignment5;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.Locale;
+
+/**
+ * Hourly weather data stored by column instead of one object per hour.
+ *
+ * Each hour used to be an HourlyWeatherData object with a time String and
+ * five boxed Doubles, so a 7-day forecast allocated well over a thousand small
+ * objects per refresh. A series instead holds:
+ * - A long[] of hour timestamps (local wall-clock seconds since 1970-01-01T00:00,
+ *   the time zone the API was asked for, so day and hour fall out by integer division)
+ * - One double[] per variable (indexed by ForecastParser.VAR_*), or null if the
+ *   response didn't contain that variable
+ * - One BitSet per variable marking the hours without a reading
+ *
+ * slice() returns a view that shares the arrays, so every DailyForecast of a
+ * location points into the same series without copying. Series are immutable
+ * once built, so views can be shared between threads and activities
+ * (DetailedWeatherActivity reads them through the ForecastRepository).
+ *
+ * encode() writes a series as one compact byte array (ForecastSnapshotStore
+ * keeps each day's hours that way, which is what the detail screen reads after
+ * the process was killed). Encoding a view writes only the hours it covers.
+ */
+final class HourlySeries {
+
+    // First byte of encode() output; bump when the layout changes
+    private static final byte ENCODING_VERSION = 1;
+
+    static final int SECONDS_PER_HOUR = 60 * 60;
+    static final int SECONDS_PER_DAY = 24 * SECONDS_PER_HOUR;
+
+    // Backing arrays, shared by all views of the same series
+    private final long[] times;
+    private final double[][] columns;
+    private final BitSet[] missing;
+
+    // The range of the backing arrays this series covers
+    private final int offset;
+    private final int size;
+
+    /**
+     * @param times Hour timestamps, ascending (see class comment)
+     * @param columns Values per variable, indexed by ForecastParser.VAR_*; null = variable not present
+     * @param missing Hours without a reading per variable (null where the column is null)
+     * @param size Number of hours (arrays may be longer)
+     */
+    HourlySeries(long[] times, double[][] columns, BitSet[] missing, int size) {
+        this(times, columns, missing, 0, size);
+    }
+
+    private HourlySeries(long[] times, double[][] columns, BitSet[] missing, int offset, int size) {
+        this.times = times;
+        this.columns = columns;
+        this.missing = missing;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    /**
+     * Number of hours in this series.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Timestamp of an hour (local wall-clock seconds since 1970-01-01T00:00).
+     */
+    long time(int hour) {
+        return times[offset + hour];
+    }
+
+    /**
+     * Days since 1970-01-01 of an hour (the same numbering as HistoricalAggregator.epochDay()).
+     */
+    int epochDay(int hour) {
+        return (int) Math.floorDiv(time(hour), SECONDS_PER_DAY);
+    }
+
+    /**
+     * Hour of day (0-23) of an hour.
+     */
+    int hourOfDay(int hour) {
+        return Math.floorMod(time(hour), SECONDS_PER_DAY) / SECONDS_PER_HOUR;
+    }
+
+    /**
+     * Date of an hour in "yyyy-MM-dd" format.
+     */
+    String date(int hour) {
+        return HistoricalAggregator.dateString(epochDay(hour));
+    }
+
+    /**
+     * Time of an hour in the API's format, e.g. "2024-01-15T14:00".
+     */
+    String timeString(int hour) {
+        long secondsOfDay = Math.floorMod(time(hour), SECONDS_PER_DAY);
+        return date(hour) + String.format(Locale.US, "T%02d:%02d",
+            secondsOfDay / SECONDS_PER_HOUR, secondsOfDay % SECONDS_PER_HOUR / 60);
+    }
+
+    /**
+     * Whether the response contained this variable at all.
+     */
+    boolean has(int variable) {
+        return columns[variable] != null;
+    }
+
+    /**
+     * Whether an hour has a reading for this variable.
+     */
+    boolean isPresent(int variable, int hour) {
+        return columns[variable] != null && !missing[variable].get(offset + hour);
+    }
+
+    /**
+     * Value of a variable at an hour.
+     *
+     * @return The value, or NaN if there is no reading (see isPresent())
+     */
+    double value(int variable, int hour) {
+        return isPresent(variable, hour) ? columns[variable][offset + hour] : Double.NaN;
+    }
+
+    /**
+     * View of the hours [from, to) sharing this series' arrays (no copying).
+     */
+    HourlySeries slice(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("slice(" + from + ", " + to + ") of " + size + " hours");
+        }
+        return new HourlySeries(times, columns, missing, offset + from, to - from);
+    }
+
+    /**
+     * Encode this series' hours as a compact byte array (decode() reverses it).
+     *
+     * Layout (big-endian):
+     *   byte version, int hourCount, byte columnMask (variables present),
+     *   long firstTime, then per later hour: int seconds since the previous hour,
+     *   then per present variable: int bitmapWords, long[] missing-hour bitmap,
+     *   double per hour that has a reading (missing hours take no space)
+     */
+    byte[] encode() {
+        int columnMask = 0;
+        int bytes = 1 + 4 + 1 + (size > 0 ? 8 + (size - 1) * 4 : 0);
+        long[][] bitmaps = new long[columns.length][];
+        for (int v = 0; v < columns.length; v++) {
+            if (columns[v] != null) {
+                BitSet missingHours = missing[v].get(offset, offset + size);
+                columnMask |= 1 << v;
+                bitmaps[v] = missingHours.toLongArray();
+                bytes += 4 + bitmaps[v].length * 8 + (size - missingHours.cardinality()) * 8;
+            }
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(bytes);
+        out.put(ENCODING_VERSION);
+        out.putInt(size);
+        out.put((byte) columnMask);
+        if (size > 0) {
+            out.putLong(times[offset]);
+            for (int i = 1; i < size; i++) {
+                out.putInt((int) (times[offset + i] - times[offset + i - 1]));
+            }
+        }
+        for (int v = 0; v < columns.length; v++) {
+            if (columns[v] == null) {
+                continue;
+            }
+            out.putInt(bitmaps[v].length);
+            for (long word : bitmaps[v]) {
+                out.putLong(word);
+            }
+            for (int i = 0; i < size; i++) {
+                if (!missing[v].get(offset + i)) {
+                    out.putDouble(columns[v][offset + i]);
+                }
+            }
+        }
+        return out.array();
+    }
+
+    /**
+     * Rebuild a series from encode() output.
+     *
+     * @throws IllegalArgumentException If the bytes are not a series in this encoding
+     */
+    static HourlySeries decode(byte[] bytes) {
+        try {
+            ByteBuffer in = ByteBuffer.wrap(bytes);
+            if (in.get() != ENCODING_VERSION) {
+                throw new IllegalArgumentException("Unknown hourly series encoding");
+            }
+            int size = in.getInt();
+            int columnMask = in.get() & 0xFF;
+            // Check counts against the bytes left before allocating, so corrupt input
+            // is rejected instead of asking for a huge array (each hour takes >= 4 bytes)
+            if (size < 0 || size > in.remaining() / 4) {
+                throw new IllegalArgumentException("Invalid hourly series size " + size);
+            }
+            long[] times = new long[size];
+            if (size > 0) {
+                times[0] = in.getLong();
+                for (int i = 1; i < size; i++) {
+                    times[i] = times[i - 1] + in.getInt();
+                }
+            }
+            double[][] columns = new double[ForecastParser.VARIABLE_COUNT][];
+            BitSet[] missing = new BitSet[ForecastParser.VARIABLE_COUNT];
+            for (int v = 0; v < ForecastParser.VARIABLE_COUNT; v++) {
+                if ((columnMask & (1 << v)) == 0) {
+                    continue;
+                }
+                int wordCount = in.getInt();
+                if (wordCount < 0 || wordCount > in.remaining() / 8) {
+                    throw new IllegalArgumentException("Invalid missing-hour bitmap length " + wordCount);
+                }
+                long[] words = new long[wordCount];
+                for (int w = 0; w < words.length; w++) {
+                    words[w] = in.getLong();
+                }
+                missing[v] = BitSet.valueOf(words);
+                columns[v] = new double[size];
+                for (int i = 0; i < size; i++) {
+                    columns[v][i] = missing[v].get(i) ? Double.NaN : in.getDouble();
+                }
+            }
+            return new HourlySeries(times, columns, missing, size);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated hourly series", e);
+        }
+    }
+
+    /**
+     * Convert an API time string to a timestamp.
+     *
+     * @param time "yyyy-MM-ddTHH:mm" (e.g., "2024-01-15T14:00")
+     * @return Local wall-clock seconds since 1970-01-01T00:00, or Long.MIN_VALUE if malformed
+     */
+    static long parseTime(String time) {
+        if (time == null || time.length() < 16 || time.charAt(10) != 'T') {
+            return Long.MIN_VALUE;
+        }
+        int day = HistoricalAggregator.epochDay(time);
+        int hour = digits(time, 11);
+        int minute = digits(time, 14);
+        if (day == Integer.MIN_VALUE || hour < 0 || minute < 0) {
+            return Long.MIN_VALUE;
+        }
+        return (long) day * SECONDS_PER_DAY + hour * SECONDS_PER_HOUR + minute * 60;
+    }
+
+    private static int digits(String s, int start) {
+        char high = s.charAt(start);
+        char low = s.charAt(start + 1);
+        if (high < '0' || high > '9' || low < '0' || low > '9') {
+            return -1;
+        }
+        return (high - '0') * 10 + (low - '0');
+    }
+}
@@ -0,0 +1,612 @@
+package com.example.assignment5;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal forward-only JSON pull parser that reads directly from an InputStream.
+ *
+ * Unlike JSONObject/JSONArray, this parser never builds a tree of the document.
+ * It walks the bytes once and hands each value to the caller as it is reached,
+ * so memory use stays flat no matter how large the API response is.
+ *
+ * The API mirrors android.util.JsonReader (peek, beginObject, nextName, nextDouble, ...)
+ * but is plain Java, so it works the same in the app and in local unit tests.
+ *
+ * Only the subset of JSON needed for Open Meteo responses is optimized:
+ * - Numbers like "72.4" or "-3" are decoded straight from the bytes (no String created)
+ * - Strings are decoded as UTF-8
+ * - Anything unusual (exponents, very long numbers) falls back to Double.parseDouble()
+ */
+final class JsonPullParser implements Closeable {
+
+    /**
+     * The kinds of tokens the parser can report from peek().
+     */
+    enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY,
+        NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    // ========== NESTING SCOPES ==========
+    // Each entry on the scope stack records where we are inside the enclosing container,
+    // which tells peek() whether to expect a comma, a colon, a name or a value next
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_OBJECT = 2;
+    private static final int NONEMPTY_OBJECT = 3;
+    private static final int DANGLING_NAME = 4;
+    private static final int EMPTY_ARRAY = 5;
+    private static final int NONEMPTY_ARRAY = 6;
+
+    // Exact powers of ten used by the fast number path (10^22 is the largest exact double)
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // Stands in for an escaped surrogate that has no partner
+    private static final int REPLACEMENT_CHARACTER = 0xFFFD;
+
+    // Source of raw bytes (usually the HTTP response body)
+    private final InputStream in;
+
+    // Read buffer and the current window [pos, limit) of unread bytes
+    private final byte[] buffer = new byte[8192];
+    private int pos = 0;
+    private int limit = 0;
+
+    // Scratch space for strings and numbers that need to be materialized
+    private byte[] scratch = new byte[64];
+
+    // Stack of nesting scopes (see constants above)
+    private int[] stack = new int[32];
+    private int depth = 0;
+
+    // Token already looked at by peek() but not yet consumed, or null
+    private Token peeked = null;
+
+    /**
+     * Create a parser over the given stream.
+     *
+     * @param in The stream to read JSON bytes from (UTF-8 encoded)
+     */
+    JsonPullParser(InputStream in) {
+        this.in = in;
+        stack[depth++] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Look at the type of the next token without consuming it.
+     *
+     * @return The kind of token that comes next
+     * @throws IOException If reading fails or the JSON is malformed
+     */
+    Token peek() throws IOException {
+        if (peeked != null) {
+            return peeked;
+        }
+
+        int scope = stack[depth - 1];
+        int c;
+        switch (scope) {
+            case EMPTY_ARRAY:
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return peeked = Token.END_ARRAY;
+                }
+                break;
+            case NONEMPTY_ARRAY:
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return peeked = Token.END_ARRAY;
+                }
+                if (c != ',') {
+                    throw syntaxError("Expected ',' or ']'");
+                }
+                c = nextNonWhitespace();
+                break;
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT:
+                c = nextNonWhitespace();
+                if (c == '}') {
+                    return peeked = Token.END_OBJECT;
+                }
+                if (scope == NONEMPTY_OBJECT) {
+                    if (c != ',') {
+                        throw syntaxError("Expected ',' or '}'");
+                    }
+                    c = nextNonWhitespace();
+                }
+                if (c != '"') {
+                    throw syntaxError("Expected name");
+                }
+                stack[depth - 1] = DANGLING_NAME;
+                return peeked = Token.NAME;
+            case DANGLING_NAME:
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                if (nextNonWhitespace() != ':') {
+                    throw syntaxError("Expected ':'");
+                }
+                c = nextNonWhitespace();
+                break;
+            case EMPTY_DOCUMENT:
+                stack[depth - 1] = NONEMPTY_DOCUMENT;
+                c = nextNonWhitespace();
+                break;
+            default:
+                // NONEMPTY_DOCUMENT: only trailing whitespace is allowed
+                if (nextNonWhitespace() == -1) {
+                    return peeked = Token.END_DOCUMENT;
+                }
+                throw syntaxError("Unexpected data after document");
+        }
+
+        switch (c) {
+            case '{':
+                return peeked = Token.BEGIN_OBJECT;
+            case '[':
+                return peeked = Token.BEGIN_ARRAY;
+            case '"':
+                return peeked = Token.STRING;
+            case 't':
+            case 'f':
+                // Leave the literal in the buffer so nextBoolean() can verify it
+                pos--;
+                return peeked = Token.BOOLEAN;
+            case 'n':
+                pos--;
+                return peeked = Token.NULL;
+            case -1:
+                throw syntaxError("Unexpected end of input");
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    pos--;
+                    return peeked = Token.NUMBER;
+                }
+                throw syntaxError("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    /**
+     * Consume the opening brace of an object.
+     */
+    void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    /**
+     * Consume the closing brace of an object.
+     */
+    void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        depth--;
+    }
+
+    /**
+     * Consume the opening bracket of an array.
+     */
+    void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    /**
+     * Consume the closing bracket of an array.
+     */
+    void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        depth--;
+    }
+
+    /**
+     * Check whether the current object or array has more elements.
+     *
+     * @return true if another name or value follows, false at the closing bracket
+     */
+    boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    /**
+     * Consume the next property name inside an object.
+     *
+     * @return The property name (e.g., "hourly", "temperature_2m")
+     */
+    String nextName() throws IOException {
+        expect(Token.NAME);
+        return readString();
+    }
+
+    /**
+     * Consume the next string value.
+     * Numbers are also accepted and returned in their literal form.
+     *
+     * @return The decoded string value
+     */
+    String nextString() throws IOException {
+        Token token = peek();
+        if (token == Token.STRING) {
+            peeked = null;
+            return readString();
+        }
+        if (token == Token.NUMBER) {
+            peeked = null;
+            int length = readNumberBytes();
+            return new String(scratch, 0, length, StandardCharsets.US_ASCII);
+        }
+        throw syntaxError("Expected a string but was " + token);
+    }
+
+    /**
+     * Consume the next numeric value.
+     * Quoted numbers such as "12.5" are also accepted.
+     *
+     * @return The number as a double
+     */
+    double nextDouble() throws IOException {
+        Token token = peek();
+        if (token == Token.NUMBER) {
+            peeked = null;
+            return readNumber();
+        }
+        if (token == Token.STRING) {
+            peeked = null;
+            try {
+                return Double.parseDouble(readString());
+            } catch (NumberFormatException e) {
+                throw syntaxError("Expected a number");
+            }
+        }
+        throw syntaxError("Expected a number but was " + token);
+    }
+
+    /**
+     * Consume the next numeric value as a long (e.g., Unix timestamps).
+     *
+     * @return The number as a long
+     */
+    long nextLong() throws IOException {
+        double value = nextDouble();
+        long result = (long) value;
+        if (result != value) {
+            throw syntaxError("Expected a long but was " + value);
+        }
+        return result;
+    }
+
+    /**
+     * Consume the next boolean literal.
+     */
+    boolean nextBoolean() throws IOException {
+        expect(Token.BOOLEAN);
+        int c = readByte();
+        if (c == 't') {
+            expectLiteral("rue");
+            return true;
+        }
+        expectLiteral("alse");
+        return false;
+    }
+
+    /**
+     * Consume a JSON null literal.
+     */
+    void nextNull() throws IOException {
+        expect(Token.NULL);
+        expectLiteral("null");
+    }
+
+    /**
+     * Skip the next value entirely, including nested objects and arrays.
+     * Used for response fields we don't care about (e.g., "hourly_units").
+     */
+    void skipValue() throws IOException {
+        int count = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_OBJECT:
+                    beginObject();
+                    count++;
+                    break;
+                case BEGIN_ARRAY:
+                    beginArray();
+                    count++;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    count--;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    count--;
+                    break;
+                case NAME:
+                case STRING:
+                    peeked = null;
+                    skipString();
+                    break;
+                case NUMBER:
+                    peeked = null;
+                    readNumberBytes();
+                    break;
+                case BOOLEAN:
+                    nextBoolean();
+                    break;
+                case NULL:
+                    nextNull();
+                    break;
+                default:
+                    throw syntaxError("Unexpected end of input");
+            }
+        } while (count > 0);
+    }
+
+    /**
+     * Close the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // ========== INTERNAL HELPERS ==========
+
+    private void expect(Token expected) throws IOException {
+        Token token = peek();
+        if (token != expected) {
+            throw syntaxError("Expected " + expected + " but was " + token);
+        }
+        peeked = null;
+    }
+
+    private void push(int scope) {
+        if (depth == stack.length) {
+            int[] bigger = new int[depth * 2];
+            System.arraycopy(stack, 0, bigger, 0, depth);
+            stack = bigger;
+        }
+        stack[depth++] = scope;
+    }
+
+    /**
+     * Refill the buffer when it has been fully consumed.
+     *
+     * @return false if the stream is exhausted
+     */
+    private boolean fill() throws IOException {
+        int read = in.read(buffer, 0, buffer.length);
+        pos = 0;
+        limit = Math.max(read, 0);
+        return read > 0;
+    }
+
+    private int readByte() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buffer[pos++] & 0xFF;
+    }
+
+    private int peekByte() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buffer[pos] & 0xFF;
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        while (true) {
+            int c = readByte();
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+        }
+    }
+
+    private void expectLiteral(String literal) throws IOException {
+        for (int i = 0; i < literal.length(); i++) {
+            if (readByte() != literal.charAt(i)) {
+                throw syntaxError("Expected '" + literal + "'");
+            }
+        }
+    }
+
+    private void ensureScratch(int length) {
+        if (length > scratch.length) {
+            byte[] bigger = new byte[Math.max(length, scratch.length * 2)];
+            System.arraycopy(scratch, 0, bigger, 0, scratch.length);
+            scratch = bigger;
+        }
+    }
+
+    /**
+     * Read the body of a string whose opening quote was already consumed by peek().
+     */
+    private String readString() throws IOException {
+        int length = 0;
+        while (true) {
+            int c = readByte();
+            if (c == -1) {
+                throw syntaxError("Unterminated string");
+            }
+            if (c == '"') {
+                return new String(scratch, 0, length, StandardCharsets.UTF_8);
+            }
+            if (c == '\\') {
+                c = readEscape();
+                // A high surrogate escape and the low surrogate escape after it are one code point
+                // (e.g. an emoji); a surrogate without its partner becomes U+FFFD
+                while (Character.isHighSurrogate((char) c)) {
+                    if (peekByte() != '\\') {
+                        c = REPLACEMENT_CHARACTER;
+                        break;
+                    }
+                    pos++;
+                    int next = readEscape();
+                    if (Character.isLowSurrogate((char) next)) {
+                        c = Character.toCodePoint((char) c, (char) next);
+                        break;
+                    }
+                    length = appendUtf8(length, REPLACEMENT_CHARACTER);
+                    c = next;
+                }
+                if (Character.isLowSurrogate((char) c)) {
+                    c = REPLACEMENT_CHARACTER;
+                }
+                if (c >= 0x80) {
+                    // Re-encode escaped code points as UTF-8 so the final decode stays uniform
+                    length = appendUtf8(length, c);
+                    continue;
+                }
+            }
+            ensureScratch(length + 1);
+            scratch[length++] = (byte) c;
+        }
+    }
+
+    /**
+     * Append a code point (not a surrogate) to the scratch buffer as UTF-8.
+     *
+     * @return The new length of the scratch contents
+     */
+    private int appendUtf8(int length, int codePoint) {
+        ensureScratch(length + 4);
+        if (codePoint < 0x80) {
+            scratch[length++] = (byte) codePoint;
+        } else if (codePoint < 0x800) {
+            scratch[length++] = (byte) (0xC0 | (codePoint >> 6));
+            scratch[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            scratch[length++] = (byte) (0xE0 | (codePoint >> 12));
+            scratch[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            scratch[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+            scratch[length++] = (byte) (0xF0 | (codePoint >> 18));
+            scratch[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            scratch[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            scratch[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+        return length;
+    }
+
+    private void skipString() throws IOException {
+        while (true) {
+            int c = readByte();
+            if (c == -1) {
+                throw syntaxError("Unterminated string");
+            }
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                readEscape();
+            }
+        }
+    }
+
+    private int readEscape() throws IOException {
+        int c = readByte();
+        switch (c) {
+            case 'n': return '\n';
+            case 't': return '\t';
+            case 'r': return '\r';
+            case 'b': return '\b';
+            case 'f': return '\f';
+            case '"':
+            case '\\':
+            case '/':
+                return c;
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(readByte(), 16);
+                    if (digit < 0) {
+                        throw syntaxError("Invalid unicode escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return value;
+            default:
+                throw syntaxError("Invalid escape sequence");
+        }
+    }
+
+    /**
+     * Copy the bytes of a number literal into the scratch buffer.
+     *
+     * @return The number of bytes copied
+     */
+    private int readNumberBytes() throws IOException {
+        int length = 0;
+        while (true) {
+            int c = peekByte();
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                ensureScratch(length + 1);
+                scratch[length++] = (byte) c;
+                pos++;
+            } else {
+                break;
+            }
+        }
+        if (length == 0) {
+            throw syntaxError("Expected a number");
+        }
+        return length;
+    }
+
+    /**
+     * Decode a number literal into a double.
+     *
+     * Plain decimals with up to 15 significant digits (everything Open Meteo sends)
+     * are computed exactly as mantissa / 10^fractionDigits, which is correctly
+     * rounded because both operands are exact doubles. Anything else falls back
+     * to Double.parseDouble().
+     */
+    private double readNumber() throws IOException {
+        int length = readNumberBytes();
+        int i = 0;
+        boolean negative = scratch[0] == '-';
+        if (negative) {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < length; i++) {
+            byte b = scratch[i];
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                break;
+            }
+        }
+        if (i == length && digits > 0 && digits <= 15 && fractionDigits != 0) {
+            double value = mantissa;
+            if (fractionDigits > 0) {
+                value /= POWERS_OF_TEN[fractionDigits];
+            }
+            return negative ? -value : value;
+        }
+        try {
+            return Double.parseDouble(new String(scratch, 0, length, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            throw syntaxError("Malformed number");
+        }
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException("Malformed JSON: " + message);
+    }
+}
@@ -2,7 +2,6 @@ package com.example.assignment5;
 
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.Button;
@@ -19,23 +18,24 @@ import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
 import android.util.Log;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
 import java.net.HttpURLConnection;
-import java.net.URL;
-import java.text.SimpleDateFormat;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Main activity for the weather forecast app.
@@ -49,10 +49,9 @@ import java.util.Map;
  * The app fetches weather data from the Open Meteo API, parses JSON responses,
  * calculates daily averages from hourly data, and displays them in a user-friendly UI.
  * 
- * Note: Uses AsyncTask which is deprecated in API 30+, but acceptable for this assignment (min SDK 24).
- * In production, you would use modern alternatives like Coroutines, RxJava, or Retrofit.
+ * Background work runs on TaskRuntime (network/disk on its IO pool, model
+ * training on its CPU pool); results are delivered back on the main thread.
  */
-@SuppressWarnings("deprecation")
 public class MainActivity extends AppCompatActivity {
 
     // ========== UI COMPONENT REFERENCES ==========
@@ -158,12 +157,72 @@ public class MainActivity extends AppCompatActivity {
     // Models older than 7 days are automatically retrained for better accuracy
     private static final int MODEL_RETRAIN_DAYS = 7;
     
+    // Number of past days of archive data the model is trained on
+    private static final int HISTORY_WINDOW_DAYS = 120;
+    
+    // Number of forecast days shown on the main screen (one card per day)
+    private static final int FORECAST_DAYS = 7;
+    
+    // Shown when the network failed and the forecast comes from the response cache
+    private static final String STALE_DATA_NOTICE =
+        "Weather service unreachable - showing cached data, which may be out of date.";
+    
+    // Background prefetch of every saved city (see PrefetchScheduler)
+    // - At most 2 cities are fetched at once, and their first fetches are 2 s apart
+    // - A city's forecast is fetched again once it is 30 minutes old
+    private static final int PREFETCH_MAX_CONCURRENT = 2;
+    private static final long PREFETCH_STAGGER_MILLIS = 2000;
+    private static final long PREFETCH_INTERVAL_MILLIS = 30 * 60 * 1000;
+    
+    // Launch extra selecting the weather transport, e.g.
+    //   adb shell am start -n com.example.assignment5/.MainActivity -e transport replay
+    // - "live" (default): the Open Meteo service
+    // - "record": the live service, saving every response under files/recordings
+    // - "replay": the saved responses only, fully offline
+    static final String EXTRA_TRANSPORT = "transport";
+    
+    // Maximum size of the on-disk HTTP response cache (forecast + archive bodies)
+    private static final long HTTP_CACHE_BYTES = 4 * 1024 * 1024;
+    
+    // Coalesce duplicate work: concurrent callers with the same key share one execution
+    // - Forecasts are keyed by request URL (cities, endpoint and parameters)
+    // - Historical syncs are keyed by city (one writer per city's HistoryStore)
+    // - Model training is keyed by "train:" + city key
+    // Static so a recreated activity (e.g., after rotation) joins the running request
+    private static final SingleFlight<ForecastBatch> FORECAST_FLIGHTS = new SingleFlight<>();
+    private static final SingleFlight<HistoryStore> HISTORY_FLIGHTS = new SingleFlight<>();
+    private static final SingleFlight<TemperatureModel> TRAINING_FLIGHTS = new SingleFlight<>();
+    
     // ========== DATA STORAGE ==========
     // Variables to hold data fetched from the API
     
-    // List of daily forecasts currently displayed (stored here so we can pass to detailed view)
-    // This is populated after a successful API call and contains 7 DailyForecast objects
-    private List<DailyForecast> currentForecasts;
+    // Forecast currently displayed (stored here so the detailed view can be opened on its days)
+    // This is set after a successful load; its list contains 7 DailyForecast objects
+    private ForecastRepository.Entry currentForecast;
+    
+    // Latest forecasts for every city we have data for, keyed by cityKey()
+    // Filled by the batched all-cities fetch so switching cities can show data instantly.
+    // Process-wide, so DetailedWeatherActivity reads the same objects instead of an Intent copy
+    private final ForecastRepository forecastRepository = ForecastRepository.getInstance();
+    
+    // Generation of the most recently started forecast load (main thread only)
+    // Results from any older generation are stale and get discarded
+    private int forecastGeneration = 0;
+    private FetchForecastTask activeForecastTask;
+    
+    // Refreshes every saved city in the background while the activity is visible
+    // and tracks when each city's forecast was last fetched
+    private PrefetchScheduler prefetchScheduler;
+    
+    // Forecasts parsed from the last full download of each forecast URL
+    // When the server answers 304 Not Modified, these are reused so neither the
+    // download nor the parse is repeated. Cleared when the date changes, because
+    // the "Today"/"Tomorrow" labels depend on the current date.
+    // Each entry holds one forecast list per location in the request
+    private final Map<String, List<List<DailyForecast>>> parsedForecasts = new HashMap<>();
+    
+    // Date ("yyyy-MM-dd") the entries in parsedForecasts were labelled for
+    private String parsedForecastsDate;
     
     // Cached temperature prediction model for the current city
     // If this is not null and not stale, we can make predictions without retraining
@@ -209,6 +268,25 @@ public class MainActivity extends AppCompatActivity {
         // This must be called after setContentView() so the views exist
         initializeViews();
         
+        // Pick where weather responses come from (live, record or offline replay)
+        configureTransport(getIntent().getStringExtra(EXTRA_TRANSPORT));
+        
+        // Warm up connections to both Open Meteo hosts in the background
+        // By the time the first forecast or training request runs, the TCP and TLS
+        // handshakes are already done and the pooled connection is reused
+        if (!(WeatherTransport.current() instanceof ReplayTransport)) {
+            WeatherHttpClient.getInstance().preconnect(
+                WeatherHttpClient.FORECAST_ORIGIN, WeatherHttpClient.ARCHIVE_ORIGIN);
+        }
+        
+        // Install the on-disk response cache (once per process)
+        // Cached responses are revalidated with conditional GETs, so unchanged
+        // forecasts come back as a tiny 304 instead of the full payload
+        if (WeatherHttpClient.getInstance().getCache() == null) {
+            WeatherHttpClient.getInstance().installCache(
+                new DiskResponseCache(new File(getCacheDir(), "http"), HTTP_CACHE_BYTES));
+        }
+        
         // Initialize SharedPreferences for persistent storage
         // MODE_PRIVATE means only this app can access these preferences
         // This is where we'll save city selection and ML model data
@@ -218,19 +296,10 @@ public class MainActivity extends AppCompatActivity {
         // This populates the cities list and sets the currentCity variable
         initializeCities();
         
-        // Try to load a previously trained and saved temperature prediction model
-        // If a valid model exists for the current city, we can use it for fast predictions
-        // without needing to retrain from scratch
-        boolean modelLoaded = loadCachedModel();
-        if (!modelLoaded) {
-            // Log that no cached model was found - this is normal for first-time use
-            // The model will be trained when the user first clicks "Predict Tomorrow"
-            Log.d("TemperaturePrediction", "No valid cached model found, will train on first prediction");
-        }
-        
         // Set up click listener for the refresh button
         // When clicked, it will fetch fresh weather data from the API
-        refreshButton.setOnClickListener(v -> startForecastFetch());
+        // Refresh fetches every saved city in one batched request
+        refreshButton.setOnClickListener(v -> startAllCitiesForecastFetch());
         
         // Set up click listener for the prediction button
         // When clicked, it will either use cached model or train a new one, then predict tomorrow's temp
@@ -240,9 +309,169 @@ public class MainActivity extends AppCompatActivity {
         // This allows users to switch cities or add new ones
         cityLabel.setOnClickListener(v -> showCityManagementDialog());
         
+        // Keep every saved city's forecast fresh in the background (started in onStart())
+        prefetchScheduler = new PrefetchScheduler(PREFETCH_MAX_CONCURRENT, PREFETCH_STAGGER_MILLIS,
+            PREFETCH_INTERVAL_MILLIS, this::prefetchForecast, this::onForecastPrefetched,
+            System::currentTimeMillis);
+        
+        // Load everything the first screen shows, in parallel
+        startStartupPipeline();
+    }
+    
+    /**
+     * Start the independent startup stages at the same time.
+     * 
+     * Stages (all on TaskRuntime, each publishing to the UI as soon as it
+     * finishes, in whatever order that happens):
+     * 1. Forecast snapshots from disk - shown right away (stale-while-revalidate)
+     * 2. Forecast fetch for every saved city - replaces the snapshots
+     * 3. Saved model from SharedPreferences - if it is valid the prediction is shown
+     *    immediately; if it is missing or stale, history sync and retraining start
+     *    in the background and the prediction appears when they finish
+     * 
+     * Previously the model was read on the main thread before the fetch started,
+     * and training only began when the user pressed "Predict Tomorrow".
+     */
+    private void startStartupPipeline() {
+        // Show the last good forecast saved on disk right away
+        // so the first screen doesn't wait for the network
+        TaskRuntime.getInstance().execute(new LoadSnapshotsTask(new ArrayList<>(cities)),
+            TaskRuntime.Pool.IO, TaskRuntime.Priority.HIGH);
+        
         // Automatically start fetching forecast data when activity is created
-        // This ensures the user sees weather data immediately upon opening the app
-        startForecastFetch();
+        // All saved cities are fetched in a single request, so later city switches are instant
+        // The fresh result replaces the snapshot when it arrives
+        startAllCitiesForecastFetch();
+        
+        // Read (and if needed retrain) the model while the forecast downloads
+        TaskRuntime.getInstance().execute(new LoadModelTask(currentCity),
+            TaskRuntime.Pool.IO, TaskRuntime.Priority.NORMAL);
+    }
+    
+    /**
+     * Task that reads the saved model off the main thread at startup,
+     * then shows the prediction or starts retraining.
+     */
+    private class LoadModelTask extends TaskRuntime.Task<TemperatureModel> {
+        // City the model is loaded for (captured at start, in case the user switches city)
+        private final City city;
+        
+        LoadModelTask(City city) {
+            this.city = city;
+        }
+        
+        @Override
+        protected TemperatureModel doInBackground() {
+            return readSavedModel(city);
+        }
+        
+        @Override
+        protected void onPostExecute(TemperatureModel model) {
+            // The user switched cities (which loads that city's model) or
+            // already got a prediction - this result is no longer needed
+            if (!cityKey(city).equals(getCityKey()) || cachedModel != null) {
+                return;
+            }
+            if (model != null) {
+                cachedModel = model;
+                makePredictionWithModel(model);
+            } else {
+                // Missing or stale - retrain in the background so the prediction
+                // is ready without the user pressing "Predict Tomorrow"
+                Log.d("TemperaturePrediction", "No valid cached model found, training in the background");
+                startTraining();
+            }
+        }
+    }
+    
+    /**
+     * Install the weather transport selected by the launch intent.
+     * 
+     * @param mode "record", "replay", or null/anything else for live
+     */
+    private void configureTransport(String mode) {
+        File recordings = new File(getFilesDir(), "recordings");
+        if ("record".equals(mode)) {
+            WeatherTransport.use(new RecordingTransport(WeatherHttpClient.getInstance(), recordings));
+        } else if ("replay".equals(mode)) {
+            WeatherTransport.use(new ReplayTransport(recordings, 0));
+        } else {
+            WeatherTransport.use(null);
+        }
+        Log.d("Forecast", "Using " + WeatherTransport.current().getClass().getSimpleName());
+    }
+    
+    /**
+     * Called when the activity becomes visible.
+     * Starts the background prefetch of all saved cities.
+     */
+    @Override
+    protected void onStart() {
+        super.onStart();
+        prefetchScheduler.start(new ArrayList<>(cities));
+    }
+    
+    /**
+     * Called when the activity is no longer visible.
+     * Stops the background prefetch so a hidden app doesn't use the network.
+     */
+    @Override
+    protected void onStop() {
+        prefetchScheduler.stop();
+        super.onStop();
+    }
+    
+    /**
+     * Fetch one city's forecast for the PrefetchScheduler (runs on a scheduler thread).
+     * 
+     * Goes through FORECAST_FLIGHTS like a foreground load, so a prefetch and a
+     * city switch for the same city share one request. Each keeps its own token:
+     * stopping the scheduler (onStop()) only ends the prefetch's wait, and the
+     * request is aborted only if the foreground load was cancelled too.
+     */
+    private List<DailyForecast> prefetchForecast(City city, CancellationToken token) throws Exception {
+        List<City> locations = Collections.singletonList(city);
+        String url = buildForecastUrl(locations);
+        ForecastBatch batch = FORECAST_FLIGHTS.execute(url, token,
+            shared -> fetchForecastBatch(url, locations, shared));
+        if (batch.stale) {
+            // Old cached data must not reset the city's freshness - fail this prefetch
+            // so the scheduler tries again at the next check
+            throw new IOException("Weather service unreachable, only cached data available");
+        }
+        return batch.forecasts.get(0);
+    }
+    
+    /**
+     * Store a prefetched forecast (called on a scheduler thread).
+     * 
+     * The forecast goes into the forecast repository, so switching to the city is
+     * served from memory. If it is the city on screen and no foreground load is
+     * running, the screen is updated as well.
+     */
+    private void onForecastPrefetched(City city, List<DailyForecast> forecasts, long fetchedAt) {
+        runOnUiThread(() -> {
+            ForecastRepository.Entry entry = forecastRepository.publish(city, forecasts);
+            Log.d("Forecast", "Prefetched " + city.getDisplayName());
+            if (cityKey(city).equals(getCityKey()) && activeForecastTask == null) {
+                currentForecast = entry;
+                bindForecastData(entry.forecasts);
+            }
+        });
+    }
+    
+    /**
+     * Describe how old a city's forecast is, e.g. "updated 5 min ago".
+     * 
+     * @return The description, or null if the city was never fetched in this session
+     */
+    private String describeFreshness(City city) {
+        long fetchedAt = prefetchScheduler.freshness(cityKey(city));
+        if (fetchedAt == 0) {
+            return null;
+        }
+        long minutes = Math.max(0, System.currentTimeMillis() - fetchedAt) / 60000;
+        return minutes == 0 ? "updated just now" : "updated " + minutes + " min ago";
     }
     
     /**
@@ -257,8 +486,18 @@ public class MainActivity extends AppCompatActivity {
      * @return A unique string identifier for the current city, or "default" if no city is set
      */
     private String getCityKey() {
-        // Safety check: if no city is currently selected, return a default key
-        if (currentCity == null) {
+        return cityKey(currentCity);
+    }
+    
+    /**
+     * Generate the unique identifier key for any city (see getCityKey()).
+     * 
+     * @param city The city, or null
+     * @return A unique string identifier for the city, or "default" if city is null
+     */
+    private static String cityKey(City city) {
+        // Safety check: if no city is given, return a default key
+        if (city == null) {
             return "default";
         }
         
@@ -266,7 +505,7 @@ public class MainActivity extends AppCompatActivity {
         // This ensures that even if two cities have the same name, they'll have different keys
         // The format is: "CityName_latitude_longitude"
         // Example: "Austin_30.28_-97.76" or "New York_40.71_-74.01"
-        return currentCity.name + "_" + currentCity.latitude + "_" + currentCity.longitude;
+        return city.getKey();
     }
     
     /**
@@ -281,18 +520,32 @@ public class MainActivity extends AppCompatActivity {
      * 2. The saved model is actually for the current city (validation check)
      * 3. The model is not stale (less than MODEL_RETRAIN_DAYS old)
      * 
-     * @return true if a valid model was successfully loaded, false otherwise
+     * @return true if a valid model was successfully loaded (into cachedModel), false otherwise
      */
     private boolean loadCachedModel() {
+        cachedModel = readSavedModel(currentCity);
+        return cachedModel != null;
+    }
+    
+    /**
+     * Read a city's saved model from SharedPreferences (see loadCachedModel()).
+     * 
+     * Only reads preferences, so it can run on a background thread
+     * (the startup pipeline does this in LoadModelTask).
+     * 
+     * @param city The city whose model to read, or null
+     * @return The saved model, or null if there is none, it is for another city, or it is stale
+     */
+    private TemperatureModel readSavedModel(City city) {
         try {
             // Safety check: can't load a model if no city is selected
-            if (currentCity == null) {
+            if (city == null) {
                 Log.d("TemperaturePrediction", "No current city, cannot load model");
-                return false;
+                return null;
             }
             
             // Generate unique key for this city to look up its saved model
-            String cityKey = getCityKey();
+            String cityKey = cityKey(city);
             
             // Build all the SharedPreferences keys for this city's model data
             // Each piece of model data is stored with a unique key
@@ -306,18 +559,18 @@ public class MainActivity extends AppCompatActivity {
             // We check for slopeKey as a quick way to see if a model was ever saved
             if (!prefs.contains(slopeKey)) {
                 // No model found - this is normal for first-time use or new cities
-                Log.d("TemperaturePrediction", "No cached model found for city: " + currentCity.getDisplayName());
-                return false;
+                Log.d("TemperaturePrediction", "No cached model found for city: " + city.getDisplayName());
+                return null;
             }
             
             // Verify the saved model is actually for the current city
             // This prevents loading a model that was saved for a different city
             // (in case city coordinates changed or there was a data corruption)
             String savedCityName = prefs.getString(cityNameKey, "");
-            if (!savedCityName.equals(currentCity.getDisplayName())) {
+            if (!savedCityName.equals(city.getDisplayName())) {
                 // Model exists but is for a different city - don't use it
-                Log.d("TemperaturePrediction", "Cached model is for different city: " + savedCityName + " vs " + currentCity.getDisplayName());
-                return false;
+                Log.d("TemperaturePrediction", "Cached model is for different city: " + savedCityName + " vs " + city.getDisplayName());
+                return null;
             }
             
             // Retrieve all model parameters from SharedPreferences
@@ -329,32 +582,30 @@ public class MainActivity extends AppCompatActivity {
             int dataCount = prefs.getInt(countKey, 0);      // Number of data points used for training
             
             // Reconstruct the TemperatureModel object from saved parameters
-            cachedModel = new TemperatureModel(slope, intercept, trainingDate, dataCount);
+            TemperatureModel model = new TemperatureModel(slope, intercept, trainingDate, dataCount);
             
             // Log successful load for debugging
-            Log.d("TemperaturePrediction", "Loaded cached model for " + currentCity.getDisplayName() + 
+            Log.d("TemperaturePrediction", "Loaded cached model for " + city.getDisplayName() + 
                   ": slope=" + slope + ", intercept=" + intercept + ", trainingDate=" + trainingDate + ", dataCount=" + dataCount);
             
             // Check if the model is stale (too old)
             // Models older than MODEL_RETRAIN_DAYS should be retrained for better accuracy
             // Weather patterns can change over time, so fresh models are more accurate
-            if (cachedModel.isStale(MODEL_RETRAIN_DAYS)) {
+            if (model.isStale(MODEL_RETRAIN_DAYS)) {
                 Log.d("TemperaturePrediction", "Cached model is stale (older than " + MODEL_RETRAIN_DAYS + " days), will retrain");
-                // Clear the stale model so a new one will be trained
-                cachedModel = null;
-                return false;
+                // Don't return the stale model so a new one will be trained
+                return null;
             }
             
             // Model is valid and ready to use!
-            Log.d("TemperaturePrediction", "Cached model is valid and ready to use for " + currentCity.getDisplayName());
-            return true;
+            Log.d("TemperaturePrediction", "Cached model is valid and ready to use for " + city.getDisplayName());
+            return model;
             
         } catch (Exception e) {
-            // If anything goes wrong during loading, log the error and return false
+            // If anything goes wrong during loading, log the error and return null
             // This ensures the app doesn't crash and will just train a new model instead
             Log.e("TemperaturePrediction", "Error loading cached model", e);
-            cachedModel = null;
-            return false;
+            return null;
         }
     }
     
@@ -370,21 +621,25 @@ public class MainActivity extends AppCompatActivity {
      * - Number of data points used (for validation)
      * - City name (for validation to ensure model matches city)
      * 
+     * Runs on the training thread; the caller makes the model the cachedModel on
+     * the main thread if the user is still looking at the same city.
+     * 
      * Note: Double values are converted to Long using doubleToLongBits() because
      * SharedPreferences doesn't support double directly, and this preserves precision.
      * 
+     * @param city The city the model was trained for
      * @param model The TemperatureModel object containing the trained model parameters
      */
-    private void saveModel(TemperatureModel model) {
+    private void saveModel(City city, TemperatureModel model) {
         try {
             // Safety check: can't save a model if no city is selected
-            if (currentCity == null) {
+            if (city == null) {
                 Log.e("TemperaturePrediction", "Cannot save model: no current city");
                 return;
             }
             
             // Generate unique key for this city to store its model
-            String cityKey = getCityKey();
+            String cityKey = cityKey(city);
             
             // Build all the SharedPreferences keys for storing model data
             String slopeKey = KEY_MODEL_SLOPE + cityKey;
@@ -406,21 +661,17 @@ public class MainActivity extends AppCompatActivity {
             // Save metadata about the model
             editor.putLong(dateKey, model.trainingDate);        // When model was trained
             editor.putInt(countKey, model.dataPointCount);     // How many data points were used
-            editor.putString(cityNameKey, currentCity.getDisplayName());  // Which city this model is for
+            editor.putString(cityNameKey, city.getDisplayName());  // Which city this model is for
             
             // Apply changes asynchronously (non-blocking)
             // Use apply() instead of commit() for better performance
             editor.apply();
             
             // Log successful save for debugging
-            Log.d("TemperaturePrediction", "Saved model for " + currentCity.getDisplayName() + 
+            Log.d("TemperaturePrediction", "Saved model for " + city.getDisplayName() + 
                   ": slope=" + model.slope + ", intercept=" + model.intercept + 
                   ", trainingDate=" + model.trainingDate + ", dataCount=" + model.dataPointCount);
             
-            // Update the cached model reference so we can use it immediately
-            // without needing to reload from SharedPreferences
-            cachedModel = model;
-            
         } catch (Exception e) {
             // If saving fails, log the error but don't crash the app
             // The model will just be retrained next time
@@ -444,73 +695,62 @@ public class MainActivity extends AppCompatActivity {
      * The algorithm uses the least squares method to minimize the sum of squared errors
      * between predicted and actual temperatures.
      * 
-     * Formula for slope (m): m = (n*Σ(xy) - Σ(x)*Σ(y)) / (n*Σ(x²) - (Σ(x))²)
-     * Formula for intercept (b): b = (Σ(y) - m*Σ(x)) / n
+     * Formula for slope (m): m = cov(x, y) / var(x)
+     * Formula for intercept (b): b = mean(y) - m*mean(x)
+     * 
+     * The means, variance and covariance are accumulated with StreamingMoments
+     * (Welford's method) instead of raw Σ(x), Σ(xy), Σ(x²) sums, so the result
+     * doesn't lose precision for long windows or large x values.
      * 
-     * @param historicalData List of HistoricalDataPoint objects containing day-of-year
-     *                       and temperature pairs from past weather data
+     * @param city The city the history belongs to (the model is saved for it)
+     * @param history The city's HistoryStore; its day-of-year and temperature
+     *                columns are scanned straight from the memory-mapped file
      * @return A trained TemperatureModel object, or null if training failed
      */
-    private TemperatureModel trainModel(List<HistoricalDataPoint> historicalData) {
+    private TemperatureModel trainModel(City city, HistoryStore history) {
         try {
             // Log how many data points we're training with
-            Log.d("TemperaturePrediction", "Training model with " + historicalData.size() + " data points");
+            Log.d("TemperaturePrediction", "Training model with " + history.size() + " data points");
             
             // Validate we have sufficient data for reliable training
             // Need at least 100 data points to get a meaningful regression
             // Too few points can lead to overfitting or inaccurate models
-            if (historicalData.size() < 100) {
-                Log.e("TemperaturePrediction", "Insufficient data for training: " + historicalData.size() + " points");
+            if (history.size() < 100) {
+                Log.e("TemperaturePrediction", "Insufficient data for training: " + history.size() + " points");
                 return null;
             }
             
-            // Initialize accumulators for linear regression calculation
-            // These will sum up values needed for the regression formulas
-            double sumX = 0;      // Sum of all x values (day of year)
-            double sumY = 0;      // Sum of all y values (temperatures)
-            double sumXY = 0;    // Sum of x*y products
-            double sumX2 = 0;    // Sum of x² values
-            int n = historicalData.size();  // Number of data points
-            
-            // Iterate through all historical data points and accumulate sums
-            // This is the first pass through the data to calculate statistics
-            for (HistoricalDataPoint point : historicalData) {
-                double x = point.dayOfYear;        // Day of year (1-365)
-                double y = point.temperature;      // Average temperature for that day
-                
-                // Accumulate values needed for regression formulas
-                sumX += x;           // Add day of year to sum
-                sumY += y;           // Add temperature to sum
-                sumXY += x * y;      // Add product of x and y
-                sumX2 += x * x;      // Add square of x
-            }
+            // Scan all stored days once, feeding (day of year, mean temperature) pairs
+            // into the running moments. The visitor receives primitives read from the
+            // mapped file - nothing is allocated per day
+            StreamingMoments moments = new StreamingMoments();
+            history.scan((epochDay, dayOfYear, meanTempF, minTempF, maxTempF, validHours) ->
+                moments.add(dayOfYear, meanTempF));
+            int n = (int) moments.count();  // Number of data points
             
             // Log the accumulated statistics for debugging
-            Log.d("TemperaturePrediction", "Training stats - SumX: " + sumX + ", SumY: " + sumY + 
-                  ", SumXY: " + sumXY + ", SumX2: " + sumX2 + ", n: " + n);
+            Log.d("TemperaturePrediction", "Training stats - MeanX: " + moments.meanX()
+                  + ", MeanY: " + moments.meanY() + ", VarX: " + moments.varianceX()
+                  + ", CovXY: " + moments.covariance() + ", n: " + n);
             
-            // Calculate the denominator for the slope formula
-            // Formula: denominator = n*Σ(x²) - (Σ(x))²
-            // This is used in the slope calculation
-            double denominator = (n * sumX2 - sumX * sumX);
-            
-            // Check if denominator is too small (close to zero)
+            // Check if the spread of x is too small (close to zero)
             // This would cause division by zero or very large errors
             // Can happen if all data points have the same x value (same day of year)
-            if (Math.abs(denominator) < 0.0001) {
-                Log.e("TemperaturePrediction", "Cannot calculate regression: denominator too small: " + denominator);
+            if (!(moments.varianceX() > 1e-9)) {
+                Log.e("TemperaturePrediction", "Cannot calculate regression: variance of x too small: "
+                      + moments.varianceX());
                 return null;
             }
             
             // Calculate slope (m) using the least squares formula
-            // Formula: m = (n*Σ(xy) - Σ(x)*Σ(y)) / (n*Σ(x²) - (Σ(x))²)
+            // Formula: m = cov(x, y) / var(x)
             // This tells us how much temperature changes per unit change in day of year
-            double m = (n * sumXY - sumX * sumY) / denominator;
+            double m = moments.slope();
             
             // Calculate intercept (b) using the slope we just calculated
-            // Formula: b = (Σ(y) - m*Σ(x)) / n
+            // Formula: b = mean(y) - m*mean(x)
             // This is the base temperature when day of year is 0 (theoretical)
-            double b = (sumY - m * sumX) / n;
+            double b = moments.intercept();
             
             // Log the trained model equation for debugging
             Log.d("TemperaturePrediction", "Trained model: y = " + m + "x + " + b);
@@ -531,7 +771,7 @@ public class MainActivity extends AppCompatActivity {
             
             // Save the trained model to SharedPreferences for future use
             // This allows us to reuse the model without retraining every time
-            saveModel(model);
+            saveModel(city, model);
             
             // Log successful completion
             Log.d("TemperaturePrediction", "Model training completed and saved successfully");
@@ -580,7 +820,9 @@ public class MainActivity extends AppCompatActivity {
         // Create list of city names
         String[] cityNames = new String[cities.size() + 1];
         for (int i = 0; i < cities.size(); i++) {
-            cityNames[i] = cities.get(i).getDisplayName();
+            // Show how fresh each city's forecast is, e.g. "Austin, TX (updated 5 min ago)"
+            String freshness = describeFreshness(cities.get(i));
+            cityNames[i] = cities.get(i).getDisplayName() + (freshness != null ? " (" + freshness + ")" : "");
         }
         cityNames[cities.size()] = "+ Add New City";
         
@@ -602,7 +844,8 @@ public class MainActivity extends AppCompatActivity {
                 updateCityLabel();
                 // Load model for new city
                 loadCachedModel();
-                startForecastFetch();
+                // Show the batched forecast for this city if we have it, otherwise fetch it
+                showForecastForCurrentCity();
             }
         });
         
@@ -644,6 +887,8 @@ public class MainActivity extends AppCompatActivity {
                 if (!name.isEmpty() && !state.isEmpty()) {
                     City newCity = new City(name, state, lat, lon);
                     cities.add(newCity);
+                    // Include the new city in the background prefetch
+                    prefetchScheduler.start(new ArrayList<>(cities));
                     // Clear cached model when adding/switching to new city
                     if (currentCity != null && !newCity.getDisplayName().equals(currentCity.getDisplayName())) {
                         Log.d("TemperaturePrediction", "City changed to new city, clearing cached model");
@@ -753,21 +998,24 @@ public class MainActivity extends AppCompatActivity {
      * Open detailed weather view for a specific day.
      */
     private void openDetailedView(int dayIndex) {
-        if (currentForecasts == null || dayIndex >= currentForecasts.size()) {
+        if (currentForecast == null || dayIndex >= currentForecast.forecasts.size()) {
             Toast.makeText(this, "Weather data not available", Toast.LENGTH_SHORT).show();
             return;
         }
         
-        DailyForecast forecast = currentForecasts.get(dayIndex);
-        if (forecast.hourlyData == null || forecast.hourlyData.isEmpty()) {
+        DailyForecast forecast = currentForecast.forecasts.get(dayIndex);
+        if (forecast.hourlyData == null || forecast.hourlyData.size() == 0) {
             Toast.makeText(this, "Hourly data not available for this day", Toast.LENGTH_SHORT).show();
             return;
         }
         
+        // Pass only the key of the day - the detailed view reads the forecast
+        // straight from the ForecastRepository, so nothing is copied or serialized
         Intent intent = new Intent(this, DetailedWeatherActivity.class);
+        intent.putExtra(DetailedWeatherActivity.EXTRA_CITY_KEY, getCityKey());
+        intent.putExtra(DetailedWeatherActivity.EXTRA_GENERATION, currentForecast.generation);
         intent.putExtra("dayIndex", dayIndex);
         intent.putExtra("dayLabel", forecast.dateLabel);
-        intent.putExtra("hourlyData", new ArrayList<>(forecast.hourlyData));
         startActivity(intent);
     }
 
@@ -777,10 +1025,45 @@ public class MainActivity extends AppCompatActivity {
      * This method prepares the UI for loading (shows progress bar, disables refresh button)
      * and then starts an asynchronous task to fetch data from the Open Meteo API.
      * 
-     * The actual network request happens in a background thread via AsyncTask,
+     * The actual network request happens on TaskRuntime's IO pool,
      * so it doesn't block the main UI thread and cause the app to freeze.
      */
     private void startForecastFetch() {
+        startForecastFetch(Collections.singletonList(currentCity));
+    }
+    
+    /**
+     * Fetch forecasts for every saved city in a single batched request.
+     * 
+     * Open Meteo accepts comma-separated latitude/longitude lists and returns one
+     * forecast per location, so N cities cost one round trip instead of N.
+     * The results are fanned out into the forecast repository.
+     */
+    private void startAllCitiesForecastFetch() {
+        startForecastFetch(new ArrayList<>(cities));
+    }
+    
+    /**
+     * Show the current city's forecast from the forecast repository if available.
+     * Falls back to fetching it from the API if we have no data for this city yet.
+     */
+    private void showForecastForCurrentCity() {
+        ForecastRepository.Entry entry = forecastRepository.latest(getCityKey());
+        if (entry == null) {
+            startForecastFetch();
+            return;
+        }
+        errorTextView.setVisibility(View.GONE);
+        currentForecast = entry;
+        bindForecastData(entry.forecasts);
+    }
+    
+    /**
+     * Fetch forecasts for the given cities (one request, whatever the number of cities).
+     * 
+     * @param locations Cities to fetch; the current city's result is displayed
+     */
+    private void startForecastFetch(List<City> locations) {
         // Show the progress bar to indicate data is being loaded
         // This gives visual feedback to the user that something is happening
         progressBar.setVisibility(View.VISIBLE);
@@ -799,17 +1082,31 @@ public class MainActivity extends AppCompatActivity {
             temp.setAlpha(0.5f);
         }
         
-        // Create and execute the AsyncTask to fetch forecast data
-        // AsyncTask runs in a background thread, so it won't block the UI
+        // Supersede the load that is still running, if any (e.g., the user switched
+        // cities before the previous city's forecast arrived)
+        String url = buildForecastUrl(locations);
+        if (activeForecastTask != null) {
+            activeForecastTask.supersede(url);
+        }
+        
+        // Create and execute the task to fetch forecast data
+        // It runs on a background thread, so it won't block the UI
         // The task will handle the HTTP request, JSON parsing, and UI updates
-        new FetchForecastTask().execute();
+        // HIGH priority: the user is waiting for it, so it starts ahead of any
+        // queued history sync instead of waiting behind it
+        activeForecastTask = new FetchForecastTask(locations, url, ++forecastGeneration);
+        TaskRuntime.getInstance().execute(activeForecastTask, TaskRuntime.Pool.IO, TaskRuntime.Priority.HIGH);
     }
 
     /**
      * Build the complete URL for the Open Meteo weather forecast API.
      * 
      * This method constructs the HTTP GET request URL with all necessary parameters
-     * to fetch 7 days of hourly weather data for the current city.
+     * to fetch 7 days of hourly weather data for one or more cities.
+     * 
+     * Several cities are requested at once by passing comma-separated coordinate lists
+     * (e.g., "latitude=30.28,40.71&longitude=-97.76,-74.01"). The API then returns an
+     * array with one forecast per city, in the same order.
      * 
      * The Open Meteo API is a free, open-source weather API that doesn't require
      * an API key. It provides weather forecasts and historical data.
@@ -817,467 +1114,200 @@ public class MainActivity extends AppCompatActivity {
      * API Endpoint: https://api.open-meteo.com/v1/forecast
      * 
      * Parameters included:
-     * - latitude/longitude: Geographic coordinates of the city
+     * - latitude/longitude: Geographic coordinates of each city (comma-separated)
      * - hourly: Comma-separated list of weather variables to retrieve
      * - temperature_unit: fahrenheit (for US users)
      * - windspeed_unit: mph (miles per hour, for US users)
      * - forecast_days: 7 (number of days to forecast)
      * - timezone: auto (automatically detect timezone from coordinates)
      * 
+     * @param locations The cities to request, in the order results should be returned
      * @return The complete API URL string ready to be used in an HTTP request
      */
-    private String buildForecastUrl() {
-        // Safety check: if no city is selected, default to Austin, TX
-        // This prevents crashes if city management hasn't been initialized yet
-        if (currentCity == null) {
-            currentCity = new City("Austin", "TX", 30.28, -97.76);
+    private String buildForecastUrl(List<City> locations) {
+        // The main screen only needs temperature, humidity and wind
+        // DetailedWeatherActivity upgrades a single day to DETAIL_VARIABLES when it is opened
+        return buildForecastUrl(locations, ForecastParser.MAIN_VARIABLES, null);
+    }
+    
+    /**
+     * Build the forecast URL for a set of cities and hourly variables.
+     * 
+     * @param locations The cities to request, in the order results should be returned
+     * @param variables Hourly variables to request (ForecastParser.MAIN_VARIABLES or DETAIL_VARIABLES)
+     * @param date A single day to request ("yyyy-MM-dd"), or null for the full 7-day forecast
+     * @return The complete API URL string ready to be used in an HTTP request
+     */
+    static String buildForecastUrl(List<City> locations, int[] variables, String date) {
+        // Join the coordinates of all requested cities into comma-separated lists
+        StringBuilder latitudes = new StringBuilder();
+        StringBuilder longitudes = new StringBuilder();
+        for (City city : locations) {
+            if (latitudes.length() > 0) {
+                latitudes.append(',');
+                longitudes.append(',');
+            }
+            latitudes.append(city.latitude);
+            longitudes.append(city.longitude);
         }
         
         // Build the URL by concatenating base URL with query parameters
         // Each parameter is separated by & and uses URL encoding
-        return "https://api.open-meteo.com/v1/forecast" +
+        return WeatherHttpClient.FORECAST_ORIGIN + "/v1/forecast" +
                 // Add latitude parameter (decimal degrees, e.g., 30.28 for Austin)
-                "?latitude=" + currentCity.latitude +
+                "?latitude=" + latitudes +
                 // Add longitude parameter (decimal degrees, e.g., -97.76 for Austin)
-                "&longitude=" + currentCity.longitude +
-                // Request multiple hourly weather variables:
+                "&longitude=" + longitudes +
+                // Request only the hourly variables the screen displays, e.g.:
                 // - temperature_2m: Air temperature at 2 meters above ground
                 // - relative_humidity_2m: Humidity percentage at 2 meters
                 // - wind_speed_10m: Wind speed at 10 meters above ground
-                // - rain: Precipitation amount
-                // - surface_pressure: Atmospheric pressure at surface level
-                // - visibility: Horizontal visibility distance
-                "&hourly=temperature_2m,relative_humidity_2m,wind_speed_10m,rain,surface_pressure,visibility" +
+                // - rain: Precipitation amount (detailed view only)
+                "&hourly=" + ForecastParser.hourlyParameter(variables) +
                 // Request temperature in Fahrenheit (US standard)
                 "&temperature_unit=fahrenheit" +
                 // Request wind speed in miles per hour (US standard)
                 "&windspeed_unit=mph" +
-                // Request forecast for 7 days ahead
-                "&forecast_days=7" +
+                // Request forecast for 7 days ahead, or just the one day being upgraded
+                (date == null ? "&forecast_days=7" : "&start_date=" + date + "&end_date=" + date) +
                 // Automatically detect timezone based on coordinates
-                "&timezone=auto";
+                "&timezone=auto" +
+                // Times as epoch seconds; the response's utc_offset_seconds gives local time
+                "&timeformat=unixtime";
     }
 
     /**
-     * Generate a human-readable label for a day based on its offset from today.
-     * 
-     * This method creates user-friendly day labels for the forecast cards:
-     * - Offset 0 (today) → "Today"
-     * - Offset 1 (tomorrow) → "Tomorrow"
-     * - Offset 2+ → Formatted date like "Wed 11 19" (day name, month number, day number)
+     * Task to fetch weather forecast data from the Open Meteo API.
      * 
-     * The formatted date uses a compact format that's easy to read at a glance.
+     * Runs on TaskRuntime's IO pool, so the network operation doesn't
+     * freeze the UI during the HTTP request.
      * 
-     * @param baseDate The base date to calculate from (typically today's date)
-     * @param offset Number of days from the base date (0 = today, 1 = tomorrow, etc.)
-     * @return A user-friendly label string like "Today", "Tomorrow", or "Wed 11 19"
+     * Result type: one list of daily forecast objects per requested city
      */
-    private String labelForOffset(Calendar baseDate, int offset) {
-        // Clone the base date so we don't modify the original
-        // Calendar objects are mutable, so cloning prevents side effects
-        Calendar targetDate = (Calendar) baseDate.clone();
+    private class FetchForecastTask extends TaskRuntime.Task<List<List<DailyForecast>>> {
+        // Cities requested in this batch, in the same order as the results
+        private final List<City> locations;
+        private final String url;
         
-        // Add the offset to get the target date
-        // If offset is 0, targetDate stays the same (today)
-        // If offset is 1, targetDate becomes tomorrow, etc.
-        targetDate.add(Calendar.DAY_OF_MONTH, offset);
-        
-        // Check the offset to determine which label format to use
-        if (offset == 0) {
-            // Today - use simple "Today" label
-            return "Today";
-        } else if (offset == 1) {
-            // Tomorrow - use simple "Tomorrow" label
-            return "Tomorrow";
-        } else {
-            // Future days (2+ days away) - use formatted date
-            // Format: "EEE M d" means:
-            //   EEE = Abbreviated day name (Mon, Tue, Wed, etc.)
-            //   M = Month number (1-12, no leading zero)
-            //   d = Day of month (1-31, no leading zero)
-            // Example output: "Wed 11 19" (Wednesday, November 19th)
-            SimpleDateFormat formatter = new SimpleDateFormat("EEE M d", Locale.US);
-            return formatter.format(targetDate.getTime());
-        }
-    }
-
-    /**
-     * AsyncTask to fetch weather forecast data from the Open Meteo API.
-     * 
-     * AsyncTask allows network operations to run in a background thread,
-     * preventing the UI from freezing during the HTTP request.
-     * 
-     * Generic parameters:
-     * - Void: No input parameters needed
-     * - Void: No progress updates published
-     * - List<DailyForecast>: Returns a list of daily forecast objects
-     * 
-     * Note: AsyncTask is deprecated in API 30+ but acceptable for min SDK 24.
-     * Modern apps should use Coroutines, RxJava, or Retrofit instead.
-     */
-    @SuppressWarnings("deprecation")
-    private class FetchForecastTask extends AsyncTask<Void, Void, List<DailyForecast>> {
         // Store error message if the API call fails
         // This will be displayed to the user in onPostExecute()
         private String errorMessage = null;
+        
+        // True if the network failed and the result is an old cached response
+        private boolean stale = false;
+        
+        // Set once the cities' pending marks have been cleared (see releasePending())
+        private final AtomicBoolean pendingReleased = new AtomicBoolean();
+        
+        FetchForecastTask(List<City> locations, String url, int generation) {
+            // The token is cancelled when a newer load supersedes this one
+            super(new CancellationToken(generation));
+            this.locations = locations;
+            this.url = url;
+            // Keep the prefetcher from downloading these cities again while this
+            // load runs (at launch it would otherwise fetch the first city at once)
+            for (City city : locations) {
+                prefetchScheduler.markPending(cityKey(city));
+            }
+            // A load cancelled before it starts never runs doInBackground()
+            token.register(this::releasePending);
+        }
+        
+        /**
+         * Hand the cities back to the prefetcher. Safe to call more than once.
+         */
+        private void releasePending() {
+            if (pendingReleased.compareAndSet(false, true)) {
+                for (City city : locations) {
+                    prefetchScheduler.clearPending(cityKey(city));
+                }
+            }
+        }
+        
+        /**
+         * Called on the main thread when a newer load starts.
+         * 
+         * The result of this load will be discarded either way. If the newer load asks
+         * for a different URL, this load's socket read and parse are aborted too, so the
+         * bandwidth and CPU go to the request that matters. If it is the same URL, the
+         * newer load joins this one's request (FORECAST_FLIGHTS), so it keeps running.
+         * 
+         * @param newerUrl URL of the superseding load
+         */
+        void supersede(String newerUrl) {
+            if (!url.equals(newerUrl)) {
+                Log.d("Forecast", "Cancelling superseded forecast load " + token.generation);
+                token.cancel();
+            }
+        }
 
         /**
          * This method runs in a background thread and performs the actual HTTP request.
          * 
          * It:
-         * 1. Builds the API URL
-         * 2. Opens an HTTP connection
-         * 3. Sends a GET request
-         * 4. Reads the JSON response
-         * 5. Parses the JSON into DailyForecast objects
+         * 1. Uses one API URL for all requested cities
+         * 2. Sends a GET request through the shared WeatherHttpClient
+         *    (or joins an identical request that is already in flight)
+         * 3. Checks the response code
+         * 4. Streams the JSON response into ForecastParser
+         * 5. Returns one list of DailyForecast objects per requested city
          * 
-         * @param voids No parameters needed (Void... means variable number of Void arguments)
-         * @return List of DailyForecast objects, or null if an error occurred
+         * @return One forecast list per city (same order as locations), or null if an error occurred
          */
         @Override
-        protected List<DailyForecast> doInBackground(Void... voids) {
+        protected List<List<DailyForecast>> doInBackground() {
             try {
-                // Step 1: Build the complete API URL with all parameters
-                // buildForecastUrl() constructs the URL with city coordinates and request parameters
-                URL url = new URL(buildForecastUrl());
-                
-                // Step 2: Open an HTTP connection to the API endpoint
-                // HttpURLConnection is Java's built-in HTTP client
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                
-                // Step 3: Set the HTTP method to GET (we're requesting data, not sending)
-                connection.setRequestMethod("GET");
-                
-                // Step 4: Set timeouts to prevent the app from hanging indefinitely
-                // If connection takes longer than 10 seconds, it will throw an exception
-                connection.setConnectTimeout(10000);  // 10 seconds to establish connection
-                connection.setReadTimeout(10000);      // 10 seconds to read response data
-
-                // Step 5: Check the HTTP response code
-                // HTTP_OK (200) means the request was successful
-                // Other codes (404, 500, etc.) indicate errors
-                int responseCode = connection.getResponseCode();
-                if (responseCode != HttpURLConnection.HTTP_OK) {
-                    // Request failed - store error message for display to user
-                    errorMessage = "Server error: " + responseCode;
-                    return null;
-                }
-
-                // Step 6: Read the response body (JSON data)
-                // The API returns JSON text that we need to read line by line
-                // BufferedReader wraps InputStreamReader for efficient reading
-                BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(connection.getInputStream()));
+                // Step 1: The API URL was built by startForecastFetch() from the city coordinates
+                // Step 2: Download and parse, sharing any identical request already in flight
+                // (e.g., a refresh tapped while the launch fetch is still running)
+                // The request runs under the flight's own token, which is cancelled only when
+                // every caller sharing it (this load, a prefetch, ...) has been cancelled
+                ForecastBatch batch = FORECAST_FLIGHTS.execute(url, token,
+                    shared -> fetchForecastBatch(url, locations, shared));
+                stale = batch.stale;
                 
-                // StringBuilder is used to efficiently concatenate all lines of the response
-                // It's more efficient than using String concatenation in a loop
-                StringBuilder response = new StringBuilder();
-                String line;
-                
-                // Read the response line by line until there are no more lines
-                // Each line is appended to the StringBuilder
-                while ((line = reader.readLine()) != null) {
-                    response.append(line);
+                // Mark the cities fresh before releasing them (finally below), so there is
+                // no moment when the prefetcher would find them unmarked and fetch them again
+                // (not for stale data - the prefetcher should keep trying to get fresh data)
+                if (!stale && !isCancelled()) {
+                    long fetchedAt = System.currentTimeMillis();
+                    for (City city : locations) {
+                        prefetchScheduler.markFresh(cityKey(city), fetchedAt);
+                    }
                 }
-                
-                // Step 7: Clean up resources
-                // Close the reader to free memory
-                reader.close();
-                // Disconnect the connection to free network resources
-                connection.disconnect();
-
-                // Step 8: Parse the JSON response string into DailyForecast objects
-                // parseForecastJson() extracts data from JSON and calculates daily averages
-                return parseForecastJson(response.toString());
+                return batch.forecasts;
 
             } catch (Exception e) {
                 // If anything goes wrong (network error, parsing error, etc.),
                 // catch the exception and store an error message
                 // This prevents the app from crashing
-                errorMessage = "Error fetching data: " + e.getMessage();
+                errorMessage = describeFailure("Error fetching data", e);
                 e.printStackTrace();  // Print stack trace for debugging
                 return null;  // Return null to indicate failure
+            } finally {
+                releasePending();
             }
         }
 
-        /**
-         * Parse the JSON response from Open Meteo API and compute daily averages.
-         * 
-         * This is a critical method that:
-         * 1. Parses the JSON structure returned by the API
-         * 2. Groups hourly data points by date
-         * 3. Calculates daily averages for temperature, humidity, wind speed, and rain
-         * 4. Creates DailyForecast objects for each of the next 7 days
-         * 
-         * The API returns hourly data in parallel arrays (one array for time, one for temperature, etc.)
-         * All arrays have the same length, and index i in each array corresponds to the same hour.
-         * 
-         * Example JSON structure:
-         * {
-         *   "hourly": {
-         *     "time": ["2024-01-15T00:00", "2024-01-15T01:00", ...],
-         *     "temperature_2m": [45.2, 44.8, ...],
-         *     "relative_humidity_2m": [65, 67, ...],
-         *     ...
-         *   }
-         * }
-         * 
-         * @param jsonString The complete JSON response string from the API
-         * @return List of DailyForecast objects, one for each of the next 7 days
-         * @throws Exception If JSON parsing fails or data structure is invalid
-         */
-        private List<DailyForecast> parseForecastJson(String jsonString) throws Exception {
-            // Step 1: Parse the JSON string into a JSONObject
-            // This is the root object containing all the API response data
-            JSONObject root = new JSONObject(jsonString);
-            
-            // Step 2: Extract the "hourly" object which contains all hourly weather data
-            // The API nests hourly data under a "hourly" key
-            JSONObject hourly = root.getJSONObject("hourly");
-            
-            // Step 3: Extract arrays for each weather variable
-            // The API returns parallel arrays - index i in each array corresponds to the same hour
-            // getJSONArray() throws exception if key doesn't exist
-            // optJSONArray() returns null if key doesn't exist (for optional fields)
-            
-            JSONArray timeArray = hourly.getJSONArray("time");  // Array of ISO time strings like "2024-01-15T14:00"
-            JSONArray tempArray = hourly.getJSONArray("temperature_2m");  // Array of temperatures in Fahrenheit
-            
-            // Optional arrays (may not always be present in API response)
-            JSONArray humidityArray = hourly.optJSONArray("relative_humidity_2m");  // Humidity percentages
-            JSONArray windArray = hourly.optJSONArray("wind_speed_10m");  // Wind speeds in mph
-            JSONArray rainArray = hourly.optJSONArray("rain");  // Precipitation amounts in mm
-            JSONArray pressureArray = hourly.optJSONArray("surface_pressure");  // Atmospheric pressure in hPa
-            JSONArray visibilityArray = hourly.optJSONArray("visibility");  // Visibility in km
-
-            // Step 4: Create maps to group hourly values by date
-            // Key: date string in format "yyyy-MM-dd" (e.g., "2024-01-15")
-            // Value: List of all hourly values for that date
-            // We need to group by date so we can calculate daily averages later
-            
-            Map<String, List<Double>> dateToTemps = new HashMap<>();      // Maps date -> list of hourly temperatures
-            Map<String, List<Double>> dateToHumidities = new HashMap<>(); // Maps date -> list of hourly humidities
-            Map<String, List<Double>> dateToWinds = new HashMap<>();      // Maps date -> list of hourly wind speeds
-            Map<String, List<Double>> dateToRains = new HashMap<>();     // Maps date -> list of hourly rain amounts
-            Map<String, List<HourlyWeatherData>> dateToHourlyData = new HashMap<>();  // Maps date -> complete hourly data objects
-            
-            // Step 5: Iterate through all hourly data points
-            // Loop through the time array (or temperature array - they should be same length)
-            // For each hour, extract the date and group the values by date
-            for (int i = 0; i < timeArray.length() && i < tempArray.length(); i++) {
-                // Get the time string for this hour (format: "2024-01-15T14:00")
-                String timeString = timeArray.getString(i);
-                
-                // Get the temperature for this hour (already in Fahrenheit from API)
-                double temp = tempArray.getDouble(i);
-                
-                // Extract just the date part from the time string
-                // Time format is "yyyy-MM-ddTHH:mm", so first 10 characters are the date
-                // Example: "2024-01-15T14:00" -> "2024-01-15"
-                String dateKey = timeString.substring(0, 10);
-                
-                // Step 6: Get optional weather values (may be null if not available)
-                // Check if array exists and if index is within bounds before accessing
-                // Use ternary operator: condition ? value_if_true : value_if_false
-                Double humidity = (humidityArray != null && i < humidityArray.length()) 
-                    ? humidityArray.getDouble(i) : null;
-                Double wind = (windArray != null && i < windArray.length()) 
-                    ? windArray.getDouble(i) : null;
-                Double rain = (rainArray != null && i < rainArray.length()) 
-                    ? rainArray.getDouble(i) : null;
-                Double pressure = (pressureArray != null && i < pressureArray.length()) 
-                    ? pressureArray.getDouble(i) : null;
-                Double visibility = (visibilityArray != null && i < visibilityArray.length()) 
-                    ? visibilityArray.getDouble(i) : null;
-                
-                // Step 7: Store complete hourly data object for detailed view
-                // This preserves all hourly data so we can show detailed charts later
-                // Check if we've seen this date before - if not, create a new list
-                if (!dateToHourlyData.containsKey(dateKey)) {
-                    dateToHourlyData.put(dateKey, new ArrayList<>());
-                }
-                // Add this hour's complete data to the list for this date
-                dateToHourlyData.get(dateKey).add(
-                    new HourlyWeatherData(timeString, temp, humidity, wind, rain, pressure, visibility));
-                
-                // Step 8: Group temperature values by date for averaging
-                // Check if this is the first hour we've seen for this date
-                if (!dateToTemps.containsKey(dateKey)) {
-                    // Create a new list to store temperatures for this date
-                    dateToTemps.put(dateKey, new ArrayList<>());
-                }
-                // Add this hour's temperature to the list for this date
-                dateToTemps.get(dateKey).add(temp);
-                
-                // Step 9: Group humidity values by date (if available)
-                // Only add if humidity value is not null (some hours may not have humidity data)
-                if (humidity != null) {
-                    if (!dateToHumidities.containsKey(dateKey)) {
-                        dateToHumidities.put(dateKey, new ArrayList<>());
-                    }
-                    dateToHumidities.get(dateKey).add(humidity);
-                }
-                
-                // Step 10: Group wind speed values by date (if available)
-                if (wind != null) {
-                    if (!dateToWinds.containsKey(dateKey)) {
-                        dateToWinds.put(dateKey, new ArrayList<>());
-                    }
-                    dateToWinds.get(dateKey).add(wind);
-                }
-                
-                // Step 11: Group rain values by date (if available)
-                if (rain != null) {
-                    if (!dateToRains.containsKey(dateKey)) {
-                        dateToRains.put(dateKey, new ArrayList<>());
-                    }
-                    dateToRains.get(dateKey).add(rain);
-                }
-            }
-
-            // ========== STEP 12: CALCULATE DAILY AVERAGES ==========
-            // Now that we've grouped all hourly data by date, we need to:
-            // 1. Calculate the average for each weather variable per day
-            // 2. Create DailyForecast objects with these averages
-            // 3. Generate user-friendly labels ("Today", "Tomorrow", etc.)
-            
-            // Get today's date to calculate day offsets
-            Calendar today = Calendar.getInstance();
-            
-            // Create list to hold the final forecast objects (one per day)
-            List<DailyForecast> forecasts = new ArrayList<>();
-            
-            // Get all unique dates we have data for and sort them chronologically
-            // The dates are strings like "2024-01-15", so sorting alphabetically also sorts chronologically
-            List<String> sortedDates = new ArrayList<>(dateToTemps.keySet());
-            sortedDates.sort(String::compareTo);  // Sort in ascending order (earliest to latest)
-            
-            // Limit processing to 7 days (the API may return more, but we only display 7)
-            // Math.min() ensures we don't go out of bounds if API returns fewer than 7 days
-            int daysToProcess = Math.min(7, sortedDates.size());
-            
-            // Process each day to calculate averages
-            for (int i = 0; i < daysToProcess; i++) {
-                // Get the date string for this day (e.g., "2024-01-15")
-                String dateKey = sortedDates.get(i);
-                
-                // Get the list of all hourly temperatures for this date
-                // This list contains 24 values (one for each hour of the day)
-                List<Double> temps = dateToTemps.get(dateKey);
-                
-                // ========== CALCULATE TEMPERATURE AVERAGE ==========
-                // Sum all hourly temperatures for this day
-                double tempSum = 0.0;
-                for (Double temp : temps) {
-                    tempSum += temp;  // Add each hourly temperature to the sum
-                }
-                // Calculate average by dividing sum by number of hours
-                // This gives us the mean temperature for the day
-                double avgTemp = tempSum / temps.size();
-                
-                // ========== CALCULATE HUMIDITY AVERAGE ==========
-                // Humidity is optional, so check if we have data for this date
-                Double avgHumidity = null;
-                if (dateToHumidities.containsKey(dateKey)) {
-                    // Get list of all hourly humidity values for this date
-                    List<Double> humidities = dateToHumidities.get(dateKey);
-                    // Sum all humidity values
-                    double humiditySum = 0.0;
-                    for (Double h : humidities) {
-                        humiditySum += h;
-                    }
-                    // Calculate average humidity percentage
-                    avgHumidity = humiditySum / humidities.size();
-                }
-                // If no humidity data, avgHumidity remains null
-                
-                // ========== CALCULATE WIND SPEED AVERAGE ==========
-                // Wind speed is optional, so check if we have data
-                Double avgWind = null;
-                if (dateToWinds.containsKey(dateKey)) {
-                    // Get list of all hourly wind speeds for this date
-                    List<Double> winds = dateToWinds.get(dateKey);
-                    // Sum all wind speed values
-                    double windSum = 0.0;
-                    for (Double w : winds) {
-                        windSum += w;
-                    }
-                    // Calculate average wind speed in mph
-                    avgWind = windSum / winds.size();
-                }
-                
-                // ========== CALCULATE RAIN AVERAGE ==========
-                // Rain is optional, so check if we have data
-                Double avgRain = null;
-                if (dateToRains.containsKey(dateKey)) {
-                    // Get list of all hourly rain amounts for this date
-                    List<Double> rains = dateToRains.get(dateKey);
-                    // Sum all rain values (this gives total rain for the day)
-                    double rainSum = 0.0;
-                    for (Double r : rains) {
-                        rainSum += r;
-                    }
-                    // Calculate average rain amount in mm
-                    // Note: For rain, we might want total instead of average, but API provides hourly amounts
-                    avgRain = rainSum / rains.size();
-                }
-                
-                // ========== GENERATE USER-FRIENDLY DAY LABEL ==========
-                // Calculate how many days from today this date is
-                // This allows us to show "Today", "Tomorrow", or a formatted date
-                
-                // Format today's date as "yyyy-MM-dd" to compare with dateKey
-                String todayDateStr = String.format(Locale.US, "%04d-%02d-%02d",
-                    today.get(Calendar.YEAR),                    // 4-digit year
-                    today.get(Calendar.MONTH) + 1,                // Month (Calendar uses 0-11, so add 1)
-                    today.get(Calendar.DAY_OF_MONTH));            // Day of month
-                
-                // Calculate the offset (number of days from today)
-                int offset = 0;  // Default to 0 (today)
-                if (!dateKey.equals(todayDateStr)) {
-                    // This date is not today, so calculate the difference
-                    // Parse the dateKey string into a Calendar object
-                    Calendar targetDate = Calendar.getInstance();
-                    String[] parts = dateKey.split("-");  // Split "2024-01-15" into ["2024", "01", "15"]
-                    targetDate.set(
-                        Integer.parseInt(parts[0]),      // Year
-                        Integer.parseInt(parts[1]) - 1,  // Month (Calendar uses 0-11)
-                        Integer.parseInt(parts[2]));     // Day
-                    
-                    // Calculate difference in milliseconds
-                    long diffMillis = targetDate.getTimeInMillis() - today.getTimeInMillis();
-                    // Convert milliseconds to days
-                    // 24 hours * 60 minutes * 60 seconds * 1000 milliseconds = milliseconds per day
-                    offset = (int) (diffMillis / (24 * 60 * 60 * 1000));
-                }
-                
-                // Generate a human-readable label based on the offset
-                // labelForOffset() returns "Today", "Tomorrow", or "Wed 11 19"
-                String label = labelForOffset(today, offset);
-                
-                // Get the complete hourly data for this day (for detailed view)
-                List<HourlyWeatherData> hourlyDataForDay = dateToHourlyData.get(dateKey);
-                
-                // Create a DailyForecast object with all the calculated averages and hourly data
-                // This object will be displayed in the UI
-                forecasts.add(new DailyForecast(label, avgTemp, avgHumidity, avgWind, avgRain, hourlyDataForDay));
-            }
-
-            // Return the list of daily forecasts (one for each of the next 7 days)
-            return forecasts;
-        }
-
         /**
          * Called on the main UI thread after doInBackground() completes.
          * 
          * This method runs on the main thread, so it's safe to update UI elements here.
          * It receives the result from doInBackground() and updates the UI accordingly.
          * 
-         * @param forecasts The list of DailyForecast objects returned from doInBackground(),
-         *                  or null if an error occurred
+         * @param batch The per-city forecast lists returned from doInBackground(),
+         *              or null if an error occurred
          */
         @Override
-        protected void onPostExecute(List<DailyForecast> forecasts) {
+        protected void onPostExecute(List<List<DailyForecast>> batch) {
+            // A newer load was started after this one - its result is stale,
+            // and the newer load owns the progress bar and error text
+            if (token.generation != forecastGeneration) {
+                Log.d("Forecast", "Discarding result of superseded forecast load " + token.generation);
+                return;
+            }
+            activeForecastTask = null;
+            
             // Hide the progress bar since data loading is complete
             progressBar.setVisibility(View.GONE);
             
@@ -1285,7 +1315,7 @@ public class MainActivity extends AppCompatActivity {
             refreshButton.setEnabled(true);
 
             // Check if the API call failed or returned no data
-            if (forecasts == null || forecasts.isEmpty()) {
+            if (batch == null || batch.isEmpty()) {
                 // Display error message to the user
                 // Use the error message from doInBackground() if available,
                 // otherwise show a generic error message
@@ -1295,18 +1325,242 @@ public class MainActivity extends AppCompatActivity {
             }
 
             // API call succeeded - hide any previous error messages
-            errorTextView.setVisibility(View.GONE);
+            // If the network failed and WeatherHttpClient fell back to its cache, say so,
+            // so the user knows the data may be old instead of refreshing again and again
+            if (stale) {
+                errorTextView.setText(STALE_DATA_NOTICE);
+                errorTextView.setVisibility(View.VISIBLE);
+            } else {
+                errorTextView.setVisibility(View.GONE);
+            }
+            
+            // Log how effective the response cache is
+            DiskResponseCache cache = WeatherHttpClient.getInstance().getCache();
+            if (cache != null) {
+                Log.d("Forecast", "HTTP cache hits=" + cache.hitCount() + ", misses=" + cache.missCount()
+                      + ", evictions=" + cache.evictionCount() + ", size=" + cache.size() + " bytes");
+            }
+            Log.d("Forecast", "Upstream resilience: " + WeatherHttpClient.getInstance().resilienceStats());
+            
+            // Fan the batch out by city so switching cities later needs no request
+            // (doInBackground() already marked them fresh for the prefetcher)
+            for (int i = 0; i < batch.size(); i++) {
+                forecastRepository.publish(locations.get(i), batch.get(i));
+            }
+            
+            // The user may have switched cities while this request was running,
+            // so look the current city up instead of assuming it was in this batch
+            ForecastRepository.Entry entry = forecastRepository.latest(getCityKey());
+            if (entry == null || entry.forecasts.isEmpty()) {
+                return;
+            }
             
-            // Store forecasts in instance variable so we can pass them to detailed view
-            // when user clicks on a day card
-            currentForecasts = forecasts;
+            // Store the forecast in an instance variable so the detailed view can be
+            // opened on one of its days when user clicks on a day card
+            currentForecast = entry;
             
             // Update all UI elements with the forecast data
             // This method populates all the TextViews with calculated averages
-            bindForecastData(forecasts);
+            bindForecastData(entry.forecasts);
+        }
+    }
+
+    /**
+     * Turn a failed request into a message for the user.
+     * 
+     * Retries and circuit breaking happen inside WeatherHttpClient; by the time an
+     * exception gets here the request has really failed, so tell the user why in
+     * plain words instead of showing the raw exception text.
+     * 
+     * @param action What we were doing (e.g., "Error fetching data")
+     * @param e The exception that ended the request
+     * @return A message suitable for errorTextView or predictionTextView
+     */
+    private static String describeFailure(String action, Exception e) {
+        if (e instanceof CircuitBreaker.OpenException) {
+            return "Weather service is temporarily unavailable. Please try again in a minute.";
+        }
+        if (e instanceof SocketTimeoutException) {
+            return "Weather service is not responding. Please try again later.";
+        }
+        if (e instanceof UnknownHostException || e instanceof ConnectException) {
+            return "Can't reach the weather service. Check your internet connection.";
+        }
+        return action + ": " + e.getMessage();
+    }
+    
+    /**
+     * Task that loads the saved forecast snapshots from disk on startup.
+     * 
+     * The snapshots are shown immediately while FetchForecastTask revalidates them
+     * over the network. A snapshot never replaces data that is already on screen or
+     * already fetched, so it doesn't matter which of the two tasks finishes first.
+     */
+    private class LoadSnapshotsTask extends TaskRuntime.Task<Map<String, List<DailyForecast>>> {
+        private final List<City> snapshotCities;
+        
+        LoadSnapshotsTask(List<City> snapshotCities) {
+            this.snapshotCities = snapshotCities;
+        }
+        
+        @Override
+        protected Map<String, List<DailyForecast>> doInBackground() {
+            File snapshotDir = new File(getFilesDir(), "forecasts");
+            Calendar today = Calendar.getInstance();
+            Map<String, List<DailyForecast>> snapshots = new HashMap<>();
+            for (City city : snapshotCities) {
+                List<DailyForecast> forecasts = ForecastSnapshotStore.load(snapshotDir, cityKey(city), today);
+                if (forecasts != null) {
+                    snapshots.put(cityKey(city), forecasts);
+                }
+            }
+            return snapshots;
+        }
+        
+        @Override
+        protected void onPostExecute(Map<String, List<DailyForecast>> snapshots) {
+            Log.d("Forecast", "Loaded " + snapshots.size() + " forecast snapshots");
+            for (City city : snapshotCities) {
+                List<DailyForecast> snapshot = snapshots.get(cityKey(city));
+                if (snapshot != null) {
+                    forecastRepository.publishIfAbsent(city, snapshot);
+                }
+            }
+            
+            // Render the current city's snapshot unless fresher data is already showing
+            ForecastRepository.Entry entry = forecastRepository.latest(getCityKey());
+            if (currentForecast != null || entry == null) {
+                return;
+            }
+            currentForecast = entry;
+            bindForecastData(entry.forecasts);
+            if (activeForecastTask != null) {
+                // Still revalidating - keep the temperatures dimmed like during any refresh
+                for (TextView temp : dayTemps) {
+                    temp.setAlpha(0.5f);
+                }
+            }
+        }
+    }
+
+    /**
+     * Download the forecast for a (possibly multi-city) URL and parse it.
+     * Runs on a background thread, at most once at a time per URL (see FORECAST_FLIGHTS).
+     * 
+     * @param url The forecast URL from buildForecastUrl()
+     * @param locations Cities in the request, in order
+     * @param token Cancelled if a newer load supersedes this one (aborts the read and parse)
+     * @return One forecast list per city, in request order, flagged stale if it came
+     *         from the cache because the network failed
+     * @throws IOException If the request fails or the response cannot be parsed
+     */
+    private ForecastBatch fetchForecastBatch(String url, List<City> locations,
+                                             CancellationToken token) throws IOException {
+        int expectedLocations = locations.size();
+        // Send a GET request through the current transport - normally the shared
+        // HTTP client, or recorded responses in replay mode (see WeatherTransport)
+        // The client reuses an already-open (keep-alive) connection to the API host
+        // when one is available, so repeated refreshes skip the TCP/TLS handshake.
+        // 10 second connect/read timeouts prevent the app from hanging indefinitely.
+        // Closing the response (try-with-resources) returns the socket to the pool.
+        try (WeatherHttpClient.Response response =
+                 WeatherTransport.current().get(url, 10000, token)) {
+
+            // Check the HTTP response code
+            // HTTP_OK (200) means the request was successful
+            // Other codes (404, 500, etc.) indicate errors
+            if (response.code != HttpURLConnection.HTTP_OK) {
+                // Request failed - the message is shown to the user
+                throw new IOException("Server error: " + response.code);
+            }
+
+            // If the server said 304 Not Modified and we already parsed this
+            // exact response today, reuse those forecasts - no download, no parse
+            Calendar today = Calendar.getInstance();
+            if (response.notModified) {
+                List<List<DailyForecast>> unchanged = getParsedForecasts(url, today);
+                if (unchanged != null) {
+                    Log.d("Forecast", "Forecast not modified, reusing parsed data");
+                    return new ForecastBatch(unchanged, false);
+                }
+            }
+
+            // Stream the response body straight into the forecast parser
+            // ForecastParser reads the JSON once, token by token, and adds every hourly
+            // value directly into its day's running totals - the payload is never
+            // held as a String or as a JSONObject tree.
+            // Keep at most FORECAST_DAYS days (we have 7 day cards on screen)
+            List<List<DailyForecast>> forecasts =
+                ForecastParser.parseBatch(response.body(), today, FORECAST_DAYS);
+            if (forecasts.size() != expectedLocations) {
+                throw new IOException("Expected " + expectedLocations + " forecasts but got " + forecasts.size());
+            }
+            token.throwIfCancelled();
+            if (response.stale) {
+                // The network failed and this is an old cached body - show it, but don't
+                // let it overwrite the snapshots or stand in for a fresh parse of the URL
+                Log.w("Forecast", "Network unavailable, showing cached forecast");
+                return new ForecastBatch(forecasts, true);
+            }
+            putParsedForecasts(url, today, forecasts);
+            
+            // Save each city's forecast as its snapshot for the next cold start
+            File snapshotDir = new File(getFilesDir(), "forecasts");
+            for (int i = 0; i < forecasts.size(); i++) {
+                try {
+                    ForecastSnapshotStore.save(snapshotDir, cityKey(locations.get(i)), today, forecasts.get(i));
+                } catch (IOException e) {
+                    Log.w("Forecast", "Could not save forecast snapshot", e);
+                }
+            }
+            return new ForecastBatch(forecasts, false);
+        }
+    }
+
+    /**
+     * Result of fetchForecastBatch(): one forecast list per city, and whether it
+     * is an old cached response served because the network failed.
+     */
+    private static final class ForecastBatch {
+        final List<List<DailyForecast>> forecasts;
+        final boolean stale;
+        
+        ForecastBatch(List<List<DailyForecast>> forecasts, boolean stale) {
+            this.forecasts = forecasts;
+            this.stale = stale;
         }
     }
 
+    /**
+     * Look up forecasts previously parsed from a URL, if they were labelled for today.
+     * Called from the background fetch thread.
+     */
+    private synchronized List<List<DailyForecast>> getParsedForecasts(String url, Calendar today) {
+        return dateKey(today).equals(parsedForecastsDate) ? parsedForecasts.get(url) : null;
+    }
+    
+    /**
+     * Remember the forecasts parsed from a URL so a later 304 can reuse them.
+     */
+    private synchronized void putParsedForecasts(String url, Calendar today,
+                                                 List<List<DailyForecast>> forecasts) {
+        String date = dateKey(today);
+        if (!date.equals(parsedForecastsDate)) {
+            // New day - every stored label ("Today", "Tomorrow") is now wrong
+            parsedForecasts.clear();
+            parsedForecastsDate = date;
+        }
+        parsedForecasts.put(url, forecasts);
+    }
+    
+    /**
+     * Format a date as "yyyy-MM-dd".
+     */
+    private static String dateKey(Calendar date) {
+        return String.format(Locale.US, "%04d-%02d-%02d",
+            date.get(Calendar.YEAR), date.get(Calendar.MONTH) + 1, date.get(Calendar.DAY_OF_MONTH));
+    }
+
     /**
      * Update the UI with forecast data by binding DailyForecast objects to TextViews.
      * 
@@ -1432,11 +1686,25 @@ public class MainActivity extends AppCompatActivity {
         
         // Need to train or retrain model
         Log.d("TemperaturePrediction", "No valid cached model, training new model");
+        startTraining();
+    }
+    
+    /**
+     * Sync the current city's history and train a new model in the background,
+     * then show the prediction.
+     * 
+     * Two stages:
+     * 1. FetchHistoricalDataTask syncs the archive on the IO pool at LOW priority,
+     *    so a forecast refresh never queues behind the (long) archive download
+     * 2. PredictTemperatureTask trains the model on the CPU pool
+     */
+    private void startTraining() {
         predictionProgressBar.setVisibility(View.VISIBLE);
         predictionTextView.setText("Training model...");
         predictButton.setEnabled(false);
         
-        new PredictTemperatureTask().execute();
+        TaskRuntime.getInstance().execute(new FetchHistoricalDataTask(currentCity),
+            TaskRuntime.Pool.IO, TaskRuntime.Priority.LOW);
     }
     
     /**
@@ -1465,24 +1733,14 @@ public class MainActivity extends AppCompatActivity {
     /**
      * Build the Open Meteo API URL for historical weather data.
      * Uses the archive API endpoint for past data.
-     * Fetches at least 120 days of past data to ensure we have 100+ data points.
+     * Only the days missing from the city's HistoryStore are requested
+     * (see FetchHistoricalDataTask.syncHistory()).
+     * @param city The city to request
+     * @param startDateStr First day to request ("yyyy-MM-dd")
+     * @param endDateStr Last day to request ("yyyy-MM-dd")
      * @return The complete API URL string for historical data
      */
-    private String buildHistoricalDataUrl() {
-        if (currentCity == null) {
-            currentCity = new City("Austin", "TX", 30.28, -97.76);
-        }
-        
-        Calendar endDate = Calendar.getInstance();
-        endDate.add(Calendar.DAY_OF_YEAR, -1); // Yesterday
-        Calendar startDate = (Calendar) endDate.clone();
-        startDate.add(Calendar.DAY_OF_YEAR, -120); // 120 days ago
-        
-        String startDateStr = String.format(Locale.US, "%04d-%02d-%02d", 
-            startDate.get(Calendar.YEAR), startDate.get(Calendar.MONTH) + 1, startDate.get(Calendar.DAY_OF_MONTH));
-        String endDateStr = String.format(Locale.US, "%04d-%02d-%02d",
-            endDate.get(Calendar.YEAR), endDate.get(Calendar.MONTH) + 1, endDate.get(Calendar.DAY_OF_MONTH));
-        
+    static String buildHistoricalDataUrl(City city, String startDateStr, String endDateStr) {
         // Use the archive API endpoint for historical data
         // According to Open Meteo docs: https://open-meteo.com/en/docs/historical-weather-api
         // Archive API format: archive-api.open-meteo.com/v1/archive
@@ -1490,17 +1748,18 @@ public class MainActivity extends AppCompatActivity {
         // Note: Archive API returns temperature in Celsius (no temperature_unit parameter)
         // We'll convert to Fahrenheit after receiving the data
         // Timezone: Use UTC for reliability (always supported by API)
-        String url = "https://archive-api.open-meteo.com/v1/archive" +
-                "?latitude=" + currentCity.latitude +
-                "&longitude=" + currentCity.longitude +
+        String url = WeatherHttpClient.ARCHIVE_ORIGIN + "/v1/archive" +
+                "?latitude=" + city.latitude +
+                "&longitude=" + city.longitude +
                 "&hourly=temperature_2m" +
                 "&start_date=" + startDateStr +
                 "&end_date=" + endDateStr +
-                "&timezone=UTC";
+                "&timezone=UTC" +
+                // Times as epoch seconds, bucketed into days without parsing strings
+                "&timeformat=unixtime";
         
         Log.d("TemperaturePrediction", "Historical data URL: " + url);
-        Log.d("TemperaturePrediction", "Date range: " + startDateStr + " to " + endDateStr + 
-              " (" + (120) + " days)");
+        Log.d("TemperaturePrediction", "Date range: " + startDateStr + " to " + endDateStr);
         return url;
     }
     
@@ -1510,345 +1769,255 @@ public class MainActivity extends AppCompatActivity {
      */
     private void testApiAndModel() {
         Log.d("TemperaturePrediction", "=== TEST: Starting API and Model Test ===");
+        City city = currentCity;
         
-        new Thread(() -> {
-            try {
-                // Test 1: Build URL
-                String url = buildHistoricalDataUrl();
-                Log.d("TemperaturePrediction", "TEST: URL built successfully: " + url);
-                
-                // Test 2: Fetch data
-                FetchHistoricalDataTask fetchTask = new FetchHistoricalDataTask();
-                List<HistoricalDataPoint> data = fetchTask.doInBackground();
-                
-                if (data == null || data.isEmpty()) {
+        // Test 1: Sync and load historical data (IO pool)
+        TaskRuntime.getInstance().execute(new FetchHistoricalDataTask(city) {
+            @Override
+            protected void onPostExecute(HistoryStore data) {
+                if (data == null || data.size() == 0) {
                     Log.e("TemperaturePrediction", "TEST FAILED: No data returned. Error: " + 
-                          (fetchTask.errorMessage != null ? fetchTask.errorMessage : "Unknown"));
+                          (errorMessage != null ? errorMessage : "Unknown"));
                     return;
                 }
                 
                 Log.d("TemperaturePrediction", "TEST: API call successful, received " + data.size() + " data points");
                 
-                // Test 3: Train model
-                TemperatureModel model = trainModel(data);
-                
-                if (model == null) {
-                    Log.e("TemperaturePrediction", "TEST FAILED: Model training failed");
-                    return;
-                }
-                
-                Log.d("TemperaturePrediction", "TEST: Model training successful");
-                Log.d("TemperaturePrediction", "TEST: Model parameters - slope=" + model.slope + 
-                      ", intercept=" + model.intercept);
-                
-                // Test 4: Make prediction
-                Calendar tomorrow = Calendar.getInstance();
-                tomorrow.add(Calendar.DAY_OF_YEAR, 1);
-                int tomorrowDayOfYear = tomorrow.get(Calendar.DAY_OF_YEAR);
-                double prediction = model.predict(tomorrowDayOfYear);
-                
-                Log.d("TemperaturePrediction", "TEST: Prediction successful - " + prediction + "°F for dayOfYear " + tomorrowDayOfYear);
-                Log.d("TemperaturePrediction", "=== TEST: All tests passed ===");
-                
-            } catch (Exception e) {
-                Log.e("TemperaturePrediction", "TEST FAILED: Exception occurred", e);
+                // Tests 3 and 4: Train model and make a prediction (CPU pool)
+                TaskRuntime.getInstance().execute(new TaskRuntime.Task<Void>() {
+                    @Override
+                    protected Void doInBackground() {
+                        TemperatureModel model = trainModel(city, data);
+                        
+                        if (model == null) {
+                            Log.e("TemperaturePrediction", "TEST FAILED: Model training failed");
+                            return null;
+                        }
+                        
+                        Log.d("TemperaturePrediction", "TEST: Model training successful");
+                        Log.d("TemperaturePrediction", "TEST: Model parameters - slope=" + model.slope + 
+                              ", intercept=" + model.intercept);
+                        
+                        Calendar tomorrow = Calendar.getInstance();
+                        tomorrow.add(Calendar.DAY_OF_YEAR, 1);
+                        int tomorrowDayOfYear = tomorrow.get(Calendar.DAY_OF_YEAR);
+                        double prediction = model.predict(tomorrowDayOfYear);
+                        
+                        Log.d("TemperaturePrediction", "TEST: Prediction successful - " + prediction + "°F for dayOfYear " + tomorrowDayOfYear);
+                        Log.d("TemperaturePrediction", "=== TEST: All tests passed ===");
+                        return null;
+                    }
+                }, TaskRuntime.Pool.CPU, TaskRuntime.Priority.LOW);
             }
-        }).start();
+        }, TaskRuntime.Pool.IO, TaskRuntime.Priority.LOW);
     }
 
     /**
-     * Data class to hold historical daily temperature data.
+     * Task to sync historical weather data from the Open Meteo archive.
+     * When it succeeds, PredictTemperatureTask trains the model on the synced store.
      */
-    private static class HistoricalDataPoint {
-        final int dayOfYear;
-        final double temperature;
-        final String date;
-
-        HistoricalDataPoint(int dayOfYear, double temperature, String date) {
-            this.dayOfYear = dayOfYear;
-            this.temperature = temperature;
-            this.date = date;
+    private class FetchHistoricalDataTask extends TaskRuntime.Task<HistoryStore> {
+        String errorMessage = null;
+        
+        // City to sync (captured at start, in case the user switches city)
+        private final City city;
+        
+        FetchHistoricalDataTask(City city) {
+            this.city = city;
         }
-    }
-
-    /**
-     * AsyncTask to fetch historical weather data from Open Meteo API.
-     * Note: AsyncTask is deprecated in API 30+, but acceptable for this assignment (min SDK 24).
-     */
-    @SuppressWarnings("deprecation")
-    private class FetchHistoricalDataTask extends AsyncTask<Void, Void, List<HistoricalDataPoint>> {
-        String errorMessage = null;  // Package-private for access from PredictTemperatureTask
 
         @Override
-        protected List<HistoricalDataPoint> doInBackground(Void... voids) {
+        protected HistoryStore doInBackground() {
             Log.d("TemperaturePrediction", "FetchHistoricalDataTask.doInBackground() started");
             try {
-                // Build URL and open connection
-                URL url = new URL(buildHistoricalDataUrl());
-                Log.d("TemperaturePrediction", "Opening connection to: " + url.toString());
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("GET");
-                connection.setConnectTimeout(15000); // 15 seconds
-                connection.setReadTimeout(15000);
-
-                // Check response code
-                int responseCode = connection.getResponseCode();
-                Log.d("TemperaturePrediction", "Response code: " + responseCode);
-                if (responseCode != HttpURLConnection.HTTP_OK) {
-                    // Read error response body for more details
-                    String errorBody = "";
-                    try {
-                        BufferedReader errorReader = new BufferedReader(
-                            new InputStreamReader(connection.getErrorStream()));
-                        StringBuilder errorResponse = new StringBuilder();
-                        String errorLine;
-                        while ((errorLine = errorReader.readLine()) != null) {
-                            errorResponse.append(errorLine);
-                        }
-                        errorReader.close();
-                        errorBody = errorResponse.toString();
-                        Log.e("TemperaturePrediction", "Error response body: " + errorBody);
-                    } catch (Exception e) {
-                        Log.e("TemperaturePrediction", "Could not read error stream", e);
-                    }
-                    
-                    errorMessage = "Server error: " + responseCode;
-                    if (!errorBody.isEmpty()) {
-                        errorMessage += " - " + errorBody;
-                    }
-                    Log.e("TemperaturePrediction", "HTTP error: " + responseCode + ", message: " + errorMessage);
-                    return null;
-                }
-
-                // Read response
-                BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(connection.getInputStream()));
-                StringBuilder response = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    response.append(line);
-                }
-                reader.close();
-                connection.disconnect();
-
-                Log.d("TemperaturePrediction", "Response received, length: " + response.length());
-                
-                // Parse JSON
-                return parseHistoricalJson(response.toString());
+                // One sync per city at a time - concurrent callers share its result
+                return HISTORY_FLIGHTS.execute(cityKey(city), this::syncHistory);
 
             } catch (Exception e) {
-                errorMessage = "Error fetching historical data: " + e.getMessage();
+                errorMessage = describeFailure("Error fetching historical data", e);
                 Log.e("TemperaturePrediction", "Exception in FetchHistoricalDataTask", e);
                 e.printStackTrace();
                 return null;
             }
         }
-
+        
         /**
-         * Parse the JSON response and compute daily averages.
-         * @param jsonString The JSON response string
-         * @return List of HistoricalDataPoint objects with dayOfYear and temperature
+         * Hand the synced store to the CPU pool for training, or report the failure.
          */
-        private List<HistoricalDataPoint> parseHistoricalJson(String jsonString) throws Exception {
-            Log.d("TemperaturePrediction", "parseHistoricalJson() started");
-            JSONObject root = new JSONObject(jsonString);
-            JSONObject hourly = root.getJSONObject("hourly");
-            
-            JSONArray timeArray = hourly.getJSONArray("time");
-            JSONArray tempArray = hourly.getJSONArray("temperature_2m");
-
-            Log.d("TemperaturePrediction", "Found " + timeArray.length() + " hourly data points");
-            
-            // Validate arrays have data
-            if (timeArray.length() == 0 || tempArray.length() == 0) {
-                throw new Exception("Empty data arrays from API");
-            }
-            
-            if (timeArray.length() != tempArray.length()) {
-                Log.w("TemperaturePrediction", "Array length mismatch: time=" + timeArray.length() + 
-                      ", temp=" + tempArray.length());
+        @Override
+        protected void onPostExecute(HistoryStore store) {
+            if (store == null || store.size() == 0) {
+                predictionProgressBar.setVisibility(View.GONE);
+                predictButton.setEnabled(true);
+                if (cityKey(city).equals(getCityKey())) {
+                    String message = errorMessage != null ? errorMessage : "No historical data available";
+                    Log.e("TemperaturePrediction", "No historical data: " + message);
+                    predictionTextView.setText("Error: " + message);
+                }
+                return;
             }
+            Log.d("TemperaturePrediction", "API returned " + store.size() + " historical data points");
+            TaskRuntime.getInstance().execute(new PredictTemperatureTask(city, store),
+                TaskRuntime.Pool.CPU, TaskRuntime.Priority.NORMAL);
+        }
 
-            // Group hourly values by date (yyyy-MM-dd)
-            Map<String, List<Double>> dateToTemps = new HashMap<>();
-            int validPoints = 0;
-            int invalidPoints = 0;
-            
-            for (int i = 0; i < timeArray.length() && i < tempArray.length(); i++) {
+        /**
+         * Bring the city's local HistoryStore up to date for the training window.
+         * 
+         * Steps:
+         * 1. Drop stored days outside the HISTORY_WINDOW_DAYS days ending yesterday
+         * 2. Ask the store which day is the first one still missing
+         * 3. Download only [first missing day, yesterday] from the archive (usually a few days)
+         * 4. Append the new days and save the store
+         * 
+         * If the download fails but the store already holds enough days, the stored
+         * days are used - a slightly stale window still trains a useful model.
+         * 
+         * @return The synced store (scan it to read the window, oldest first)
+         */
+        private HistoryStore syncHistory() throws Exception {
+            HistoryStore store = HistoryStore.open(new File(getFilesDir(), "history"), cityKey(city));
+            
+            Calendar yesterday = Calendar.getInstance();
+            yesterday.add(Calendar.DAY_OF_YEAR, -1);
+            int endDay = HistoricalAggregator.epochDay(dateKey(yesterday));
+            // Inclusive on both ends: [windowStart, endDay] is exactly HISTORY_WINDOW_DAYS days
+            int windowStart = endDay - HISTORY_WINDOW_DAYS + 1;
+            
+            int evicted = store.evictBefore(windowStart);
+            int fromDay = store.missingFrom(windowStart);
+            Log.d("TemperaturePrediction", "History store has " + store.size() + " days (evicted " + evicted
+                  + "), missing from " + HistoricalAggregator.dateString(fromDay));
+            
+            if (fromDay <= endDay) {
+                String url = buildHistoricalDataUrl(city,
+                    HistoricalAggregator.dateString(fromDay), HistoricalAggregator.dateString(endDay));
                 try {
-                    String timeString = timeArray.getString(i);
-                    
-                    // Validate time string format
-                    if (timeString == null || timeString.length() < 10) {
-                        Log.w("TemperaturePrediction", "Invalid time string at index " + i + ": " + timeString);
-                        invalidPoints++;
-                        continue;
-                    }
-                    
-                    double tempCelsius = tempArray.getDouble(i);
-                    
-                    // Validate temperature is reasonable (not NaN or infinite)
-                    if (Double.isNaN(tempCelsius) || Double.isInfinite(tempCelsius)) {
-                        Log.w("TemperaturePrediction", "Invalid temperature at index " + i + ": " + tempCelsius);
-                        invalidPoints++;
-                        continue;
+                    downloadHistoricalData(url, store);
+                } catch (IOException e) {
+                    // Recent days may simply not be published yet - keep what we have
+                    if (store.size() < 100) {
+                        throw e;
                     }
-                    
-                    // Archive API returns temperature in Celsius, convert to Fahrenheit
-                    double tempFahrenheit = (tempCelsius * 9.0 / 5.0) + 32.0;
-                    
-                    // Extract date part (first 10 characters: "yyyy-MM-dd")
-                    String dateKey = timeString.substring(0, 10);
-                    
-                    if (!dateToTemps.containsKey(dateKey)) {
-                        dateToTemps.put(dateKey, new ArrayList<>());
-                    }
-                    dateToTemps.get(dateKey).add(tempFahrenheit);
-                    validPoints++;
-                    
-                } catch (Exception e) {
-                    Log.w("TemperaturePrediction", "Error processing data point " + i + ": " + e.getMessage());
-                    invalidPoints++;
+                    Log.w("TemperaturePrediction", "History sync failed, using " + store.size()
+                          + " stored days: " + e.getMessage());
                 }
+                store.save();
             }
             
-            Log.d("TemperaturePrediction", "Processed " + validPoints + " valid points, " + invalidPoints + " invalid points");
+            logHistoryStats(store);
+            return store;
+        }
 
-            Log.d("TemperaturePrediction", "Grouped into " + dateToTemps.size() + " unique dates");
-            
-            if (dateToTemps.isEmpty()) {
-                throw new Exception("No valid dates found in API response");
-            }
+        /**
+         * Send the archive request through the current transport (normally the
+         * shared keep-alive client) and
+         * stream the days it returns into the store.
+         * @param url The archive URL
+         * @param store Receives each downloaded day
+         */
+        private void downloadHistoricalData(String url, HistoryStore store) throws Exception {
+            Log.d("TemperaturePrediction", "Opening connection to: " + url);
+            try (WeatherHttpClient.Response response =
+                     WeatherTransport.current().get(url, 15000, null)) { // 15 seconds
 
-            // Compute daily averages and create data points
-            List<HistoricalDataPoint> dataPoints = new ArrayList<>();
-            Calendar cal = Calendar.getInstance();
-            
-            // Get sorted dates
-            List<String> sortedDates = new ArrayList<>(dateToTemps.keySet());
-            sortedDates.sort(String::compareTo);
-            
-            Log.d("TemperaturePrediction", "Date range: " + sortedDates.get(0) + " to " + 
-                  sortedDates.get(sortedDates.size() - 1));
-            
-            for (String dateKey : sortedDates) {
-                try {
-                    List<Double> temps = dateToTemps.get(dateKey);
-                    
-                    if (temps == null || temps.isEmpty()) {
-                        Log.w("TemperaturePrediction", "No temperatures for date: " + dateKey);
-                        continue;
-                    }
-                    
-                    // Compute average
-                    double sum = 0.0;
-                    for (Double temp : temps) {
-                        if (temp != null && !Double.isNaN(temp) && !Double.isInfinite(temp)) {
-                            sum += temp;
-                        }
-                    }
-                    double avgTemp = sum / temps.size();
-                    
-                    // Validate average is reasonable
-                    if (Double.isNaN(avgTemp) || Double.isInfinite(avgTemp)) {
-                        Log.w("TemperaturePrediction", "Invalid average for date: " + dateKey);
-                        continue;
+                // Check response code
+                int responseCode = response.code;
+                Log.d("TemperaturePrediction", "Response code: " + responseCode);
+                if (responseCode != HttpURLConnection.HTTP_OK) {
+                    // Read error response body for more details
+                    String errorBody = response.errorBody();
+                    if (!errorBody.isEmpty()) {
+                        Log.e("TemperaturePrediction", "Error response body: " + errorBody);
                     }
                     
-                    // Calculate day of year
-                    String[] parts = dateKey.split("-");
-                    if (parts.length != 3) {
-                        Log.w("TemperaturePrediction", "Invalid date format: " + dateKey);
-                        continue;
+                    String message = "Server error: " + responseCode;
+                    if (!errorBody.isEmpty()) {
+                        message += " - " + errorBody;
                     }
-                    
-                    cal.set(Integer.parseInt(parts[0]),
-                           Integer.parseInt(parts[1]) - 1,
-                           Integer.parseInt(parts[2]));
-                    int dayOfYear = cal.get(Calendar.DAY_OF_YEAR);
-                    
-                    dataPoints.add(new HistoricalDataPoint(dayOfYear, avgTemp, dateKey));
-                    
-                } catch (Exception e) {
-                    Log.w("TemperaturePrediction", "Error processing date " + dateKey + ": " + e.getMessage());
+                    Log.e("TemperaturePrediction", "HTTP error: " + responseCode + ", message: " + message);
+                    throw new IOException(message);
                 }
+
+                // Stream the response into the aggregator - each day is closed as soon
+                // as its last hour is read, so the hourly rows are never buffered
+                parseHistoricalJson(response.body(), store);
             }
+        }
 
-            Log.d("TemperaturePrediction", "Created " + dataPoints.size() + " historical data points");
-            
-            // Log statistics
-            if (!dataPoints.isEmpty()) {
-                double minTemp = dataPoints.get(0).temperature;
-                double maxTemp = dataPoints.get(0).temperature;
-                double sumTemp = 0;
-                for (HistoricalDataPoint point : dataPoints) {
-                    minTemp = Math.min(minTemp, point.temperature);
-                    maxTemp = Math.max(maxTemp, point.temperature);
-                    sumTemp += point.temperature;
-                }
-                double avgTemp = sumTemp / dataPoints.size();
-                Log.d("TemperaturePrediction", "Temperature stats - Min: " + minTemp + "°F, Max: " + 
-                      maxTemp + "°F, Avg: " + avgTemp + "°F");
+        /**
+         * Stream the archive response and compute daily averages in a single pass.
+         * @param body The response body stream
+         * @param store Receives each day as one row of its columns
+         */
+        private void parseHistoricalJson(InputStream body, HistoryStore store) throws Exception {
+            Log.d("TemperaturePrediction", "parseHistoricalJson() started");
+            
+            // HistoricalAggregator emits days in chronological order, so they can be appended directly
+            HistoricalAggregator.Summary summary = HistoricalAggregator.aggregate(body,
+                (epochDay, dayOfYear, meanTempF, minTempF, maxTempF, validHours) ->
+                    store.add(epochDay, meanTempF, minTempF, maxTempF, validHours));
+
+            Log.d("TemperaturePrediction", "Found " + summary.timeCount + " hourly data points");
+            if (summary.timeCount != summary.temperatureCount) {
+                Log.w("TemperaturePrediction", "Array length mismatch: time=" + summary.timeCount + 
+                      ", temp=" + summary.temperatureCount);
+            }
+            Log.d("TemperaturePrediction", "Processed " + summary.validPoints + " valid points, " + summary.invalidPoints + " invalid points");
+            Log.d("TemperaturePrediction", "Downloaded " + summary.days + " days, store synced to "
+                  + (store.lastSyncedDay() == HistoryStore.NEVER_SYNCED
+                     ? "nothing" : HistoricalAggregator.dateString(store.lastSyncedDay())));
+        }
+        
+        /**
+         * Log the date range and temperature statistics of the training window.
+         */
+        private void logHistoryStats(HistoryStore store) {
+            Log.d("TemperaturePrediction", "History store holds " + store.size() + " days");
+            if (store.size() == 0) {
+                return;
             }
             
-            return dataPoints;
+            // Log statistics (one scan over the mapped columns)
+            double[] stats = {Double.MAX_VALUE, -Double.MAX_VALUE, 0, Integer.MAX_VALUE, Integer.MIN_VALUE};
+            store.scan((epochDay, dayOfYear, meanTempF, minTempF, maxTempF, validHours) -> {
+                stats[0] = Math.min(stats[0], minTempF);
+                stats[1] = Math.max(stats[1], maxTempF);
+                stats[2] += meanTempF;
+                stats[3] = Math.min(stats[3], epochDay);
+                stats[4] = Math.max(stats[4], epochDay);
+            });
+            Log.d("TemperaturePrediction", "Date range: " + HistoricalAggregator.dateString((int) stats[3])
+                  + " to " + HistoricalAggregator.dateString((int) stats[4]));
+            Log.d("TemperaturePrediction", "Temperature stats - Min: " + stats[0] + "°F, Max: " + 
+                  stats[1] + "°F, Avg: " + (stats[2] / store.size()) + "°F");
         }
     }
 
     /**
-     * AsyncTask to train model and predict tomorrow's temperature.
-     * Note: AsyncTask is deprecated in API 30+, but acceptable for this assignment (min SDK 24).
+     * Task to train the model on a synced history store (CPU pool) and
+     * predict tomorrow's temperature.
      */
-    @SuppressWarnings("deprecation")
-    private class PredictTemperatureTask extends AsyncTask<Void, Void, TemperatureModel> {
+    private class PredictTemperatureTask extends TaskRuntime.Task<TemperatureModel> {
+        // City the model is trained for (captured at start, in case the user switches city)
+        private final City city;
+        private final String cityKey;
+        private final HistoryStore historicalData;
         private String errorMessage = null;
+        
+        PredictTemperatureTask(City city, HistoryStore historicalData) {
+            this.city = city;
+            this.cityKey = cityKey(city);
+            this.historicalData = historicalData;
+        }
 
         @Override
-        protected TemperatureModel doInBackground(Void... voids) {
+        protected TemperatureModel doInBackground() {
             Log.d("TemperaturePrediction", "PredictTemperatureTask.doInBackground() started");
             try {
-                // Step 1: Fetch historical data
-                Log.d("TemperaturePrediction", "Step 1: Fetching historical data from API");
-                FetchHistoricalDataTask fetchTask = new FetchHistoricalDataTask();
-                List<HistoricalDataPoint> historicalData = fetchTask.doInBackground();
-                
-                if (historicalData == null || historicalData.isEmpty()) {
-                    errorMessage = fetchTask.errorMessage != null ? fetchTask.errorMessage : "No historical data available";
-                    Log.e("TemperaturePrediction", "No historical data: " + errorMessage);
-                    return null;
-                }
-                
-                Log.d("TemperaturePrediction", "API returned " + historicalData.size() + " historical data points");
-                
-                // Validate data quality
-                if (historicalData.size() < 100) {
-                    errorMessage = "Insufficient data: only " + historicalData.size() + " points (need 100+)";
-                    Log.e("TemperaturePrediction", errorMessage);
-                    return null;
-                }
-                
-                // Log sample data points for verification
-                Log.d("TemperaturePrediction", "Sample data points (first 5):");
-                for (int i = 0; i < Math.min(5, historicalData.size()); i++) {
-                    HistoricalDataPoint point = historicalData.get(i);
-                    Log.d("TemperaturePrediction", "  [" + i + "] dayOfYear=" + point.dayOfYear + 
-                          ", temp=" + point.temperature + "°F, date=" + point.date);
-                }
-                
-                // Step 2: Train model
-                Log.d("TemperaturePrediction", "Step 2: Training model");
-                TemperatureModel model = trainModel(historicalData);
-                
-                if (model == null) {
-                    errorMessage = "Model training failed";
-                    Log.e("TemperaturePrediction", errorMessage);
-                    return null;
-                }
-                
-                Log.d("TemperaturePrediction", "Model trained successfully: slope=" + model.slope + 
-                      ", intercept=" + model.intercept);
-                
-                return model;
+                // Train at most once at a time per city; repeated taps or
+                // quick city switches back and forth join the training already running
+                return TRAINING_FLIGHTS.execute("train:" + cityKey, this::train);
                 
             } catch (Exception e) {
                 errorMessage = "Prediction error: " + e.getMessage();
@@ -1862,12 +2031,55 @@ public class MainActivity extends AppCompatActivity {
             }
         }
 
+        /**
+         * Train a model on the city's synced history.
+         * (Step 1, fetching the history, was done by FetchHistoricalDataTask.)
+         * @return The trained model
+         * @throws IOException If the data is insufficient or training fails
+         */
+        private TemperatureModel train() throws Exception {
+            // Validate data quality
+            if (historicalData.size() < 100) {
+                String message = "Insufficient data: only " + historicalData.size() + " points (need 100+)";
+                Log.e("TemperaturePrediction", message);
+                throw new IOException(message);
+            }
+            
+            // Log sample data points for verification
+            Log.d("TemperaturePrediction", "Sample data points (first 5):");
+            historicalData.scan(0, 5, (epochDay, dayOfYear, meanTempF, minTempF, maxTempF, validHours) ->
+                Log.d("TemperaturePrediction", "  dayOfYear=" + dayOfYear + ", temp=" + meanTempF
+                      + "°F, date=" + HistoricalAggregator.dateString(epochDay)));
+            
+            // Step 2: Train model
+            Log.d("TemperaturePrediction", "Step 2: Training model");
+            TemperatureModel model = trainModel(city, historicalData);
+            
+            if (model == null) {
+                Log.e("TemperaturePrediction", "Model training failed");
+                throw new IOException("Model training failed");
+            }
+            
+            Log.d("TemperaturePrediction", "Model trained successfully: slope=" + model.slope + 
+                  ", intercept=" + model.intercept);
+            
+            return model;
+        }
+
         @Override
         protected void onPostExecute(TemperatureModel model) {
             Log.d("TemperaturePrediction", "onPostExecute() called with model: " + (model != null ? "valid" : "null"));
             predictionProgressBar.setVisibility(View.GONE);
             predictButton.setEnabled(true);
             
+            // The user switched cities while training - the model is saved for its
+            // city, but it must not be shown as the prediction for the current one
+            if (!cityKey.equals(getCityKey())) {
+                Log.d("TemperaturePrediction", "Discarding prediction for " + city.getDisplayName());
+                predictionTextView.setText("");
+                return;
+            }
+            
             if (model == null) {
                 String errorMsg = errorMessage != null ? errorMessage : "Model training failed";
                 Log.e("TemperaturePrediction", "Prediction failed: " + errorMsg);
@@ -1875,7 +2087,8 @@ public class MainActivity extends AppCompatActivity {
                 return;
             }
             
-            // Make prediction using the trained model
+            // Reuse the model for later predictions, then predict with it
+            cachedModel = model;
             makePredictionWithModel(model);
         }
     }
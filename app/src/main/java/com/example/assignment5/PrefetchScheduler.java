@@ -0,0 +1,189 @@
+package com.example.assignment5;
+
+import android.util.Log;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the forecasts of every saved city fresh in the background.
+ *
+ * Each city gets a periodic refresh job:
+ * - Jobs are staggered (city i starts i * staggerMillis after start()), so
+ *   the cities don't all hit the API in the same instant
+ * - At most maxConcurrent fetches run at once (the size of the thread pool)
+ * - Each job checks its city several times per interval and only fetches once
+ *   the forecast is older than refreshIntervalMillis, so a city that was just
+ *   refreshed by a foreground fetch (see markFresh()) is skipped
+ * - A city that a foreground fetch is downloading right now (see markPending())
+ *   is skipped too, so the launch batch and the first prefetch don't both
+ *   download it
+ *
+ * Results are handed to a Listener, which MainActivity uses to fill its
+ * per-city forecast map, so switching cities is served from memory.
+ * freshness() reports when each city's forecast was last fetched.
+ */
+final class PrefetchScheduler {
+
+    private static final String TAG = "PrefetchScheduler";
+
+    // Freshness checks per refresh interval (data is at most 1 + 1/CHECKS_PER_INTERVAL intervals old)
+    private static final int CHECKS_PER_INTERVAL = 4;
+
+    /**
+     * Fetches one city's forecast (runs on a scheduler thread).
+     */
+    interface Fetcher {
+        List<DailyForecast> fetch(City city, CancellationToken token) throws Exception;
+    }
+
+    /**
+     * Receives each prefetched forecast (called on a scheduler thread).
+     */
+    interface Listener {
+        void onPrefetched(City city, List<DailyForecast> forecasts, long fetchedAt);
+    }
+
+    private final int maxConcurrent;
+    private final long staggerMillis;
+    private final long refreshIntervalMillis;
+    private final Fetcher fetcher;
+    private final Listener listener;
+    private final LongSupplier clock;
+
+    // City key → time its forecast was last fetched (milliseconds since epoch)
+    private final Map<String, Long> freshness = new ConcurrentHashMap<>();
+
+    // City key → number of foreground fetches currently downloading it
+    private final Map<String, Integer> pending = new ConcurrentHashMap<>();
+
+    private ScheduledThreadPoolExecutor executor;
+    private CancellationToken token;
+
+    // Counters for logging
+    private final AtomicLong prefetchCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+
+    /**
+     * @param maxConcurrent Maximum fetches in flight at once
+     * @param staggerMillis Delay between the first runs of consecutive cities
+     * @param refreshIntervalMillis Age after which a city's forecast is fetched again
+     * @param fetcher Fetches one city's forecast
+     * @param listener Receives the results
+     * @param clock Time source in milliseconds (System::currentTimeMillis in the app)
+     */
+    PrefetchScheduler(int maxConcurrent, long staggerMillis, long refreshIntervalMillis,
+                      Fetcher fetcher, Listener listener, LongSupplier clock) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.staggerMillis = staggerMillis;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        this.fetcher = fetcher;
+        this.listener = listener;
+        this.clock = clock;
+    }
+
+    /**
+     * (Re)start refreshing the given cities. Any previous schedule is stopped first.
+     *
+     * @param cities The saved cities, in the order they should first be refreshed
+     */
+    synchronized void start(List<City> cities) {
+        stop();
+        token = new CancellationToken(0);
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ScheduledThreadPoolExecutor(maxConcurrent, runnable -> {
+            Thread thread = new Thread(runnable, "prefetch-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            // Below the UI and foreground fetches
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        CancellationToken runToken = token;
+        for (int i = 0; i < cities.size(); i++) {
+            City city = cities.get(i);
+            executor.scheduleWithFixedDelay(() -> refresh(city, runToken),
+                i * staggerMillis, Math.max(1, refreshIntervalMillis / CHECKS_PER_INTERVAL),
+                TimeUnit.MILLISECONDS);
+        }
+        Log.d(TAG, "Prefetching " + cities.size() + " cities every " + refreshIntervalMillis + " ms");
+    }
+
+    /**
+     * Stop all scheduled refreshes and abort the ones in flight.
+     */
+    synchronized void stop() {
+        if (executor == null) {
+            return;
+        }
+        token.cancel();
+        executor.shutdownNow();
+        executor = null;
+        Log.d(TAG, "Stopped (prefetched=" + prefetchCount.get() + ", skipped=" + skippedCount.get()
+            + ", failed=" + failureCount.get() + ")");
+    }
+
+    /**
+     * Record that a city's forecast was just fetched (e.g., by a foreground load),
+     * so the scheduler doesn't fetch it again before it gets stale.
+     */
+    void markFresh(String cityKey, long fetchedAt) {
+        freshness.merge(cityKey, fetchedAt, Math::max);
+    }
+
+    /**
+     * When a city's forecast was last fetched.
+     *
+     * @return Milliseconds since epoch, or 0 if never
+     */
+    long freshness(String cityKey) {
+        Long fetchedAt = freshness.get(cityKey);
+        return fetchedAt != null ? fetchedAt : 0;
+    }
+
+    /**
+     * Record that a foreground fetch started downloading a city, so the scheduler
+     * leaves it alone until that fetch is done. Each call must be matched by one
+     * clearPending() (after markFresh() if the fetch succeeded).
+     */
+    void markPending(String cityKey) {
+        pending.merge(cityKey, 1, Integer::sum);
+    }
+
+    /**
+     * Record that a foreground fetch of a city finished, failed or was cancelled.
+     */
+    void clearPending(String cityKey) {
+        pending.computeIfPresent(cityKey, (key, loads) -> loads > 1 ? loads - 1 : null);
+    }
+
+    private void refresh(City city, CancellationToken runToken) {
+        if (runToken.isCancelled()) {
+            return;
+        }
+        String key = city.getKey();
+        if (pending.containsKey(key) || clock.getAsLong() - freshness(key) < refreshIntervalMillis) {
+            skippedCount.incrementAndGet();
+            return;
+        }
+        try {
+            List<DailyForecast> forecasts = fetcher.fetch(city, runToken);
+            long fetchedAt = clock.getAsLong();
+            markFresh(key, fetchedAt);
+            prefetchCount.incrementAndGet();
+            listener.onPrefetched(city, forecasts, fetchedAt);
+        } catch (Exception e) {
+            // Never let an exception escape - it would cancel this city's schedule
+            if (!runToken.isCancelled()) {
+                failureCount.incrementAndGet();
+                Log.w(TAG, "Prefetch failed for " + city.getDisplayName() + ": " + e.getMessage());
+            }
+        }
+    }
+}
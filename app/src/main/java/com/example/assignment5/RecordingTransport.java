@@ -0,0 +1,73 @@
+package com.example.assignment5;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+
+/**
+ * Transport that passes requests to another transport and saves every
+ * successful response body to disk, in the layout ReplayTransport reads.
+ *
+ * The body is read fully before it is handed on (the caller gets an in-memory
+ * response), so record mode costs one copy of each payload - it is meant for
+ * capturing fixtures, not for normal use.
+ */
+final class RecordingTransport implements WeatherTransport {
+
+    private static final String TAG = "RecordingTransport";
+
+    private final WeatherTransport delegate;
+    private final File directory;
+
+    /**
+     * @param delegate Where responses really come from (usually WeatherHttpClient)
+     * @param directory Directory to save recordings in (created if needed)
+     */
+    RecordingTransport(WeatherTransport delegate, File directory) {
+        this.delegate = delegate;
+        this.directory = directory;
+    }
+
+    @Override
+    public WeatherHttpClient.Response get(String url, int timeoutMillis, CancellationToken token)
+            throws IOException {
+        WeatherHttpClient.Response response = delegate.get(url, timeoutMillis, token);
+        if (response.code != HttpURLConnection.HTTP_OK) {
+            // Only successful payloads are recorded; errors are injected on replay instead
+            return response;
+        }
+        byte[] body;
+        try (WeatherHttpClient.Response live = response) {
+            body = WeatherHttpClient.readBody(live.body(), -1, WeatherHttpClient.MAX_BODY_BYTES);
+        }
+        save(url, body);
+        return WeatherHttpClient.Response.fromBytes(HttpURLConnection.HTTP_OK, body, token);
+    }
+
+    private void save(String url, byte[] body) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w(TAG, "Could not create recording directory " + directory);
+            return;
+        }
+        File file = ReplayTransport.recordingFile(directory, url);
+        File temp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            out.write(body);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not record " + url, e);
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            Log.w(TAG, "Could not save recording " + file);
+            if (!temp.delete()) {
+                Log.w(TAG, "Could not delete " + temp);
+            }
+            return;
+        }
+        Log.d(TAG, "Recorded " + body.length + " bytes for " + url);
+    }
+}
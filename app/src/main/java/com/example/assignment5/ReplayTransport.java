@@ -0,0 +1,129 @@
+package com.example.assignment5;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Transport that serves responses recorded by RecordingTransport from local
+ * files, without any network access.
+ *
+ * A latency profile makes offline runs behave like a real network, but
+ * deterministically (the Random is seeded):
+ * - Every request waits a delay between minDelayMillis and maxDelayMillis
+ * - A fraction of requests (failureRate) fails: with failureStatus if it is
+ *   an HTTP status (e.g., 503), or with an IOException if it is 0
+ *
+ * Recordings are looked up by URL (normalized like DiskResponseCache keys),
+ * so a replayed request must ask for exactly what was recorded.
+ */
+final class ReplayTransport implements WeatherTransport {
+
+    // Granularity of injected delays, so a cancelled load stops waiting quickly
+    private static final long DELAY_SLICE_MILLIS = 20;
+
+    private final File directory;
+    private final Random random;
+    private long minDelayMillis = 0;
+    private long maxDelayMillis = 0;
+    private double failureRate = 0;
+    private int failureStatus = 0;
+
+    /**
+     * @param directory Directory holding the recordings
+     * @param seed Seed for the injected delays and failures
+     */
+    ReplayTransport(File directory, long seed) {
+        this.directory = directory;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Delay every request by a random time in [minMillis, maxMillis].
+     *
+     * @return This transport, for chaining
+     */
+    ReplayTransport withLatency(long minMillis, long maxMillis) {
+        this.minDelayMillis = Math.max(0, minMillis);
+        this.maxDelayMillis = Math.max(this.minDelayMillis, maxMillis);
+        return this;
+    }
+
+    /**
+     * Fail a fraction of requests.
+     *
+     * @param rate Fraction of requests that fail, 0 to 1
+     * @param status HTTP status to answer with (e.g., 503), or 0 to throw an IOException
+     * @return This transport, for chaining
+     */
+    ReplayTransport withFailures(double rate, int status) {
+        this.failureRate = rate;
+        this.failureStatus = status;
+        return this;
+    }
+
+    /**
+     * The file a URL's recording is stored in.
+     */
+    static File recordingFile(File directory, String url) {
+        return new File(directory, DiskResponseCache.keyFor(url) + ".json");
+    }
+
+    @Override
+    public WeatherHttpClient.Response get(String url, int timeoutMillis, CancellationToken token)
+            throws IOException {
+        long delay;
+        boolean fail;
+        synchronized (random) {
+            delay = minDelayMillis + (maxDelayMillis > minDelayMillis
+                ? (long) (random.nextDouble() * (maxDelayMillis - minDelayMillis + 1)) : 0);
+            fail = failureRate > 0 && random.nextDouble() < failureRate;
+        }
+        sleep(delay, token);
+
+        if (fail) {
+            if (failureStatus == 0) {
+                throw new IOException("Injected failure for " + url);
+            }
+            return WeatherHttpClient.Response.fromBytes(failureStatus,
+                ("{\"error\":true,\"reason\":\"Injected failure\"}").getBytes(StandardCharsets.UTF_8), token);
+        }
+
+        File file = recordingFile(directory, url);
+        if (!file.isFile()) {
+            throw new FileNotFoundException("No recording for " + url);
+        }
+        byte[] body;
+        try (InputStream in = new FileInputStream(file)) {
+            body = WeatherHttpClient.readBody(in, file.length(), WeatherHttpClient.MAX_BODY_BYTES);
+        }
+        return WeatherHttpClient.Response.fromBytes(HttpURLConnection.HTTP_OK, body, token);
+    }
+
+    private static void sleep(long millis, CancellationToken token) throws IOException {
+        // nanoTime, not currentTimeMillis: the wall clock's millisecond ticks can end
+        // the delay up to a millisecond early
+        long deadline = System.nanoTime() + millis * 1_000_000L;
+        try {
+            for (long left = millis * 1_000_000L; left > 0; left = deadline - System.nanoTime()) {
+                if (token != null) {
+                    token.throwIfCancelled();
+                }
+                long slice = Math.min(left, DELAY_SLICE_MILLIS * 1_000_000L);
+                Thread.sleep(slice / 1_000_000L, (int) (slice % 1_000_000L));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while replaying");
+        }
+        if (token != null) {
+            token.throwIfCancelled();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.assignment5;
+
+import java.util.Random;
+
+/**
+ * How often and how patiently WeatherHttpClient retries a failed request.
+ *
+ * A request is retried when the connection fails or the server answers
+ * 429 Too Many Requests or a 5xx error. Between attempts the client waits a
+ * random time between 0 and min(maxDelay, baseDelay * 2^(retry - 1))
+ * ("full jitter"), so many clients that failed together don't retry in lockstep
+ * and pile onto a server that is already struggling.
+ */
+final class RetryPolicy {
+
+    // 3 attempts, waiting up to 0.5s then up to 1s between them
+    static final RetryPolicy DEFAULT = new RetryPolicy(3, 500, 4000);
+
+    // Single attempt, no retries
+    static final RetryPolicy NONE = new RetryPolicy(1, 0, 0);
+
+    // Total attempts including the first one (at least 1)
+    final int maxAttempts;
+
+    // Upper bound of the first backoff; doubles with every retry
+    final long baseDelayMillis;
+
+    // Upper bound of any single backoff
+    final long maxDelayMillis;
+
+    RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMillis = Math.max(0, baseDelayMillis);
+        this.maxDelayMillis = Math.max(this.baseDelayMillis, maxDelayMillis);
+    }
+
+    /**
+     * Whether an HTTP status code is worth retrying (overloaded or failing server).
+     */
+    static boolean isRetryableStatus(int code) {
+        return code == 429 || code >= 500;
+    }
+
+    /**
+     * Jittered wait before a retry.
+     *
+     * @param retry 1 for the first retry, 2 for the second, ...
+     * @param random Source of jitter
+     * @return Milliseconds to wait
+     */
+    long backoffMillis(int retry, Random random) {
+        long ceiling = baseDelayMillis << Math.min(Math.max(retry - 1, 0), 20);
+        ceiling = Math.min(ceiling, maxDelayMillis);
+        return ceiling <= 0 ? 0 : (long) (random.nextDouble() * (ceiling + 1));
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.assignment5;
+
+import java.io.Closeable;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces concurrent calls that do the same work into one execution.
+ *
+ * Each call is identified by a key (e.g., the full request URL, which encodes
+ * the cities, endpoint and parameters). While a call for a key is running,
+ * every other caller with the same key waits for it and receives the same
+ * result or exception instead of starting a duplicate request.
+ *
+ * Each caller keeps its own cancellation (see execute(String, CancellationToken,
+ * CancellableCall)), so callers with different lifecycles can share a call.
+ *
+ * Nothing is cached: once the call finishes, the next caller starts a new one.
+ *
+ * @param <T> Result type of the coalesced calls
+ */
+final class SingleFlight<T> {
+
+    /**
+     * The work to run, at most once at a time per key.
+     */
+    interface Call<T> {
+        T call() throws Exception;
+    }
+
+    /**
+     * Work that can be aborted. The token it receives belongs to the flight, not
+     * to any one caller: it is cancelled only once every caller has cancelled.
+     */
+    interface CancellableCall<T> {
+        T call(CancellationToken token) throws Exception;
+    }
+
+    /**
+     * One execution and the callers waiting for it.
+     */
+    private static final class Flight<T> {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        // Passed to the call; cancelled when the last caller leaves
+        final CancellationToken token;
+        // Callers still waiting (guarded by this); starts with the leader
+        private int callers = 1;
+
+        Flight(int generation) {
+            this.token = new CancellationToken(generation);
+        }
+
+        /**
+         * Add a caller, unless every previous caller has already left.
+         */
+        synchronized boolean join() {
+            if (callers == 0) {
+                return false;
+            }
+            callers++;
+            return true;
+        }
+
+        /**
+         * Remove a cancelled caller; the last one to leave aborts the call.
+         */
+        void leave() {
+            boolean last;
+            synchronized (this) {
+                last = --callers == 0;
+            }
+            if (last) {
+                token.cancel();
+            }
+        }
+    }
+
+    // Key → call currently in flight
+    private final ConcurrentHashMap<String, Flight<T>> inFlight = new ConcurrentHashMap<>();
+
+    // Number of callers that joined an existing call instead of starting one
+    private final AtomicLong sharedCount = new AtomicLong();
+
+    /**
+     * Run the call for this key, or wait for the one already running.
+     * The call can't be cancelled; see the CancellableCall overload.
+     */
+    T execute(String key, Call<T> call) throws Exception {
+        return execute(key, null, token -> call.call());
+    }
+
+    /**
+     * Run the call for this key, or wait for the one already running.
+     *
+     * The call runs on the thread of the first caller. Later callers block
+     * until it finishes or until their own token is cancelled, whichever comes
+     * first. Callers can have different lifecycles (e.g., a background prefetch
+     * and a foreground load), so cancelling one caller never fails the others:
+     * - A cancelled caller stops waiting and gets an InterruptedIOException
+     * - The call itself is aborted (its token cancelled) only when every caller
+     *   has cancelled
+     * - A cancelled first caller still runs the call to completion for the
+     *   others, since it runs on its thread
+     *
+     * @param key Identifies equivalent work
+     * @param caller This caller's token, or null if it is never cancelled
+     * @param call The work to run if nothing is in flight for the key
+     * @return The result of the (possibly shared) call
+     * @throws InterruptedIOException If the caller's token was cancelled
+     * @throws Exception Whatever the call threw
+     */
+    T execute(String key, CancellationToken caller, CancellableCall<T> call) throws Exception {
+        Flight<T> flight;
+        boolean leader;
+        while (true) {
+            Flight<T> created = new Flight<>(caller != null ? caller.generation : 0);
+            Flight<T> existing = inFlight.putIfAbsent(key, created);
+            if (existing == null) {
+                flight = created;
+                leader = true;
+                break;
+            }
+            if (existing.join()) {
+                sharedCount.incrementAndGet();
+                flight = existing;
+                leader = false;
+                break;
+            }
+            // Every caller of that flight cancelled and it is being aborted - start a new one
+            inFlight.remove(key, existing);
+        }
+
+        // This caller's view of the result: cancelling it stops only this caller's wait
+        CompletableFuture<T> mine = flight.result.thenApply(result -> result);
+        Flight<T> joined = flight;
+        Closeable stopWaiting = () -> {
+            if (mine.cancel(false)) {
+                joined.leave();
+            }
+        };
+        if (caller != null) {
+            caller.register(stopWaiting);
+        }
+        try {
+            if (leader) {
+                try {
+                    flight.result.complete(call.call(flight.token));
+                } catch (Throwable t) {
+                    flight.result.completeExceptionally(t);
+                } finally {
+                    // Only remove our own flight, never a newer one for the same key
+                    inFlight.remove(key, flight);
+                }
+            }
+            return mine.get();
+        } catch (CancellationException e) {
+            throw new InterruptedIOException("Load " + caller.generation + " was cancelled");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        } finally {
+            if (caller != null) {
+                caller.unregister(stopWaiting);
+            }
+        }
+    }
+
+    long sharedCount() {
+        return sharedCount.get();
+    }
+}
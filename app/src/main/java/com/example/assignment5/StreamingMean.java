@@ -0,0 +1,74 @@
+package com.example.assignment5;
+
+/**
+ * Numerically stable running mean, variance and sum of a stream of single values.
+ *
+ * The univariate counterpart of StreamingMoments, for the per-hour paths
+ * (DailyStats while parsing a forecast, the daily means in HistoricalAggregator)
+ * that track one variable and would otherwise pay for the unused y and
+ * covariance updates on every reading:
+ * - The mean and the sum of squared deviations are updated with Welford's method
+ * - The plain sum (e.g., a day's total rain) uses Neumaier-compensated addition
+ *
+ * Not thread-safe.
+ */
+final class StreamingMean {
+
+    private long count = 0;
+    private double mean = 0;
+    // Sum of squared deviations from the mean (Σ(x - x̄)²)
+    private double m2 = 0;
+    // Compensated plain sum: the true sum is sum + compensation
+    private double sum = 0;
+    private double compensation = 0;
+
+    /**
+     * Add one value.
+     */
+    void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+
+        // Neumaier's variant of Kahan summation: also exact when the addend is larger than the sum
+        double total = sum + value;
+        compensation += Math.abs(sum) >= Math.abs(value)
+            ? (sum - total) + value : (value - total) + sum;
+        sum = total;
+    }
+
+    /**
+     * Forget all values, so the instance can be reused.
+     */
+    void reset() {
+        count = 0;
+        mean = m2 = 0;
+        sum = compensation = 0;
+    }
+
+    long count() {
+        return count;
+    }
+
+    /**
+     * Mean, or NaN if no values were added.
+     */
+    double mean() {
+        return count > 0 ? mean : Double.NaN;
+    }
+
+    /**
+     * Compensated sum (0 if no values were added).
+     */
+    double sum() {
+        return sum + compensation;
+    }
+
+    /**
+     * Population variance (Σ(x - x̄)² / n), or NaN if no values were added.
+     */
+    double variance() {
+        return count > 0 ? m2 / count : Double.NaN;
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.assignment5;
+
+/**
+ * Numerically stable running mean, variance and covariance of a stream of
+ * (x, y) pairs. Single-variable streams use StreamingMean, which skips the
+ * y and covariance updates.
+ *
+ * The regression used to accumulate Σx, Σy, Σxy and Σx² in plain doubles and
+ * compute n*Σx² - (Σx)², which subtracts two huge, nearly equal numbers once
+ * the x values are large (epoch days) or the window is long. Instead:
+ * - Means and the sums of squared / co-deviations are updated with Welford's
+ *   method, so they never hold more than the spread of the data
+ * - Plain sums use Neumaier-compensated addition,
+ *   so the rounding error doesn't grow with the number of values
+ * - merge() combines two partial states (Chan et al.) as if all values had been
+ *   added to one, so a stream can be split across threads or trained incrementally
+ *
+ * Not thread-safe; give each thread its own instance and merge() them.
+ */
+final class StreamingMoments {
+
+    private long count = 0;
+    private double meanX = 0;
+    private double meanY = 0;
+    // Sums of squared deviations from the mean (Σ(x - x̄)², Σ(y - ȳ)²) and of co-deviations
+    private double m2X = 0;
+    private double m2Y = 0;
+    private double coDeviation = 0;
+    // Compensated plain sums: the true sum is sum + compensation
+    private double sumX = 0;
+    private double compensationX = 0;
+    private double sumY = 0;
+    private double compensationY = 0;
+
+    /**
+     * Add one (x, y) pair.
+     */
+    void add(double x, double y) {
+        count++;
+        double dx = x - meanX;
+        double dy = y - meanY;
+        meanX += dx / count;
+        meanY += dy / count;
+        // Old deviation times new deviation - the Welford update
+        m2X += dx * (x - meanX);
+        m2Y += dy * (y - meanY);
+        coDeviation += dx * (y - meanY);
+        addX(x);
+        addY(y);
+    }
+
+    /**
+     * Add another partial state to this one, as if its values had been added here.
+     * The other state is not modified.
+     */
+    void merge(StreamingMoments other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            copyFrom(other);
+            return;
+        }
+        long total = count + other.count;
+        double dx = other.meanX - meanX;
+        double dy = other.meanY - meanY;
+        double weight = (double) count * other.count / total;
+        m2X += other.m2X + dx * dx * weight;
+        m2Y += other.m2Y + dy * dy * weight;
+        coDeviation += other.coDeviation + dx * dy * weight;
+        meanX += dx * other.count / total;
+        meanY += dy * other.count / total;
+        count = total;
+        addX(other.sumX);
+        addX(other.compensationX);
+        addY(other.sumY);
+        addY(other.compensationY);
+    }
+
+    /**
+     * Forget all values, so the instance can be reused.
+     */
+    void reset() {
+        count = 0;
+        meanX = meanY = 0;
+        m2X = m2Y = coDeviation = 0;
+        sumX = compensationX = sumY = compensationY = 0;
+    }
+
+    long count() {
+        return count;
+    }
+
+    /**
+     * Mean of x, or NaN if no values were added.
+     */
+    double meanX() {
+        return count > 0 ? meanX : Double.NaN;
+    }
+
+    /**
+     * Mean of y, or NaN if no values were added.
+     */
+    double meanY() {
+        return count > 0 ? meanY : Double.NaN;
+    }
+
+    /**
+     * Compensated sum of x (0 if no values were added).
+     */
+    double sumX() {
+        return sumX + compensationX;
+    }
+
+    /**
+     * Compensated sum of y (0 if no values were added).
+     */
+    double sumY() {
+        return sumY + compensationY;
+    }
+
+    /**
+     * Population variance of x (Σ(x - x̄)² / n), or NaN if no values were added.
+     */
+    double varianceX() {
+        return count > 0 ? m2X / count : Double.NaN;
+    }
+
+    /**
+     * Population variance of y, or NaN if no values were added.
+     */
+    double varianceY() {
+        return count > 0 ? m2Y / count : Double.NaN;
+    }
+
+    /**
+     * Population covariance of x and y, or NaN if no values were added.
+     */
+    double covariance() {
+        return count > 0 ? coDeviation / count : Double.NaN;
+    }
+
+    /**
+     * Least squares slope of y over x (cov(x, y) / var(x)).
+     *
+     * @return The slope, or NaN if x doesn't vary
+     */
+    double slope() {
+        return m2X > 0 ? coDeviation / m2X : Double.NaN;
+    }
+
+    /**
+     * Least squares intercept (ȳ - slope * x̄).
+     *
+     * @return The intercept, or NaN if x doesn't vary
+     */
+    double intercept() {
+        return meanY - slope() * meanX;
+    }
+
+    private void copyFrom(StreamingMoments other) {
+        count = other.count;
+        meanX = other.meanX;
+        meanY = other.meanY;
+        m2X = other.m2X;
+        m2Y = other.m2Y;
+        coDeviation = other.coDeviation;
+        sumX = other.sumX;
+        compensationX = other.compensationX;
+        sumY = other.sumY;
+        compensationY = other.compensationY;
+    }
+
+    // Neumaier's variant of Kahan summation: also exact when the addend is larger than the sum
+    private void addX(double value) {
+        double total = sumX + value;
+        compensationX += Math.abs(sumX) >= Math.abs(value)
+            ? (sumX - total) + value : (value - total) + sumX;
+        sumX = total;
+    }
+
+    private void addY(double value) {
+        double total = sumY + value;
+        compensationY += Math.abs(sumY) >= Math.abs(value)
+            ? (sumY - total) + value : (value - total) + sumY;
+        sumY = total;
+    }
+}
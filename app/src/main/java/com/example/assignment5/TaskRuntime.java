@@ -0,0 +1,221 @@
+package com.example.assignment5;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs background tasks and hands their results back to the main thread.
+ *
+ * Replaces AsyncTask, which is deprecated and runs every task on one serial
+ * executor, so a long archive download used to hold up a forecast refresh
+ * (and the other way round). This runtime has:
+ * - Two bounded pools: IO for network and disk work, CPU for computation
+ *   (model training), so neither kind of work can starve the other
+ * - Task priorities within each pool: a queued HIGH task (the forecast the user
+ *   is waiting for) runs before queued LOW tasks (history sync), tasks of equal
+ *   priority run in submission order
+ * - Cancellation through each task's CancellationToken: a cancelled task that
+ *   hasn't started is skipped, and a cancelled task's onPostExecute() is never called
+ * - A main-thread completion hook, onPostExecute(), like AsyncTask's
+ *
+ * Usage:
+ *   TaskRuntime.getInstance().execute(new SomeTask(), TaskRuntime.Pool.IO, TaskRuntime.Priority.HIGH);
+ */
+final class TaskRuntime {
+
+    private static final String TAG = "TaskRuntime";
+
+    // Matches WeatherHttpClient's per-host connection limit, so a forecast
+    // refresh always finds a free thread next to a running archive download
+    private static final int IO_THREADS = 4;
+
+    // Idle pool threads are stopped after this long
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * Which pool a task runs on.
+     */
+    enum Pool {
+        // Network requests and file access - mostly waiting, so more threads than cores
+        IO,
+        // Computation - at most one thread per core
+        CPU
+    }
+
+    /**
+     * Order in which queued tasks of the same pool are started.
+     */
+    enum Priority {
+        // The user is waiting for the result (e.g., the forecast on screen)
+        HIGH,
+        // Shown when ready, but nobody is blocked on it (e.g., loading the model)
+        NORMAL,
+        // Background upkeep (e.g., syncing the history archive)
+        LOW
+    }
+
+    /**
+     * A unit of background work with a main-thread completion hook.
+     *
+     * @param <T> Type of the result handed to onPostExecute()
+     */
+    abstract static class Task<T> {
+        // Cancelled to abort the task (see cancel())
+        final CancellationToken token;
+
+        Task() {
+            this(new CancellationToken(0));
+        }
+
+        /**
+         * @param token Token the task's work observes (e.g., passed to WeatherHttpClient.get())
+         */
+        Task(CancellationToken token) {
+            this.token = token;
+        }
+
+        /**
+         * Do the work (runs on a pool thread).
+         *
+         * @return The result passed to onPostExecute()
+         * @throws Exception Logged; onPostExecute() then receives null
+         */
+        protected abstract T doInBackground() throws Exception;
+
+        /**
+         * Called on the main thread with the result, unless the task was cancelled.
+         */
+        protected void onPostExecute(T result) {
+        }
+
+        /**
+         * Cancel the task. If it hasn't started it never runs; if it is running, work
+         * that observes the token stops; either way onPostExecute() is not called.
+         */
+        void cancel() {
+            token.cancel();
+        }
+
+        boolean isCancelled() {
+            return token.isCancelled();
+        }
+    }
+
+    private static TaskRuntime instance;
+
+    private final ThreadPoolExecutor ioPool;
+    private final ThreadPoolExecutor cpuPool;
+    private final Executor mainThread;
+
+    // Submission order, so tasks of equal priority run first-in first-out
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * @param ioThreads Maximum IO tasks running at once
+     * @param cpuThreads Maximum CPU tasks running at once
+     * @param mainThread Runs completion hooks (the main looper in the app)
+     */
+    TaskRuntime(int ioThreads, int cpuThreads, Executor mainThread) {
+        this.ioPool = newPool("io", ioThreads);
+        this.cpuPool = newPool("cpu", cpuThreads);
+        this.mainThread = mainThread;
+    }
+
+    /**
+     * Get the shared runtime, delivering results on the main looper.
+     */
+    static synchronized TaskRuntime getInstance() {
+        if (instance == null) {
+            Handler mainHandler = new Handler(Looper.getMainLooper());
+            instance = new TaskRuntime(IO_THREADS,
+                Math.max(1, Runtime.getRuntime().availableProcessors() - 1), mainHandler::post);
+        }
+        return instance;
+    }
+
+    /**
+     * Queue a task.
+     *
+     * @param task The task (each task instance may only be executed once)
+     * @param pool Pool to run it on
+     * @param priority Where it goes in that pool's queue
+     * @return The task, so callers can keep it to cancel it later
+     */
+    <T> Task<T> execute(Task<T> task, Pool pool, Priority priority) {
+        (pool == Pool.IO ? ioPool : cpuPool).execute(
+            new QueuedTask<>(task, priority, sequence.getAndIncrement()));
+        return task;
+    }
+
+    /**
+     * Stop both pools, interrupting running tasks (used by tests).
+     */
+    void shutdownNow() {
+        ioPool.shutdownNow();
+        cpuPool.shutdownNow();
+    }
+
+    private static ThreadPoolExecutor newPool(String name, int threads) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Fixed size with an unbounded priority queue: the thread count is the bound,
+        // extra tasks wait in priority order instead of being rejected
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+            KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new PriorityBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Queue entry: runs the task, then posts its result to the main thread.
+     */
+    private final class QueuedTask<T> implements Runnable, Comparable<QueuedTask<?>> {
+        private final Task<T> task;
+        private final Priority priority;
+        private final long order;
+
+        QueuedTask(Task<T> task, Priority priority, long order) {
+            this.task = task;
+            this.priority = priority;
+            this.order = order;
+        }
+
+        @Override
+        public void run() {
+            if (task.isCancelled()) {
+                return;
+            }
+            T result = null;
+            try {
+                result = task.doInBackground();
+            } catch (Exception e) {
+                if (!task.isCancelled()) {
+                    Log.e(TAG, "Task " + task.getClass().getSimpleName() + " failed", e);
+                }
+            }
+            T delivered = result;
+            mainThread.execute(() -> {
+                if (!task.isCancelled()) {
+                    task.onPostExecute(delivered);
+                }
+            });
+        }
+
+        @Override
+        public int compareTo(QueuedTask<?> other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(order, other.order);
+        }
+    }
+}
@@ -0,0 +1,844 @@
+package com.example.assignment5;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Shared HTTP client for the Open Meteo forecast and archive endpoints.
+ *
+ * Every request used to open a fresh HttpURLConnection and call disconnect(),
+ * which tears down the socket and forces a new TCP + TLS handshake next time.
+ * This client is a process-wide singleton that instead:
+ * - Keeps connections alive: responses are fully read and closed but never
+ *   disconnect()-ed, so the platform's connection pool can hand the same
+ *   socket to the next request for that host
+ * - Can pre-connect to the API hosts when the app launches, so the first
+ *   refresh doesn't pay the handshake cost
+ * - Limits how many requests may be in flight per host at once
+ * - Asks for compressed bodies (gzip or deflate) and decompresses them while
+ *   streaming, so the repetitive hourly JSON crosses the network 5-10x smaller
+ * - Optionally revalidates against a DiskResponseCache: cached responses are
+ *   requested with If-None-Match / If-Modified-Since, and a 304 answer is
+ *   served from disk without downloading the payload again
+ * - Can abort a request through a CancellationToken: cancelling disconnects
+ *   the socket and makes further body reads fail, so a superseded load stops
+ *   downloading and parsing right away
+ * - Retries failed GETs (connection errors, 429, 5xx) with jittered exponential
+ *   backoff (see RetryPolicy), and stops calling a host that keeps failing
+ *   (see CircuitBreaker). Local problems - the device is offline, or our own
+ *   requests fill the per-host slots - are neither retried nor held against the
+ *   host. When a request can't succeed, a cached response is served instead if
+ *   the DiskResponseCache has one (Response.stale = true)
+ * - Caps how many decoded bytes a body may have (MAX_BODY_BYTES), so a runaway
+ *   or maliciously compressed payload fails fast instead of exhausting memory
+ *
+ * Usage:
+ *   try (WeatherHttpClient.Response response = WeatherHttpClient.getInstance().get(url, 10000, token)) {
+ *       if (response.code == HttpURLConnection.HTTP_OK) { ... response.body() ... }
+ *   }
+ * (token may be null when the load can't be cancelled.) The caller must close()
+ * the response so the per-host permit is released and the connection returns
+ * to the pool.
+ *
+ * Note: the client sets the http.keepAlive and http.maxConnections system
+ * properties. These are process-wide - they size the idle connection pool of
+ * every HttpURLConnection in the app, not just this client's.
+ */
+final class WeatherHttpClient implements WeatherTransport {
+
+    // Origins of the two Open Meteo services the app talks to
+    static final String FORECAST_ORIGIN = "https://api.open-meteo.com";
+    static final String ARCHIVE_ORIGIN = "https://archive-api.open-meteo.com";
+
+    // Default number of simultaneous requests allowed per host
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 4;
+
+    // Leftover bytes we are willing to read on close() so the socket can be reused.
+    // Larger leftovers are cheaper to abandon than to download.
+    private static final int MAX_DRAIN_BYTES = 64 * 1024;
+
+    // Largest decoded body we accept. A 7-day forecast for every saved city or
+    // 120 days of hourly archive data is a few hundred KB; anything far beyond
+    // that is a broken or hostile response.
+    static final int MAX_BODY_BYTES = 8 * 1024 * 1024;
+
+    // Error bodies are only used for log and error messages
+    private static final int MAX_ERROR_BODY_BYTES = 16 * 1024;
+
+    // Buffer size to start with when the body length is unknown
+    private static final int DEFAULT_BODY_BUFFER = 8192;
+
+    // Content encodings we can decompress, in order of preference
+    private static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private static final String TAG = "WeatherHttpClient";
+
+    // Consecutive failures that open a host's circuit, and how long it stays open
+    private static final int CIRCUIT_FAILURE_THRESHOLD = 5;
+    private static final long CIRCUIT_OPEN_MILLIS = 30_000;
+
+    // Granularity of backoff sleeps, so a cancelled load stops waiting quickly
+    private static final long BACKOFF_SLICE_MILLIS = 50;
+
+    private static WeatherHttpClient instance;
+
+    /**
+     * Thrown when no per-host connection slot frees up in time. The congestion is
+     * local (too many of our own requests queued), so it says nothing about the
+     * host's health and is not counted against its CircuitBreaker.
+     */
+    static final class PermitTimeoutException extends IOException {
+        PermitTimeoutException(String host) {
+            super("Too many concurrent requests to " + host);
+        }
+    }
+
+    // One permit pool per host name (e.g., "api.open-meteo.com")
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+    private volatile int maxConnectionsPerHost = DEFAULT_MAX_CONNECTIONS_PER_HOST;
+
+    // Optional on-disk cache used for conditional GETs (null = no caching)
+    private volatile DiskResponseCache cache;
+
+    // Retry and circuit-breaking state
+    private volatile RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final Random jitter = new Random();
+
+    // Counters for monitoring upstream health
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong circuitOpenCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong staleFallbackCount = new AtomicLong();
+
+    private WeatherHttpClient() {
+        // Make sure the platform keeps idle sockets around for reuse (process-wide, see class doc)
+        System.setProperty("http.keepAlive", "true");
+        System.setProperty("http.maxConnections", String.valueOf(maxConnectionsPerHost));
+    }
+
+    /**
+     * Get the shared client instance.
+     */
+    static synchronized WeatherHttpClient getInstance() {
+        if (instance == null) {
+            instance = new WeatherHttpClient();
+        }
+        return instance;
+    }
+
+    /**
+     * Change how many requests may run against a single host at once.
+     * Also sizes the platform's idle connection pool to match - that is the
+     * process-wide http.maxConnections property, so it applies to every
+     * HttpURLConnection in the app.
+     *
+     * @param max Maximum concurrent requests per host (at least 1)
+     */
+    synchronized void setMaxConnectionsPerHost(int max) {
+        maxConnectionsPerHost = Math.max(1, max);
+        System.setProperty("http.maxConnections", String.valueOf(maxConnectionsPerHost));
+        // New limits apply to hosts we haven't talked to yet, and to existing ones from now on
+        hostPermits.clear();
+    }
+
+    /**
+     * Install the on-disk response cache. Only the first call has an effect,
+     * so every activity instance can call this safely from onCreate().
+     *
+     * @param responseCache The cache to revalidate GET requests against
+     */
+    synchronized void installCache(DiskResponseCache responseCache) {
+        if (cache == null) {
+            cache = responseCache;
+        }
+    }
+
+    /**
+     * The installed response cache, or null if none (used for hit/miss stats).
+     */
+    DiskResponseCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Change how GET requests are retried (RetryPolicy.NONE disables retries).
+     */
+    void setRetryPolicy(RetryPolicy policy) {
+        retryPolicy = policy;
+    }
+
+    RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    // Number of retries sent after a failed attempt
+    long retryCount() {
+        return retryCount.get();
+    }
+
+    // Number of times a host's circuit opened
+    long circuitOpenCount() {
+        return circuitOpenCount.get();
+    }
+
+    // Number of requests rejected without network traffic because a circuit was open
+    long rejectedCount() {
+        return rejectedCount.get();
+    }
+
+    // Number of failed requests answered from the disk cache instead
+    long staleFallbackCount() {
+        return staleFallbackCount.get();
+    }
+
+    /**
+     * One-line summary of the counters, for logging.
+     */
+    String resilienceStats() {
+        return "retries=" + retryCount.get() + ", circuitOpens=" + circuitOpenCount.get()
+            + ", rejected=" + rejectedCount.get() + ", staleFallbacks=" + staleFallbackCount.get();
+    }
+
+    /**
+     * Open connections to the given origins in the background so that the
+     * TCP and TLS handshakes are already done when the first real request runs.
+     *
+     * Runs as LOW priority tasks on TaskRuntime's IO pool, so a forecast the
+     * user is waiting for is never queued behind a warm-up.
+     *
+     * @param origins Origins such as FORECAST_ORIGIN and ARCHIVE_ORIGIN
+     */
+    void preconnect(String... origins) {
+        for (String origin : origins) {
+            TaskRuntime.getInstance().execute(new TaskRuntime.Task<Void>() {
+                @Override
+                protected Void doInBackground() {
+                    try (Response response = execute(origin + "/", "HEAD", 5000, null)) {
+                        Log.d(TAG, "Pre-connected to " + origin + " (HTTP " + response.code + ")");
+                    } catch (IOException e) {
+                        // Pre-connecting is only an optimization - the real request will retry
+                        Log.d(TAG, "Pre-connect to " + origin + " failed: " + e.getMessage());
+                    }
+                    return null;
+                }
+            }, TaskRuntime.Pool.IO, TaskRuntime.Priority.LOW);
+        }
+    }
+
+    /**
+     * Perform a GET request that can be aborted.
+     *
+     * Cancelling the token disconnects the connection (failing any blocked read)
+     * and makes every later read of the body throw InterruptedIOException.
+     * A cancelled response is never stored in the disk cache.
+     *
+     * @param url Complete request URL
+     * @param timeoutMillis Connect and read timeout in milliseconds
+     * @param token Cancellation token for this load, or null
+     * @return The response; check {@link Response#code} before reading the body
+     * @throws IOException If the connection fails or the token is cancelled
+     */
+    @Override
+    public Response get(String url, int timeoutMillis, CancellationToken token) throws IOException {
+        String host = new URL(url).getHost();
+        CircuitBreaker breaker = breakers.computeIfAbsent(host, h ->
+            new CircuitBreaker(CIRCUIT_FAILURE_THRESHOLD, CIRCUIT_OPEN_MILLIS, System::currentTimeMillis));
+        RetryPolicy policy = retryPolicy;
+
+        IOException lastError = null;
+        Response lastResponse = null;
+        for (int attempt = 1; attempt <= policy.maxAttempts; attempt++) {
+            if (attempt > 1) {
+                // Wait before retrying; honor the server's Retry-After if it asked for longer
+                long wait = policy.backoffMillis(attempt - 1, jitter);
+                if (lastResponse != null) {
+                    wait = Math.max(wait, Math.min(lastResponse.retryAfterMillis(), policy.maxDelayMillis));
+                    lastResponse.close();
+                    lastResponse = null;
+                }
+                retryCount.incrementAndGet();
+                Log.d(TAG, "Retrying " + host + " (attempt " + attempt + ") in " + wait + " ms");
+                sleep(wait, token);
+            }
+
+            if (!breaker.allowRequest()) {
+                // Don't add load to a host that keeps failing
+                rejectedCount.incrementAndGet();
+                if (lastError == null) {
+                    lastError = new CircuitBreaker.OpenException(host);
+                }
+                break;
+            }
+
+            Response response;
+            try {
+                response = execute(url, "GET", timeoutMillis, token);
+            } catch (PermitTimeoutException | UnknownHostException e) {
+                // Our own requests are queued up, or the device is offline (the name
+                // can't even be resolved) - not the host's fault, and retrying right
+                // away won't help; fall back to the cache below
+                breaker.recordAbandoned();
+                lastError = e;
+                break;
+            } catch (IOException e) {
+                if (token != null && token.isCancelled()) {
+                    // Cancelled by the caller - not the host's fault, and no point retrying
+                    breaker.recordAbandoned();
+                    throw e;
+                }
+                recordFailure(breaker, host);
+                lastError = e;
+                continue;
+            }
+
+            if (!RetryPolicy.isRetryableStatus(response.code)) {
+                breaker.recordSuccess();
+                return response;
+            }
+            recordFailure(breaker, host);
+            lastResponse = response;
+        }
+
+        // Every attempt failed (or the circuit is open) - fall back to the cache if we can
+        Response cached = staleFromCache(url);
+        if (cached != null) {
+            if (lastResponse != null) {
+                lastResponse.close();
+            }
+            return cached;
+        }
+        if (lastResponse != null) {
+            // Let the caller see the server's error status and body
+            return lastResponse;
+        }
+        throw lastError;
+    }
+
+    private void recordFailure(CircuitBreaker breaker, String host) {
+        if (breaker.recordFailure()) {
+            circuitOpenCount.incrementAndGet();
+            Log.w(TAG, "Circuit opened for " + host + " (" + resilienceStats() + ")");
+        }
+    }
+
+    /**
+     * Serve the last cached body for a URL after the network failed.
+     *
+     * @return A stale response, or null if nothing is cached
+     */
+    private Response staleFromCache(String url) {
+        DiskResponseCache responseCache = cache;
+        DiskResponseCache.Entry entry = responseCache != null ? responseCache.get(url) : null;
+        if (entry == null) {
+            return null;
+        }
+        staleFallbackCount.incrementAndGet();
+        Log.w(TAG, "Serving stale cached response for " + url);
+        return new Response(null, HttpURLConnection.HTTP_OK, null, url, null, entry, null, null);
+    }
+
+    /**
+     * Sleep for a backoff, waking early (with an exception) if the load is cancelled.
+     */
+    private static void sleep(long millis, CancellationToken token) throws IOException {
+        long deadline = System.currentTimeMillis() + millis;
+        try {
+            for (long left = millis; left > 0; left = deadline - System.currentTimeMillis()) {
+                if (token != null) {
+                    token.throwIfCancelled();
+                }
+                Thread.sleep(Math.min(left, BACKOFF_SLICE_MILLIS));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while backing off");
+        }
+        if (token != null) {
+            token.throwIfCancelled();
+        }
+    }
+
+    private Response execute(String url, String method, int timeoutMillis,
+                             CancellationToken token) throws IOException {
+        if (token != null) {
+            token.throwIfCancelled();
+        }
+        URL target = new URL(url);
+        Semaphore permits = hostPermits.computeIfAbsent(target.getHost(),
+            host -> new Semaphore(maxConnectionsPerHost, true));
+
+        // Wait for a free slot on this host, but no longer than the connect timeout
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new PermitTimeoutException(target.getHost());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for connection to " + target.getHost());
+        }
+
+        Closeable abort = null;
+        DiskResponseCache.Entry cached = null;
+        try {
+            HttpURLConnection connection = (HttpURLConnection) target.openConnection();
+            if (token != null) {
+                // Cancelling disconnects, which fails a blocked connect or read immediately
+                abort = connection::disconnect;
+                token.register(abort);
+            }
+            connection.setRequestMethod(method);
+            connection.setConnectTimeout(timeoutMillis);
+            connection.setReadTimeout(timeoutMillis);
+            // Explicitly ask the server to keep the connection open for reuse
+            connection.setRequestProperty("Connection", "keep-alive");
+            // Advertise the encodings decode() understands. Setting this header
+            // ourselves turns off the platform's transparent gzip, so we always
+            // know exactly what arrives on the wire.
+            connection.setRequestProperty("Accept-Encoding", ACCEPT_ENCODING);
+
+            // Turn the request into a conditional GET if we have a cached copy
+            DiskResponseCache responseCache = "GET".equals(method) ? cache : null;
+            cached = responseCache != null ? responseCache.get(url) : null;
+            if (cached != null) {
+                if (cached.etag != null) {
+                    connection.setRequestProperty("If-None-Match", cached.etag);
+                }
+                if (cached.lastModified != null) {
+                    connection.setRequestProperty("If-Modified-Since", cached.lastModified);
+                }
+            }
+
+            int code = connection.getResponseCode();
+            if (code == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                // Unchanged upstream - serve the stored body, nothing was downloaded
+                responseCache.markHit(cached);
+                return new Response(connection, code, permits, url, null, cached, token, abort);
+            }
+            if (cached != null) {
+                // A new body (or an error) is coming - the stored one isn't needed
+                cached.close();
+            }
+            if (responseCache != null && code == HttpURLConnection.HTTP_OK) {
+                responseCache.markMiss();
+            }
+            return new Response(connection, code, permits, url, responseCache, null, token, abort);
+        } catch (IOException | RuntimeException e) {
+            if (token != null && abort != null) {
+                token.unregister(abort);
+            }
+            if (cached != null) {
+                cached.close();
+            }
+            permits.release();
+            if (token != null) {
+                // Report a cancel as such, not as the socket error it caused
+                token.throwIfCancelled();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Wrap a raw response stream in the decompressor matching its Content-Encoding.
+     *
+     * Decompression happens incrementally as the parser reads, so the
+     * uncompressed payload is never held in memory as a whole.
+     *
+     * @param raw The stream as received from the network
+     * @param contentEncoding Value of the Content-Encoding header, or null
+     * @return A stream of decoded (plain JSON) bytes
+     * @throws IOException If the encoding is not supported or the header is corrupt
+     */
+    static InputStream decode(InputStream raw, String contentEncoding) throws IOException {
+        if (contentEncoding == null || contentEncoding.isEmpty()
+                || "identity".equalsIgnoreCase(contentEncoding)) {
+            return raw;
+        }
+        if ("gzip".equalsIgnoreCase(contentEncoding) || "x-gzip".equalsIgnoreCase(contentEncoding)) {
+            return new GZIPInputStream(raw, 8192);
+        }
+        if ("deflate".equalsIgnoreCase(contentEncoding)) {
+            // "deflate" should be zlib-wrapped, but some servers send a raw deflate stream.
+            // Peek at the first two bytes to tell the two apart.
+            BufferedInputStream buffered = new BufferedInputStream(raw, 8192);
+            buffered.mark(2);
+            int cmf = buffered.read();
+            int flg = buffered.read();
+            buffered.reset();
+            boolean zlibWrapped = cmf >= 0 && flg >= 0
+                && (cmf & 0x0F) == 8 && ((cmf << 8) | flg) % 31 == 0;
+            return new InflaterInputStream(buffered, new Inflater(!zlibWrapped), 8192);
+        }
+        throw new IOException("Unsupported content encoding: " + contentEncoding);
+    }
+
+    /**
+     * Read a whole (decoded) body into a byte array.
+     *
+     * The buffer is sized from Content-Length up front when the server sends it,
+     * otherwise it starts small and doubles as needed - the bytes are copied
+     * once per doubling instead of once per line as with readLine() and a
+     * StringBuilder, and no line breaks are lost.
+     *
+     * @param in The body stream (read to the end, not closed)
+     * @param contentLength Content-Length of the response, or -1 if unknown.
+     *                      For a compressed body this is the compressed size, so
+     *                      it is only used as the initial capacity.
+     * @param maxBytes Maximum number of bytes to accept
+     * @return The body bytes (exactly as long as the body)
+     * @throws IOException If reading fails or the body is longer than maxBytes
+     */
+    static byte[] readBody(InputStream in, long contentLength, int maxBytes) throws IOException {
+        int capacity = contentLength >= 0 && contentLength <= maxBytes
+            ? (int) contentLength : Math.min(DEFAULT_BODY_BUFFER, maxBytes);
+        byte[] buffer = new byte[Math.max(capacity, 1)];
+        int length = 0;
+        while (true) {
+            if (length == buffer.length) {
+                if (length >= maxBytes) {
+                    // Full at the limit - fine only if the body ends here
+                    if (in.read() == -1) {
+                        return buffer;
+                    }
+                    throw new IOException("Response body exceeds " + maxBytes + " bytes");
+                }
+                buffer = Arrays.copyOf(buffer, (int) Math.min((long) length * 2, maxBytes));
+            }
+            int read = in.read(buffer, length, buffer.length - length);
+            if (read == -1) {
+                return length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+            }
+            length += read;
+        }
+    }
+
+    /**
+     * An HTTP response whose body is streamed from the pooled connection.
+     */
+    static final class Response implements Closeable {
+        // HTTP status code (e.g., 200 for OK).
+        // A 304 revalidation is reported as 200 with notModified = true,
+        // because the caller gets the full (cached) body either way.
+        final int code;
+
+        // True if the server answered 304 and the body comes from the disk cache.
+        // Callers that remember what they parsed from this URL can skip parsing.
+        final boolean notModified;
+
+        // True if the network failed and the body is an old cached copy
+        // (no connection was made for this response, or it was discarded)
+        final boolean stale;
+
+        private final HttpURLConnection connection;
+        private final Semaphore permits;
+        private final String url;
+        private final DiskResponseCache cache;
+        private final DiskResponseCache.Entry cachedEntry;
+        private final int networkCode;
+        private final CancellationToken token;
+        private final Closeable abort;
+        // Body held in memory (recorded or replayed responses), or null
+        private final byte[] localBody;
+        private InputStream body;
+        private DiskResponseCache.Writer cacheWriter;
+        private boolean closed = false;
+
+        Response(HttpURLConnection connection, int networkCode, Semaphore permits, String url,
+                 DiskResponseCache cache, DiskResponseCache.Entry cachedEntry,
+                 CancellationToken token, Closeable abort) {
+            this.connection = connection;
+            this.token = token;
+            this.abort = abort;
+            this.networkCode = networkCode;
+            this.permits = permits;
+            this.url = url;
+            this.cache = cache;
+            this.cachedEntry = cachedEntry;
+            // A stale fallback also has a cached entry, but the server never said 304
+            this.notModified = cachedEntry != null && connection != null;
+            this.stale = connection == null;
+            this.code = notModified ? HttpURLConnection.HTTP_OK : networkCode;
+            this.localBody = null;
+        }
+
+        private Response(int code, byte[] localBody, CancellationToken token) {
+            this.connection = null;
+            this.permits = null;
+            this.url = null;
+            this.cache = null;
+            this.cachedEntry = null;
+            this.networkCode = code;
+            this.token = token;
+            this.abort = null;
+            this.localBody = localBody;
+            this.notModified = false;
+            this.stale = false;
+            this.code = code;
+        }
+
+        /**
+         * A response whose body is already in memory (used by RecordingTransport
+         * and ReplayTransport). Nothing needs to be released on close().
+         *
+         * @param code HTTP status code
+         * @param body The decoded body bytes (the error body if code is not 200)
+         * @param token Cancellation token of the load, or null
+         */
+        static Response fromBytes(int code, byte[] body, CancellationToken token) {
+            return new Response(code, body, token);
+        }
+
+        /**
+         * The response body stream (only valid for successful responses).
+         *
+         * For a fresh 200 response with validators, the bytes are copied into the
+         * disk cache as they are read, so no separate download or buffer is needed.
+         */
+        InputStream body() throws IOException {
+            if (body == null) {
+                if (localBody != null) {
+                    body = new ByteArrayInputStream(localBody);
+                } else if (cachedEntry != null) {
+                    // 304 revalidation or stale fallback - the body is the cached copy
+                    body = cachedEntry.openBody();
+                } else {
+                    // Limit the decoded size, so a compression bomb can't inflate without bound
+                    body = new SizeLimitedInputStream(
+                        decode(connection.getInputStream(), connection.getContentEncoding()),
+                        MAX_BODY_BYTES);
+                    String etag = connection.getHeaderField("ETag");
+                    String lastModified = connection.getHeaderField("Last-Modified");
+                    // Without a validator we could never revalidate, so don't store it
+                    if (cache != null && (etag != null || lastModified != null)) {
+                        cacheWriter = cache.edit(url, etag, lastModified, body);
+                        body = cacheWriter;
+                    }
+                }
+                if (token != null) {
+                    body = new CancellableInputStream(body, token);
+                }
+            }
+            return body;
+        }
+
+        /**
+         * Read the error body of a failed response as UTF-8 text (for error messages).
+         *
+         * @return The error body, or an empty string if there is none or it is
+         *         larger than MAX_ERROR_BODY_BYTES
+         */
+        String errorBody() {
+            if (localBody != null) {
+                return new String(localBody, StandardCharsets.UTF_8);
+            }
+            if (connection == null) {
+                return "";
+            }
+            InputStream errorStream = connection.getErrorStream();
+            if (errorStream == null) {
+                return "";
+            }
+            try (InputStream in = decode(errorStream, connection.getContentEncoding())) {
+                return new String(readBody(in, connection.getContentLengthLong(), MAX_ERROR_BODY_BYTES),
+                    StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                Log.w(TAG, "Could not read error stream", e);
+                return "";
+            }
+        }
+
+        /**
+         * Finish the exchange without tearing down the socket.
+         *
+         * Any small unread remainder of the body is drained so the connection
+         * is clean and can be reused by the next request to the same host.
+         * A body that was read to the end is committed to the disk cache.
+         */
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (cachedEntry != null) {
+                // Releases the cached body if body() was never called
+                cachedEntry.close();
+            }
+            if (connection == null) {
+                // Stale cache fallback or in-memory body - only a local stream to close
+                if (body != null) {
+                    try {
+                        body.close();
+                    } catch (IOException e) {
+                        Log.d(TAG, "Could not close cached body: " + e.getMessage());
+                    }
+                }
+                return;
+            }
+            if (token != null) {
+                token.unregister(abort);
+                if (token.isCancelled()) {
+                    // Superseded: don't drain or cache a partial body, just drop the socket
+                    connection.disconnect();
+                    if (cacheWriter != null) {
+                        cacheWriter.abandon();
+                    }
+                    permits.release();
+                    return;
+                }
+            }
+            try {
+                if (body != null) {
+                    drain(body);
+                    body.close();
+                }
+                if (cacheWriter != null) {
+                    cacheWriter.commit();
+                }
+                if (body == null || notModified) {
+                    // Nothing (or only the cached copy) was read - finish the network stream
+                    InputStream stream = networkCode < 400
+                        ? connection.getInputStream() : connection.getErrorStream();
+                    if (stream != null) {
+                        drain(stream);
+                        stream.close();
+                    }
+                }
+            } catch (IOException e) {
+                // The connection can't be reused - drop it
+                // (also reached when the body exceeded MAX_BODY_BYTES; never cache that)
+                connection.disconnect();
+                if (cacheWriter != null) {
+                    cacheWriter.abandon();
+                }
+            } finally {
+                permits.release();
+            }
+        }
+
+        /**
+         * How long the server asked us to wait before retrying (Retry-After in seconds).
+         *
+         * @return Milliseconds, or 0 if the header is absent or not a number of seconds
+         */
+        long retryAfterMillis() {
+            String retryAfter = connection != null ? connection.getHeaderField("Retry-After") : null;
+            if (retryAfter == null) {
+                return 0;
+            }
+            try {
+                return Math.max(0, Long.parseLong(retryAfter.trim())) * 1000;
+            } catch (NumberFormatException e) {
+                // An HTTP-date - our own backoff is good enough
+                return 0;
+            }
+        }
+
+        /**
+         * Body stream that fails as soon as its load is cancelled.
+         * The parser pulls bytes through here, so it stops at its next read.
+         */
+        private static final class CancellableInputStream extends FilterInputStream {
+            private final CancellationToken token;
+
+            CancellableInputStream(InputStream in, CancellationToken token) {
+                super(in);
+                this.token = token;
+            }
+
+            @Override
+            public int read() throws IOException {
+                token.throwIfCancelled();
+                return super.read();
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                token.throwIfCancelled();
+                try {
+                    return super.read(buffer, offset, length);
+                } catch (IOException e) {
+                    // A read failing because we disconnected is a cancel, not a network error
+                    token.throwIfCancelled();
+                    throw e;
+                }
+            }
+        }
+
+        /**
+         * Body stream that fails once more than maxBytes have been read from it.
+         */
+        private static final class SizeLimitedInputStream extends FilterInputStream {
+            private final long maxBytes;
+            private long count = 0;
+
+            SizeLimitedInputStream(InputStream in, long maxBytes) {
+                super(in);
+                this.maxBytes = maxBytes;
+            }
+
+            @Override
+            public int read() throws IOException {
+                int value = super.read();
+                if (value != -1) {
+                    counted(1);
+                }
+                return value;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int read = super.read(buffer, offset, length);
+                if (read > 0) {
+                    counted(read);
+                }
+                return read;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = super.skip(n);
+                counted(skipped);
+                return skipped;
+            }
+
+            private void counted(long bytes) throws IOException {
+                count += bytes;
+                if (count > maxBytes) {
+                    throw new IOException("Response body exceeds " + maxBytes + " bytes");
+                }
+            }
+        }
+
+        private static void drain(InputStream stream) throws IOException {
+            byte[] skip = new byte[4096];
+            int drained = 0;
+            int read;
+            while (drained < MAX_DRAIN_BYTES && (read = stream.read(skip)) != -1) {
+                drained += read;
+            }
+        }
+    }
+}
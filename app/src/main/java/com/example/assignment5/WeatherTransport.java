@@ -0,0 +1,56 @@
+package com.example.assignment5;
+
+import java.io.IOException;
+
+/**
+ * Where weather responses come from.
+ *
+ * Implementations:
+ * - WeatherHttpClient: the live Open Meteo service (the default)
+ * - RecordingTransport: live responses, also saved to disk for later replay
+ * - ReplayTransport: previously recorded responses served from local files,
+ *   with optional injected latency and failures - no network needed
+ *
+ * Everything that talks to Open Meteo goes through current(), so the app,
+ * tests and benchmarks can run fully offline by installing a ReplayTransport.
+ */
+interface WeatherTransport {
+
+    /**
+     * Perform a GET request.
+     *
+     * The caller must close() the returned response (try-with-resources).
+     *
+     * @param url Complete request URL
+     * @param timeoutMillis Connect and read timeout in milliseconds
+     * @param token Cancellation token for this load, or null
+     * @return The response; check {@link WeatherHttpClient.Response#code} before reading the body
+     * @throws IOException If the request fails or the token is cancelled
+     */
+    WeatherHttpClient.Response get(String url, int timeoutMillis, CancellationToken token) throws IOException;
+
+    /**
+     * The transport the app currently uses.
+     */
+    static WeatherTransport current() {
+        WeatherTransport transport = Holder.current;
+        return transport != null ? transport : WeatherHttpClient.getInstance();
+    }
+
+    /**
+     * Switch the transport used from now on (null = live WeatherHttpClient).
+     */
+    static void use(WeatherTransport transport) {
+        Holder.current = transport;
+    }
+
+    /**
+     * Storage for the installed transport (interfaces can't have mutable fields).
+     */
+    final class Holder {
+        private static volatile WeatherTransport current;
+
+        private Holder() {
+        }
+    }
+}
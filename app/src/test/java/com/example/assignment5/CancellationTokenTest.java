@@ -0,0 +1,51 @@
+package com.example.assignment5;
+
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for load cancellation.
+ */
+public class CancellationTokenTest {
+
+    @Test
+    public void cancelClosesRegisteredResourcesOnce() {
+        CancellationToken token = new CancellationToken(1);
+        AtomicInteger closed = new AtomicInteger();
+        token.register(closed::incrementAndGet);
+
+        token.cancel();
+        token.cancel();
+        // Registering after cancel closes immediately
+        token.register(closed::incrementAndGet);
+
+        assertTrue(token.isCancelled());
+        assertEquals(2, closed.get());
+    }
+
+    @Test
+    public void unregisteredResourcesAreNotClosed() {
+        CancellationToken token = new CancellationToken(1);
+        AtomicInteger closed = new AtomicInteger();
+        Closeable resource = closed::incrementAndGet;
+        token.register(resource);
+        token.unregister(resource);
+
+        token.cancel();
+
+        assertEquals(0, closed.get());
+    }
+
+    @Test(expected = InterruptedIOException.class)
+    public void throwIfCancelledThrowsAfterCancel() throws Exception {
+        CancellationToken token = new CancellationToken(2);
+        token.throwIfCancelled();
+        token.cancel();
+        token.throwIfCancelled();
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.assignment5;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the per-host circuit breaker.
+ */
+public class CircuitBreakerTest {
+
+    @Test
+    public void opensAfterThresholdAndRecoversThroughHalfOpenTrial() {
+        AtomicLong now = new AtomicLong(0);
+        CircuitBreaker breaker = new CircuitBreaker(2, 1000, now::get);
+
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.recordFailure());
+        assertTrue(breaker.allowRequest());
+        assertTrue(breaker.recordFailure());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.allowRequest());
+
+        // After the open period, exactly one trial request goes through
+        now.set(1000);
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void failedTrialReopensCircuit() {
+        AtomicLong now = new AtomicLong(0);
+        CircuitBreaker breaker = new CircuitBreaker(1, 1000, now::get);
+        breaker.allowRequest();
+        breaker.recordFailure();
+
+        now.set(1500);
+        assertTrue(breaker.allowRequest());
+        assertTrue(breaker.recordFailure());
+        assertFalse(breaker.allowRequest());
+
+        // An abandoned trial frees the slot for the next one
+        now.set(3000);
+        assertTrue(breaker.allowRequest());
+        breaker.recordAbandoned();
+        assertTrue(breaker.allowRequest());
+    }
+}
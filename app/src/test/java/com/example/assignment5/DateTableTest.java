@@ -0,0 +1,55 @@
+package com.example.assignment5;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the cached date table.
+ */
+public class DateTableTest {
+
+    @Test
+    public void labelsMatchDateFormat() {
+        Calendar today = Calendar.getInstance();
+        today.set(2024, Calendar.FEBRUARY, 27);
+        DateTable table = DateTable.forDay(ForecastParser.epochDay(today));
+        SimpleDateFormat format = new SimpleDateFormat("EEE M d", Locale.US);
+
+        assertEquals("Today", table.label(0));
+        assertEquals("Tomorrow", table.label(1));
+        for (int offset = 2; offset < 40; offset++) {
+            Calendar day = (Calendar) today.clone();
+            day.add(Calendar.DAY_OF_MONTH, offset);
+            assertEquals(format.format(day.getTime()), table.label(offset));
+        }
+    }
+
+    @Test
+    public void dayOfYearInsideAndOutsideTable() {
+        int base = HistoricalAggregator.epochDay("2024-03-01");
+        DateTable table = DateTable.forDay(base);
+
+        assertSame(table, DateTable.forDay(base));
+        assertEquals(61, table.dayOfYear(base));
+        assertEquals(366, table.dayOfYear(HistoricalAggregator.epochDay("2023-12-31") + 366));
+        assertEquals(1, table.dayOfYear(HistoricalAggregator.epochDay("2024-01-01")));
+        // Far outside the cached range
+        assertEquals(365, table.dayOfYear(HistoricalAggregator.epochDay("1999-12-31")));
+    }
+
+    @Test
+    public void civilDateMatchesDateString() {
+        // Across several leap years and the 2000/2100 century rules
+        for (int epochDay = HistoricalAggregator.epochDay("1999-01-01");
+             epochDay < HistoricalAggregator.epochDay("2101-01-01"); epochDay++) {
+            String date = HistoricalAggregator.dateString(epochDay);
+            assertEquals(date, Integer.parseInt(date.replace("-", "")), HistoricalAggregator.civilDate(epochDay));
+            assertEquals(date, HistoricalAggregator.dayOfYear(date), DateTable.dayOfYearOf(epochDay));
+        }
+    }
+}
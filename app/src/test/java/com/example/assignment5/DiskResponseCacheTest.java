@@ -0,0 +1,84 @@
+package com.example.assignment5;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the on-disk response cache.
+ */
+public class DiskResponseCacheTest {
+
+    private static void store(DiskResponseCache cache, String url, String etag, byte[] body) throws Exception {
+        DiskResponseCache.Writer writer = cache.edit(url, etag, null, new ByteArrayInputStream(body));
+        byte[] buffer = new byte[64];
+        while (writer.read(buffer, 0, buffer.length) != -1) {
+            // Read to the end so the entry is committed
+        }
+        writer.commit();
+    }
+
+    @Test
+    public void normalizesQueryParameterOrder() {
+        assertEquals(
+            DiskResponseCache.normalizeUrl("https://API.open-meteo.com/v1/forecast?latitude=1&hourly=rain"),
+            DiskResponseCache.normalizeUrl("https://api.open-meteo.com/v1/forecast?hourly=rain&latitude=1"));
+    }
+
+    @Test
+    public void storesValidatorsAndBody() throws Exception {
+        File dir = Files.createTempDirectory("http-cache").toFile();
+        DiskResponseCache cache = new DiskResponseCache(dir, 1024);
+        store(cache, "https://example.com/a?x=1", "\"v1\"", new byte[]{1, 2, 3});
+
+        DiskResponseCache.Entry entry = new DiskResponseCache(dir, 1024).get("https://example.com/a?x=1");
+        assertNotNull(entry);
+        assertEquals("\"v1\"", entry.etag);
+        assertNull(entry.lastModified);
+        try (InputStream body = entry.openBody()) {
+            assertEquals(3, body.available());
+        }
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedEntries() throws Exception {
+        DiskResponseCache cache = new DiskResponseCache(Files.createTempDirectory("http-cache").toFile(), 10);
+        store(cache, "https://example.com/a", "a", new byte[4]);
+        store(cache, "https://example.com/b", "b", new byte[4]);
+        assertNotNull(cache.get("https://example.com/a"));   // "a" is now most recently used
+        store(cache, "https://example.com/c", "c", new byte[4]);
+
+        assertNotNull(cache.get("https://example.com/a"));
+        assertNull(cache.get("https://example.com/b"));
+        assertEquals(1, cache.evictionCount());
+        assertEquals(8, cache.size());
+    }
+
+    @Test
+    public void entryKeepsItsBodyWhenTheFileIsReplaced() throws Exception {
+        File dir = Files.createTempDirectory("http-cache").toFile();
+        DiskResponseCache cache = new DiskResponseCache(dir, 1024);
+        store(cache, "https://example.com/a", "\"v1\"", new byte[]{1, 2, 3});
+
+        DiskResponseCache.Entry entry = cache.get("https://example.com/a");
+        // A concurrent refresh replaces the entry while the conditional GET is in flight
+        store(cache, "https://example.com/a", "\"v2\"", new byte[]{4, 5});
+
+        assertEquals("\"v1\"", entry.etag);
+        try (InputStream body = entry.openBody()) {
+            assertEquals(1, body.read());
+            assertEquals(2, body.read());
+            assertEquals(3, body.read());
+            assertEquals(-1, body.read());
+        }
+        DiskResponseCache.Entry replaced = cache.get("https://example.com/a");
+        assertEquals("\"v2\"", replaced.etag);
+        replaced.close();
+        assertEquals(2, dir.listFiles().length);
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.assignment5;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the streaming forecast parser.
+ */
+public class ForecastParserTest {
+
+    private static List<DailyForecast> parse(String json, int maxDays) throws Exception {
+        Calendar today = Calendar.getInstance();
+        today.set(2024, Calendar.JANUARY, 15);
+        return ForecastParser.parse(
+            new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), today, maxDays);
+    }
+
+    @Test
+    public void aggregatesHoursIntoDailyAverages() throws Exception {
+        String json = "{\"latitude\":30.28,\"hourly_units\":{\"time\":\"iso8601\"},"
+            + "\"hourly\":{"
+            + "\"time\":[\"2024-01-15T00:00\",\"2024-01-15T01:00\",\"2024-01-16T00:00\"],"
+            + "\"temperature_2m\":[40.0,50.0,-3.5],"
+            + "\"relative_humidity_2m\":[60,null,80],"
+            + "\"rain\":[0.1,0.3,0],"
+            + "\"weather_code\":[1,2,3]}}";
+
+        List<DailyForecast> forecasts = parse(json, 7);
+
+        assertEquals(2, forecasts.size());
+        assertEquals("Today", forecasts.get(0).dateLabel);
+        assertEquals("Tomorrow", forecasts.get(1).dateLabel);
+        assertEquals(45.0, forecasts.get(0).averageTempF, 1e-9);
+        assertEquals(-3.5, forecasts.get(1).averageTempF, 1e-9);
+        // Null hours are excluded from the average, missing variables stay null
+        assertEquals(60.0, forecasts.get(0).averageHumidity, 1e-9);
+        assertNull(forecasts.get(0).averageWindSpeed);
+        assertEquals(0.2, forecasts.get(0).averageRain, 1e-9);
+
+        HourlySeries hours = forecasts.get(0).hourlyData;
+        assertEquals(2, hours.size());
+        assertEquals("2024-01-15T01:00", hours.timeString(1));
+        assertFalse(hours.isPresent(ForecastParser.VAR_HUMIDITY, 1));
+        assertEquals(1, forecasts.get(1).hourlyData.size());
+        assertEquals(-3.5, forecasts.get(1).hourlyData.value(ForecastParser.VAR_TEMPERATURE, 0), 1e-9);
+    }
+
+    @Test
+    public void collectsDailyStatisticsWhileParsing() throws Exception {
+        // Rain arrives before the time axis, so its statistics are collected afterwards
+        String json = "{\"hourly\":{"
+            + "\"rain\":[0.5,null,1.25,0,2],"
+            + "\"time\":[\"2024-01-15T00:00\",\"2024-01-15T01:00\",\"2024-01-15T02:00\","
+            + "\"2024-01-16T00:00\",\"2024-01-16T01:00\"],"
+            + "\"temperature_2m\":[40.0,55.5,40.0,30,20]}}";
+
+        List<DailyForecast> forecasts = parse(json, 7);
+        DailyStats today = forecasts.get(0).stats;
+
+        assertEquals(3, today.count(ForecastParser.VAR_TEMPERATURE));
+        assertEquals(135.5, today.sum(ForecastParser.VAR_TEMPERATURE), 1e-9);
+        assertEquals(55.5, today.high(ForecastParser.VAR_TEMPERATURE), 1e-9);
+        assertEquals(1, today.highHour(ForecastParser.VAR_TEMPERATURE));
+        // Ties keep the first hour
+        assertEquals(40.0, today.low(ForecastParser.VAR_TEMPERATURE), 1e-9);
+        assertEquals(0, today.lowHour(ForecastParser.VAR_TEMPERATURE));
+        // Rain is totalled over the hours that have a reading
+        assertEquals(2, today.count(ForecastParser.VAR_RAIN));
+        assertEquals(1.75, forecasts.get(0).totalRain, 1e-9);
+        assertEquals(0.875, forecasts.get(0).averageRain, 1e-9);
+        assertEquals(2.0, forecasts.get(1).totalRain, 1e-9);
+        assertEquals(1, forecasts.get(1).stats.lowHour(ForecastParser.VAR_TEMPERATURE));
+        // Variables that weren't requested have no statistics
+        assertEquals(0, today.count(ForecastParser.VAR_WIND));
+        assertEquals(-1, today.highHour(ForecastParser.VAR_WIND));
+        assertNull(new DailyForecast("Today", 1.0).totalRain);
+
+        // Statistics recomputed from the hours (e.g., for a snapshot) are the same
+        DailyStats recomputed = DailyStats.of(forecasts.get(0).hourlyData);
+        assertEquals(today.sum(ForecastParser.VAR_RAIN), recomputed.sum(ForecastParser.VAR_RAIN), 1e-9);
+        assertEquals(today.highHour(ForecastParser.VAR_TEMPERATURE),
+            recomputed.highHour(ForecastParser.VAR_TEMPERATURE));
+    }
+
+    @Test
+    public void dropsDaysBeyondLimit() throws Exception {
+        String json = "{\"hourly\":{"
+            + "\"time\":[\"2024-01-15T00:00\",\"2024-01-16T00:00\",\"2024-01-17T00:00\"],"
+            + "\"temperature_2m\":[1,2,3]}}";
+
+        List<DailyForecast> forecasts = parse(json, 2);
+
+        assertEquals(2, forecasts.size());
+        assertEquals(2.0, forecasts.get(1).averageTempF, 1e-9);
+    }
+
+    @Test
+    public void dropsDaysWithoutTemperatureReadings() throws Exception {
+        String json = "{\"hourly\":{"
+            + "\"time\":[\"2024-01-15T00:00\",\"2024-01-15T01:00\",\"2024-01-16T00:00\",\"2024-01-17T00:00\"],"
+            + "\"temperature_2m\":[null,null,5,7],"
+            + "\"relative_humidity_2m\":[50,55,60,65]}}";
+
+        List<DailyForecast> forecasts = parse(json, 7);
+
+        assertEquals(2, forecasts.size());
+        // Labels still follow the dates, not the positions in the list
+        assertEquals("Tomorrow", forecasts.get(0).dateLabel);
+        assertEquals(5.0, forecasts.get(0).averageTempF, 1e-9);
+        assertFalse(Double.isNaN(forecasts.get(1).averageTempF));
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void rejectsMissingTemperature() throws Exception {
+        parse("{\"hourly\":{\"time\":[\"2024-01-15T00:00\"]}}", 7);
+    }
+
+    @Test
+    public void parsesOneForecastPerLocationInBatch() throws Exception {
+        String json = "[{\"hourly\":{\"time\":[\"2024-01-15T00:00\"],\"temperature_2m\":[10]}},"
+            + "{\"hourly\":{\"time\":[\"2024-01-15T00:00\"],\"temperature_2m\":[20]}}]";
+        Calendar today = Calendar.getInstance();
+        today.set(2024, Calendar.JANUARY, 15);
+
+        List<List<DailyForecast>> batch = ForecastParser.parseBatch(
+            new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), today, 7);
+
+        assertEquals(2, batch.size());
+        assertEquals(10.0, batch.get(0).get(0).averageTempF, 1e-9);
+        assertEquals(20.0, batch.get(1).get(0).averageTempF, 1e-9);
+    }
+
+    @Test
+    public void bucketsUnixTimesInLocalTime() throws Exception {
+        // Midnight local time in UTC-6 is 06:00 UTC
+        long localMidnight = HistoricalAggregator.epochDay("2024-01-15") * 86400L + 6 * 3600;
+        String json = "{\"utc_offset_seconds\":-21600,\"hourly\":{\"time\":["
+            + (localMidnight - 3600) + "," + localMidnight + "," + (localMidnight + 3600) + "],"
+            + "\"temperature_2m\":[1,2,4]}}";
+
+        List<DailyForecast> forecasts = parse(json, 7);
+
+        // 23:00 on the 14th is yesterday - it becomes its own (first) day
+        assertEquals(2, forecasts.size());
+        assertEquals(1.0, forecasts.get(0).averageTempF, 1e-9);
+        assertEquals("Today", forecasts.get(1).dateLabel);
+        assertEquals(3.0, forecasts.get(1).averageTempF, 1e-9);
+        assertEquals("2024-01-15T01:00", forecasts.get(1).hourlyData.timeString(1));
+    }
+
+    @Test
+    public void acceptsUtcOffsetAfterHourly() throws Exception {
+        long localMidnight = HistoricalAggregator.epochDay("2024-01-15") * 86400L + 6 * 3600;
+        String json = "{\"hourly\":{\"time\":["
+            + (localMidnight - 3600) + "," + localMidnight + "," + (localMidnight + 3600) + "],"
+            + "\"temperature_2m\":[1,2,4]},\"utc_offset_seconds\":-21600}";
+
+        List<DailyForecast> forecasts = parse(json, 7);
+
+        // Same buckets as when the offset comes first
+        assertEquals(2, forecasts.size());
+        assertEquals(1.0, forecasts.get(0).averageTempF, 1e-9);
+        assertEquals("Today", forecasts.get(1).dateLabel);
+        assertEquals(3.0, forecasts.get(1).averageTempF, 1e-9);
+        assertEquals("2024-01-15T01:00", forecasts.get(1).hourlyData.timeString(1));
+
+        // The day limit applies to local days, not UTC days
+        forecasts = parse(json, 1);
+        assertEquals(1, forecasts.size());
+        assertEquals(1, forecasts.get(0).hourlyData.size());
+    }
+
+    @Test
+    public void epochDayOfCalendarMatchesDateString() {
+        Calendar date = Calendar.getInstance();
+        date.set(2023, Calendar.JANUARY, 1, 23, 30);
+        int expected = HistoricalAggregator.epochDay("2023-01-01");
+        // Across the 2024 leap day and a year boundary
+        for (int i = 0; i < 800; i++) {
+            assertEquals(expected + i, ForecastParser.epochDay(date));
+            date.add(Calendar.DAY_OF_MONTH, 1);
+        }
+    }
+
+    @Test
+    public void mainVariableSetLeavesDetailColumnsEmpty() throws Exception {
+        assertEquals("temperature_2m,relative_humidity_2m,wind_speed_10m",
+            ForecastParser.hourlyParameter(ForecastParser.MAIN_VARIABLES));
+
+        String json = "{\"hourly\":{\"time\":[\"2024-01-15T00:00\"],"
+            + "\"temperature_2m\":[10],\"relative_humidity_2m\":[50],\"wind_speed_10m\":[5]}}";
+        DailyForecast day = parse(json, 7).get(0);
+
+        assertEquals(50.0, day.averageHumidity, 1e-9);
+        assertNull(day.averageRain);
+        assertFalse(day.hourlyData.has(ForecastParser.VAR_RAIN));
+        assertTrue(Double.isNaN(day.hourlyData.value(ForecastParser.VAR_RAIN, 0)));
+    }
+}
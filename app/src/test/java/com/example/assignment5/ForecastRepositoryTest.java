@@ -0,0 +1,84 @@
+package com.example.assignment5;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the in-process forecast repository.
+ */
+public class ForecastRepositoryTest {
+
+    private static final City AUSTIN = new City("Austin", "TX", 30.28, -97.76);
+    private static final City DALLAS = new City("Dallas", "TX", 32.78, -96.80);
+
+    private static List<DailyForecast> forecast(double tempF) {
+        return Collections.singletonList(new DailyForecast("Today", tempF));
+    }
+
+    @Test
+    public void readsPublishedForecastByReference() {
+        ForecastRepository repository = new ForecastRepository();
+        List<DailyForecast> forecasts = forecast(70.0);
+        ForecastRepository.Entry entry = repository.publish(AUSTIN, forecasts);
+
+        assertSame(entry, repository.latest(AUSTIN.getKey()));
+        assertSame(entry, repository.get(AUSTIN.getKey(), entry.generation));
+        assertSame(forecasts.get(0), entry.forecasts.get(0));
+        assertSame(AUSTIN, entry.city);
+        assertNull(repository.latest(DALLAS.getKey()));
+    }
+
+    @Test
+    public void keepsPreviousGenerationUntilReplacedTwice() {
+        ForecastRepository repository = new ForecastRepository();
+        ForecastRepository.Entry first = repository.publish(AUSTIN, forecast(70.0));
+        ForecastRepository.Entry second = repository.publish(AUSTIN, forecast(71.0));
+
+        assertTrue(second.generation > first.generation);
+        assertSame(second, repository.latest(AUSTIN.getKey()));
+        assertSame(first, repository.get(AUSTIN.getKey(), first.generation));
+
+        repository.publish(AUSTIN, forecast(72.0));
+        assertNull(repository.get(AUSTIN.getKey(), first.generation));
+        assertSame(second, repository.get(AUSTIN.getKey(), second.generation));
+    }
+
+    @Test
+    public void publishIfAbsentKeepsExistingForecast() {
+        ForecastRepository repository = new ForecastRepository();
+        ForecastRepository.Entry fetched = repository.publish(AUSTIN, forecast(70.0));
+
+        assertNull(repository.publishIfAbsent(AUSTIN, forecast(60.0)));
+        assertSame(fetched, repository.latest(AUSTIN.getKey()));
+        assertNotNull(repository.publishIfAbsent(DALLAS, forecast(65.0)));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void publishedForecastIsUnmodifiable() {
+        ForecastRepository.Entry entry = new ForecastRepository().publish(AUSTIN,
+            Arrays.asList(new DailyForecast("Today", 70.0), new DailyForecast("Tomorrow", 71.0)));
+        entry.forecasts.remove(0);
+    }
+
+    @Test
+    public void keepsUpgradedDayWithItsEntry() {
+        ForecastRepository repository = new ForecastRepository();
+        ForecastRepository.Entry entry = repository.publish(AUSTIN, forecast(70.0));
+        DailyForecast detailed = new DailyForecast("Today", 70.5);
+
+        assertNull(repository.detailed(entry, 0));
+        repository.putDetailed(entry, 0, detailed);
+        repository.putDetailed(entry, 5, detailed);
+
+        // Found again through the same lookup a reopened detail screen does
+        assertSame(detailed, repository.detailed(repository.get(AUSTIN.getKey(), entry.generation), 0));
+        assertNull(repository.detailed(entry, 5));
+        // A newer generation starts without upgrades
+        assertNull(repository.detailed(repository.publish(AUSTIN, forecast(71.0)), 0));
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.assignment5;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the forecast snapshot store.
+ */
+public class ForecastSnapshotStoreTest {
+
+    private static Calendar date(int day) {
+        Calendar date = Calendar.getInstance();
+        date.set(2024, Calendar.JANUARY, day);
+        return date;
+    }
+
+    /**
+     * One hour at midnight of the given January 2024 day.
+     */
+    private static HourlySeries hourOn(int day, double temperature) {
+        double[][] columns = new double[ForecastParser.VARIABLE_COUNT][];
+        BitSet[] missing = new BitSet[ForecastParser.VARIABLE_COUNT];
+        columns[ForecastParser.VAR_TEMPERATURE] = new double[]{temperature};
+        missing[ForecastParser.VAR_TEMPERATURE] = new BitSet();
+        return new HourlySeries(new long[]{HourlySeries.parseTime(
+            String.format(Locale.US, "2024-01-%02dT00:00", day))}, columns, missing, 1);
+    }
+
+    @Test
+    public void relabelsAndDropsPastDays() throws Exception {
+        File dir = Files.createTempDirectory("forecasts").toFile();
+        // One hour: temperature 41.5, humidity 80, no wind reading, rain 0.2, visibility 9000
+        double[][] columns = new double[ForecastParser.VARIABLE_COUNT][];
+        BitSet[] missing = new BitSet[ForecastParser.VARIABLE_COUNT];
+        double[] values = {41.5, 80.0, Double.NaN, 0.2, Double.NaN, 9000.0};
+        for (int v = 0; v < values.length; v++) {
+            if (v != ForecastParser.VAR_PRESSURE) {
+                columns[v] = new double[]{values[v]};
+                missing[v] = new BitSet();
+            }
+        }
+        missing[ForecastParser.VAR_WIND].set(0);
+        HourlySeries hour = new HourlySeries(
+            new long[]{HourlySeries.parseTime("2024-01-16T00:00")}, columns, missing, 1);
+        List<DailyForecast> forecasts = Arrays.asList(
+            new DailyForecast("Today", 40.0, 70.0, 5.0, null, hourOn(15, 40.0)),
+            new DailyForecast("Tomorrow", 42.0, null, null, 0.1, hour));
+        ForecastSnapshotStore.save(dir, "Austin_30.28_-97.76", date(15), forecasts);
+
+        List<DailyForecast> sameDay = ForecastSnapshotStore.load(dir, "Austin_30.28_-97.76", date(15));
+        assertEquals(2, sameDay.size());
+        assertEquals("Today", sameDay.get(0).dateLabel);
+        assertEquals(70.0, sameDay.get(0).averageHumidity, 1e-9);
+        assertNull(sameDay.get(0).averageRain);
+        assertEquals("Tomorrow", sameDay.get(1).dateLabel);
+
+        List<DailyForecast> nextDay = ForecastSnapshotStore.load(dir, "Austin_30.28_-97.76", date(16));
+        assertEquals(1, nextDay.size());
+        assertEquals("Today", nextDay.get(0).dateLabel);
+        assertEquals(42.0, nextDay.get(0).averageTempF, 1e-9);
+        HourlySeries loaded = nextDay.get(0).hourlyData;
+        assertEquals(1, loaded.size());
+        assertEquals("2024-01-16T00:00", loaded.timeString(0));
+        assertEquals(80.0, loaded.value(ForecastParser.VAR_HUMIDITY, 0), 1e-9);
+        assertFalse(loaded.isPresent(ForecastParser.VAR_WIND, 0));
+        assertFalse(loaded.has(ForecastParser.VAR_PRESSURE));
+        assertEquals(9000.0, loaded.value(ForecastParser.VAR_VISIBILITY, 0), 1e-9);
+
+        assertNull(ForecastSnapshotStore.load(dir, "Austin_30.28_-97.76", date(17)));
+        assertNull(ForecastSnapshotStore.load(dir, "Chicago", date(15)));
+        assertNull(ForecastSnapshotStore.load(dir, "Austin_30.28_-97.76", date(14)));
+    }
+
+    @Test
+    public void labelsDaysAcrossGapsByTheirDate() throws Exception {
+        File dir = Files.createTempDirectory("forecasts").toFile();
+        // Jan 16 had no temperature readings, so the parser left it out
+        ForecastSnapshotStore.save(dir, "Austin", date(15), Arrays.asList(
+            new DailyForecast("Today", 40.0, null, null, null, hourOn(15, 40.0)),
+            new DailyForecast("Wed 1 17", 44.0, null, null, null, hourOn(17, 44.0))));
+
+        List<DailyForecast> sameDay = ForecastSnapshotStore.load(dir, "Austin", date(15));
+        assertEquals(2, sameDay.size());
+        assertEquals("Today", sameDay.get(0).dateLabel);
+        assertEquals(ForecastParser.labelForOffset(date(15), 2), sameDay.get(1).dateLabel);
+
+        List<DailyForecast> nextDay = ForecastSnapshotStore.load(dir, "Austin", date(16));
+        assertEquals(1, nextDay.size());
+        assertEquals("Tomorrow", nextDay.get(0).dateLabel);
+        assertEquals(44.0, nextDay.get(0).averageTempF, 1e-9);
+    }
+
+    @Test
+    public void labelsCityDaysOutsideTheDevicesToday() throws Exception {
+        File dir = Files.createTempDirectory("forecasts").toFile();
+        // A city behind the device's time zone: its first day is the device's yesterday
+        ForecastSnapshotStore.save(dir, "Honolulu", date(15), Arrays.asList(
+            new DailyForecast("Sun 1 14", 70.0, null, null, null, hourOn(14, 70.0)),
+            new DailyForecast("Today", 71.0, null, null, null, hourOn(15, 71.0)),
+            new DailyForecast("Tomorrow", 72.0, null, null, null, hourOn(16, 72.0))));
+
+        List<DailyForecast> sameDay = ForecastSnapshotStore.load(dir, "Honolulu", date(15));
+        assertEquals(3, sameDay.size());
+        assertEquals(ForecastParser.labelForOffset(date(15), -1), sameDay.get(0).dateLabel);
+        assertEquals("Today", sameDay.get(1).dateLabel);
+        assertEquals(71.0, sameDay.get(1).averageTempF, 1e-9);
+
+        // A day later the city's first day is Jan 15 - still the device's yesterday
+        List<DailyForecast> nextDay = ForecastSnapshotStore.load(dir, "Honolulu", date(16));
+        assertEquals(2, nextDay.size());
+        assertEquals(71.0, nextDay.get(0).averageTempF, 1e-9);
+        assertEquals("Today", nextDay.get(1).dateLabel);
+        assertEquals(72.0, nextDay.get(1).averageTempF, 1e-9);
+
+        // A city ahead of the device: its first day is the device's tomorrow
+        ForecastSnapshotStore.save(dir, "Tokyo", date(15), Arrays.asList(
+            new DailyForecast("Tomorrow", 50.0, null, null, null, hourOn(16, 50.0)),
+            new DailyForecast("Wed 1 17", 51.0, null, null, null, hourOn(17, 51.0))));
+        List<DailyForecast> tokyo = ForecastSnapshotStore.load(dir, "Tokyo", date(16));
+        assertEquals(2, tokyo.size());
+        assertEquals("Today", tokyo.get(0).dateLabel);
+        assertEquals(50.0, tokyo.get(0).averageTempF, 1e-9);
+        assertEquals("Tomorrow", tokyo.get(1).dateLabel);
+    }
+
+    @Test
+    public void leavesNoTempFilesBehind() throws Exception {
+        File dir = Files.createTempDirectory("forecasts").toFile();
+        List<DailyForecast> forecasts = Arrays.asList(
+            new DailyForecast("Today", 40.0, null, null, null, hourOn(15, 40.0)));
+        ForecastSnapshotStore.save(dir, "Austin", date(15), forecasts);
+        ForecastSnapshotStore.save(dir, "Austin", date(15), forecasts);
+        assertEquals(1, dir.listFiles().length);
+    }
+}
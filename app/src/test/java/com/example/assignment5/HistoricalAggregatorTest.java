@@ -0,0 +1,78 @@
+package com.example.assignment5;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the streaming historical aggregator.
+ */
+public class HistoricalAggregatorTest {
+
+    @Test
+    public void emitsOneFahrenheitMeanPerDayInOrder() throws Exception {
+        String json = "{\"hourly\":{"
+            + "\"time\":[\"2024-02-29T00:00\",\"2024-02-29T01:00\",\"2024-03-01T00:00\",\"2024-03-01T01:00\"],"
+            + "\"temperature_2m\":[0.0,10.0,null,100.0]}}";
+        List<String> dates = new ArrayList<>();
+        List<double[]> values = new ArrayList<>();
+
+        HistoricalAggregator.Summary summary = HistoricalAggregator.aggregate(
+            new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)),
+            (epochDay, dayOfYear, meanTempF, minTempF, maxTempF, validHours) -> {
+                dates.add(HistoricalAggregator.dateString(epochDay));
+                values.add(new double[]{dayOfYear, meanTempF, minTempF, maxTempF, validHours});
+            });
+
+        assertEquals(2, dates.size());
+        assertEquals("2024-02-29", dates.get(0));
+        assertArrayEquals(new double[]{60, 41.0, 32.0, 50.0, 2}, values.get(0), 1e-9);
+        // The null hour is skipped
+        assertArrayEquals(new double[]{61, 212.0, 212.0, 212.0, 1}, values.get(1), 1e-9);
+        assertEquals(1, summary.invalidPoints);
+    }
+
+    @Test
+    public void bucketsUnixTimesByDayWithUtcOffset() throws Exception {
+        // 2024-01-15T23:00 and 2024-01-16T00:00 UTC, seen from UTC+2: both on the 16th
+        long lateOn15th = HistoricalAggregator.epochDay("2024-01-15") * 86400L + 23 * 3600;
+        String json = "{\"utc_offset_seconds\":7200,\"hourly\":{"
+            + "\"time\":[" + (lateOn15th - 2 * 3600) + "," + lateOn15th + "," + (lateOn15th + 3600) + "],"
+            + "\"temperature_2m\":[0.0,10.0,20.0]}}";
+        List<Integer> days = new ArrayList<>();
+        List<Integer> hours = new ArrayList<>();
+
+        HistoricalAggregator.aggregate(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)),
+            (epochDay, dayOfYear, meanTempF, minTempF, maxTempF, validHours) -> {
+                days.add(epochDay);
+                hours.add(validHours);
+            });
+
+        assertEquals(2, days.size());
+        assertEquals(HistoricalAggregator.epochDay("2024-01-15"), (int) days.get(0));
+        assertEquals(HistoricalAggregator.epochDay("2024-01-16"), (int) days.get(1));
+        assertEquals(2, (int) hours.get(1));
+    }
+
+    @Test
+    public void dayOfYearHandlesLeapYears() {
+        assertEquals(1, HistoricalAggregator.dayOfYear("2023-01-01"));
+        assertEquals(365, HistoricalAggregator.dayOfYear("2023-12-31"));
+        assertEquals(366, HistoricalAggregator.dayOfYear("2024-12-31"));
+        assertEquals(-1, HistoricalAggregator.dayOfYear("2024/12/31"));
+    }
+
+    @Test
+    public void epochDayRoundTrips() {
+        assertEquals(0, HistoricalAggregator.epochDay("1970-01-01"));
+        assertEquals(19782, HistoricalAggregator.epochDay("2024-02-29"));
+        assertEquals("2024-02-29", HistoricalAggregator.dateString(19782));
+        assertEquals("2023-03-01", HistoricalAggregator.dateString(HistoricalAggregator.epochDay("2023-02-28") + 1));
+        assertEquals(Integer.MIN_VALUE, HistoricalAggregator.epochDay("2024/02/29"));
+    }
+}
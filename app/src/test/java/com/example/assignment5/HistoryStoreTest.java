@@ -0,0 +1,84 @@
+package com.example.assignment5;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the per-city memory-mapped history store.
+ */
+public class HistoryStoreTest {
+
+    private static final int JAN_1 = HistoricalAggregator.epochDay("2024-01-01");
+
+    @Test
+    public void requestsOnlyDaysAfterLastSync() throws Exception {
+        File dir = Files.createTempDirectory("history").toFile();
+        HistoryStore store = HistoryStore.open(dir, "Austin_30.28_-97.76");
+        assertEquals(JAN_1, store.missingFrom(JAN_1));
+
+        store.add(JAN_1, 50.0, 40.0, 60.0, 24);
+        store.add(JAN_1 + 1, 52.0, 42.0, 62.0, 24);
+        store.add(JAN_1 + 2, 54.0, 44.0, 64.0, 10);   // not fully published yet
+        store.close();
+
+        HistoryStore reopened = HistoryStore.open(dir, "Austin_30.28_-97.76");
+        assertNotSame(store, reopened);
+        assertEquals(JAN_1 + 1, reopened.lastSyncedDay());
+        assertEquals(3, reopened.size());
+        // The provisional day is dropped and requested again
+        assertEquals(JAN_1 + 2, reopened.missingFrom(JAN_1));
+        assertEquals(2, reopened.size());
+        reopened.close();
+    }
+
+    @Test
+    public void evictsDaysOutsideWindowAndScansColumns() throws Exception {
+        File dir = Files.createTempDirectory("history").toFile();
+        HistoryStore store = HistoryStore.open(dir, "Austin");
+        store.add(JAN_1, 50.0, 40.0, 60.0, 24);
+        store.add(JAN_1 + 1, 52.0, 42.0, 62.0, 24);
+        store.add(JAN_1 + 2, 54.0, 44.0, 64.0, 24);
+
+        assertEquals(2, store.evictBefore(JAN_1 + 2));
+
+        List<double[]> rows = new ArrayList<>();
+        store.scan((epochDay, dayOfYear, meanTempF, minTempF, maxTempF, validHours) ->
+            rows.add(new double[]{epochDay, dayOfYear, meanTempF, minTempF, maxTempF, validHours}));
+        assertEquals(1, rows.size());
+        assertArrayEquals(new double[]{JAN_1 + 2, 3, 54.0, 44.0, 64.0, 24}, rows.get(0), 1e-9);
+        assertEquals(JAN_1 + 3, store.missingFrom(JAN_1 + 2));
+        store.close();
+
+        // The eviction replaced the file as a whole - reopening sees only the kept day
+        HistoryStore reopened = HistoryStore.open(dir, "Austin");
+        assertEquals(1, reopened.size());
+        assertEquals(JAN_1 + 2, reopened.lastSyncedDay());
+        assertFalse(new File(dir, HistoryStore.fileNameFor("Austin") + ".tmp").exists());
+        reopened.close();
+    }
+
+    @Test
+    public void growsBeyondInitialCapacity() throws Exception {
+        File dir = Files.createTempDirectory("history").toFile();
+        HistoryStore store = HistoryStore.open(dir, "Austin");
+        int days = 3 * 365;
+        for (int i = 0; i < days; i++) {
+            store.add(JAN_1 + i, i, i - 5, i + 5, 24);
+        }
+        store.close();
+
+        HistoryStore reopened = HistoryStore.open(dir, "Austin");
+        assertEquals(days, reopened.size());
+        assertEquals(JAN_1 + days - 1, reopened.lastSyncedDay());
+        double[] sum = new double[1];
+        reopened.scan((epochDay, dayOfYear, meanTempF, minTempF, maxTempF, validHours) -> sum[0] += meanTempF);
+        assertEquals((double) days * (days - 1) / 2, sum[0], 1e-6);
+        reopened.close();
+    }
+}
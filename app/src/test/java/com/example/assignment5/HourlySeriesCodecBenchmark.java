@@ -0,0 +1,271 @@
+package com.example.assignment5;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Benchmark of how a forecast snapshot stores its hours: HourlySeries.encode()/decode()
+ * against the previous snapshot layout (a long per hour and a double per hour
+ * per variable, NaN for missing) and against Java serialization of a per-hour
+ * object list.
+ *
+ * All three carry the same hours (1 and 16 days, all six variables, every fifth
+ * humidity hour missing). For each codec and size it prints the payload bytes
+ * and p50/p95 of encode and decode in microseconds.
+ *
+ * Only runs when asked to, so the unit test suite stays fast:
+ *   ./gradlew test -Dbenchmark.run=true   (or BENCHMARK_RUN=true)
+ *
+ * Settings (system property "benchmark.<name>" or environment variable "BENCHMARK_<NAME>"):
+ * - iterations (200), warmup (50)
+ */
+public class HourlySeriesCodecBenchmark {
+
+    /**
+     * One hour as an object, the way the app held hours before HourlySeries.
+     */
+    private static final class LegacyHour implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final String time;
+        final double temperature;
+        final Double humidity;
+        final Double windSpeed;
+        final Double rain;
+        final Double pressure;
+        final Double visibility;
+
+        LegacyHour(String time, double temperature, Double humidity, Double windSpeed,
+                   Double rain, Double pressure, Double visibility) {
+            this.time = time;
+            this.temperature = temperature;
+            this.humidity = humidity;
+            this.windSpeed = windSpeed;
+            this.rain = rain;
+            this.pressure = pressure;
+            this.visibility = visibility;
+        }
+    }
+
+    /**
+     * A way of turning a series into bytes and back.
+     */
+    private interface Codec {
+        byte[] encode(HourlySeries series) throws IOException;
+
+        int decode(byte[] bytes) throws IOException, ClassNotFoundException;
+    }
+
+    @Test
+    public void reportsEncodeDecodeTimes() throws Exception {
+        Assume.assumeTrue("Set benchmark.run=true to run", Boolean.parseBoolean(setting("run", "false")));
+        int iterations = Integer.parseInt(setting("iterations", "200"));
+        int warmup = Integer.parseInt(setting("warmup", "50"));
+
+        String[] names = {"HourlySeries", "long/double", "Serializable"};
+        Codec[] codecs = {
+            new Codec() {
+                @Override
+                public byte[] encode(HourlySeries series) {
+                    return series.encode();
+                }
+
+                @Override
+                public int decode(byte[] bytes) {
+                    return HourlySeries.decode(bytes).size();
+                }
+            },
+            new Codec() {
+                @Override
+                public byte[] encode(HourlySeries series) throws IOException {
+                    return encodeLongDouble(series);
+                }
+
+                @Override
+                public int decode(byte[] bytes) throws IOException {
+                    return decodeLongDouble(bytes).size();
+                }
+            },
+            new Codec() {
+                @Override
+                public byte[] encode(HourlySeries series) throws IOException {
+                    return serialize(legacy(series));
+                }
+
+                @Override
+                public int decode(byte[] bytes) throws IOException, ClassNotFoundException {
+                    return deserialize(bytes).size();
+                }
+            }
+        };
+
+        System.out.println(String.format(Locale.US, "%-22s %8s %12s %12s %12s %12s",
+            "payload", "bytes", "enc p50 us", "enc p95 us", "dec p50 us", "dec p95 us"));
+        for (int days : new int[]{1, 16}) {
+            HourlySeries series = series(days);
+            int[] payloadBytes = new int[codecs.length];
+            for (int c = 0; c < codecs.length; c++) {
+                long[][] samples = new long[2][iterations];
+                for (int run = 0; run < warmup + iterations; run++) {
+                    long start = System.nanoTime();
+                    byte[] encoded = codecs[c].encode(series);
+                    long encodedAt = System.nanoTime();
+                    int hours = codecs[c].decode(encoded);
+                    long decodedAt = System.nanoTime();
+                    assertEquals(series.size(), hours);
+                    if (run >= warmup) {
+                        samples[0][run - warmup] = encodedAt - start;
+                        samples[1][run - warmup] = decodedAt - encodedAt;
+                    }
+                    payloadBytes[c] = encoded.length;
+                }
+                print(names[c] + " " + days + "d", payloadBytes[c], samples);
+            }
+            assertTrue(payloadBytes[0] < payloadBytes[1]);
+            assertTrue(payloadBytes[0] < payloadBytes[2]);
+        }
+    }
+
+    // Synthetic series with every variable and every fifth humidity hour missing
+    private static HourlySeries series(int days) {
+        int hours = days * 24;
+        long start = HourlySeries.parseTime("2024-01-15T00:00");
+        long[] times = new long[hours];
+        double[][] columns = new double[ForecastParser.VARIABLE_COUNT][hours];
+        BitSet[] missing = new BitSet[ForecastParser.VARIABLE_COUNT];
+        for (int v = 0; v < ForecastParser.VARIABLE_COUNT; v++) {
+            missing[v] = new BitSet(hours);
+        }
+        for (int i = 0; i < hours; i++) {
+            times[i] = start + (long) i * HourlySeries.SECONDS_PER_HOUR;
+            for (int v = 0; v < ForecastParser.VARIABLE_COUNT; v++) {
+                columns[v][i] = 10 * v + Math.sin(i / 3.0);
+            }
+            if (i % 5 == 0) {
+                missing[ForecastParser.VAR_HUMIDITY].set(i);
+            }
+        }
+        return new HourlySeries(times, columns, missing, hours);
+    }
+
+    /**
+     * The previous snapshot layout: int hourCount, byte columnMask, long per hour,
+     * then per present variable a double per hour (NaN = missing).
+     */
+    private static byte[] encodeLongDouble(HourlySeries series) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(series.size());
+            int columnMask = 0;
+            for (int v = 0; v < ForecastParser.VARIABLE_COUNT; v++) {
+                if (series.has(v)) {
+                    columnMask |= 1 << v;
+                }
+            }
+            out.writeByte(columnMask);
+            for (int h = 0; h < series.size(); h++) {
+                out.writeLong(series.time(h));
+            }
+            for (int v = 0; v < ForecastParser.VARIABLE_COUNT; v++) {
+                if (series.has(v)) {
+                    for (int h = 0; h < series.size(); h++) {
+                        out.writeDouble(series.value(v, h));
+                    }
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static HourlySeries decodeLongDouble(byte[] bytes) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            int hours = in.readInt();
+            int columnMask = in.readUnsignedByte();
+            long[] times = new long[hours];
+            for (int h = 0; h < hours; h++) {
+                times[h] = in.readLong();
+            }
+            double[][] columns = new double[ForecastParser.VARIABLE_COUNT][];
+            BitSet[] missing = new BitSet[ForecastParser.VARIABLE_COUNT];
+            for (int v = 0; v < ForecastParser.VARIABLE_COUNT; v++) {
+                if ((columnMask & (1 << v)) == 0) {
+                    continue;
+                }
+                columns[v] = new double[hours];
+                missing[v] = new BitSet(hours);
+                for (int h = 0; h < hours; h++) {
+                    columns[v][h] = in.readDouble();
+                    if (Double.isNaN(columns[v][h])) {
+                        missing[v].set(h);
+                    }
+                }
+            }
+            return new HourlySeries(times, columns, missing, hours);
+        }
+    }
+
+    private static ArrayList<LegacyHour> legacy(HourlySeries series) {
+        ArrayList<LegacyHour> hours = new ArrayList<>(series.size());
+        for (int i = 0; i < series.size(); i++) {
+            hours.add(new LegacyHour(series.timeString(i),
+                series.value(ForecastParser.VAR_TEMPERATURE, i),
+                boxed(series, ForecastParser.VAR_HUMIDITY, i),
+                boxed(series, ForecastParser.VAR_WIND, i),
+                boxed(series, ForecastParser.VAR_RAIN, i),
+                boxed(series, ForecastParser.VAR_PRESSURE, i),
+                boxed(series, ForecastParser.VAR_VISIBILITY, i)));
+        }
+        return hours;
+    }
+
+    private static Double boxed(HourlySeries series, int variable, int hour) {
+        return series.isPresent(variable, hour) ? series.value(variable, hour) : null;
+    }
+
+    private static byte[] serialize(Serializable value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<?> deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (List<?>) in.readObject();
+        }
+    }
+
+    private static void print(String name, int bytes, long[][] samples) {
+        long[] encode = samples[0].clone();
+        long[] decode = samples[1].clone();
+        Arrays.sort(encode);
+        Arrays.sort(decode);
+        System.out.println(String.format(Locale.US, "%-22s %8d %12.1f %12.1f %12.1f %12.1f", name, bytes,
+            RefreshLatencyBenchmark.percentile(encode, 50) / 1e3, RefreshLatencyBenchmark.percentile(encode, 95) / 1e3,
+            RefreshLatencyBenchmark.percentile(decode, 50) / 1e3, RefreshLatencyBenchmark.percentile(decode, 95) / 1e3));
+    }
+
+    private static String setting(String name, String defaultValue) {
+        String value = System.getProperty("benchmark." + name);
+        if (value == null) {
+            value = System.getenv("BENCHMARK_" + name.toUpperCase(Locale.US));
+        }
+        return value != null ? value.trim() : defaultValue;
+    }
+}
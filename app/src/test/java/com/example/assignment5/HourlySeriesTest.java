@@ -0,0 +1,91 @@
+package com.example.assignment5;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the columnar hourly series.
+ */
+public class HourlySeriesTest {
+
+    // Two days of hourly temperatures (0, 1, 2, ...) with hour 30 missing
+    private static HourlySeries twoDays() {
+        long start = HourlySeries.parseTime("2024-01-15T00:00");
+        long[] times = new long[48];
+        double[][] columns = new double[ForecastParser.VARIABLE_COUNT][];
+        BitSet[] missing = new BitSet[ForecastParser.VARIABLE_COUNT];
+        columns[ForecastParser.VAR_TEMPERATURE] = new double[48];
+        missing[ForecastParser.VAR_TEMPERATURE] = new BitSet();
+        for (int i = 0; i < 48; i++) {
+            times[i] = start + (long) i * HourlySeries.SECONDS_PER_HOUR;
+            columns[ForecastParser.VAR_TEMPERATURE][i] = i;
+        }
+        missing[ForecastParser.VAR_TEMPERATURE].set(30);
+        return new HourlySeries(times, columns, missing, 48);
+    }
+
+    @Test
+    public void parsesApiTimes() {
+        long time = HourlySeries.parseTime("2024-01-15T14:30");
+        assertEquals(HistoricalAggregator.epochDay("2024-01-15") * 86400L + 14 * 3600 + 30 * 60, time);
+        assertEquals(Long.MIN_VALUE, HourlySeries.parseTime("2024-01-15"));
+        assertEquals(Long.MIN_VALUE, HourlySeries.parseTime("2024-01-15Tab:00"));
+    }
+
+    @Test
+    public void slicesShareValuesAndOffsetIndexes() {
+        HourlySeries secondDay = twoDays().slice(24, 48);
+
+        assertEquals(24, secondDay.size());
+        assertEquals("2024-01-16", secondDay.date(0));
+        assertEquals("2024-01-16T05:00", secondDay.timeString(5));
+        assertEquals(5, secondDay.hourOfDay(5));
+        assertEquals(29.0, secondDay.value(ForecastParser.VAR_TEMPERATURE, 5), 1e-9);
+        assertFalse(secondDay.isPresent(ForecastParser.VAR_TEMPERATURE, 6));
+        assertTrue(Double.isNaN(secondDay.value(ForecastParser.VAR_TEMPERATURE, 6)));
+        assertFalse(secondDay.has(ForecastParser.VAR_HUMIDITY));
+        assertFalse(secondDay.isPresent(ForecastParser.VAR_HUMIDITY, 0));
+    }
+
+    @Test
+    public void encodesOnlyTheViewedHours() {
+        HourlySeries whole = twoDays();
+        HourlySeries secondDay = whole.slice(24, 48);
+
+        HourlySeries copy = HourlySeries.decode(secondDay.encode());
+
+        assertTrue(secondDay.encode().length < whole.encode().length);
+        assertEquals(24, copy.size());
+        assertEquals("2024-01-16T00:00", copy.timeString(0));
+        assertEquals(47.0, copy.value(ForecastParser.VAR_TEMPERATURE, 23), 1e-9);
+        assertFalse(copy.isPresent(ForecastParser.VAR_TEMPERATURE, 6));
+        assertFalse(copy.has(ForecastParser.VAR_HUMIDITY));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTruncatedEncoding() {
+        byte[] bytes = twoDays().encode();
+        HourlySeries.decode(Arrays.copyOf(bytes, bytes.length - 3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsHourCountLargerThanTheBytes() {
+        byte[] bytes = twoDays().encode();
+        // Hour count (after the version byte) claims ~2G hours
+        ByteBuffer.wrap(bytes).putInt(1, Integer.MAX_VALUE);
+        HourlySeries.decode(bytes);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBitmapLongerThanTheBytes() {
+        byte[] bytes = twoDays().encode();
+        // Version, hour count, column mask, first time, 47 deltas - then the bitmap word count
+        ByteBuffer.wrap(bytes).putInt(1 + 4 + 1 + 8 + 47 * 4, Integer.MAX_VALUE);
+        HourlySeries.decode(bytes);
+    }
+}
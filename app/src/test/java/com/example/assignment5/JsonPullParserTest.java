@@ -0,0 +1,43 @@
+package com.example.assignment5;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the streaming JSON parser.
+ */
+public class JsonPullParserTest {
+
+    private static String parseString(String json) throws IOException {
+        try (JsonPullParser parser = new JsonPullParser(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)))) {
+            return parser.nextString();
+        }
+    }
+
+    @Test
+    public void decodesEscapedSurrogatePairAsOneCodePoint() throws IOException {
+        // U+1F327 (cloud with rain) as a JSON surrogate pair escape, next to raw UTF-8
+        String decoded = parseString("\"rain \\ud83c\\udf27 °F\"");
+        assertEquals("rain 🌧 °F", decoded);
+        assertEquals(0x1F327, decoded.codePointAt(5));
+    }
+
+    @Test
+    public void replacesUnpairedSurrogates() throws IOException {
+        assertEquals("a�b", parseString("\"a\\ud83cb\""));
+        assertEquals("�\n", parseString("\"\\udf27\\n\""));
+        // A high surrogate followed by an escape that isn't its partner
+        assertEquals("�é", parseString("\"\\ud83c\\u00e9\""));
+    }
+
+    @Test
+    public void decodesBasicEscapes() throws IOException {
+        assertEquals("\"/\\\té中", parseString("\"\\\"\\/\\\\\\t\\u00e9\\u4e2d\""));
+    }
+}
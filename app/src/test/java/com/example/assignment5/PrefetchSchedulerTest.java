@@ -0,0 +1,84 @@
+package com.example.assignment5;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the background prefetch scheduler.
+ */
+public class PrefetchSchedulerTest {
+
+    private static final City AUSTIN = new City("Austin", "TX", 30.28, -97.76);
+    private static final City DALLAS = new City("Dallas", "TX", 32.78, -96.80);
+
+    @Test
+    public void fetchesStaleCitiesAndSkipsFreshOnes() throws Exception {
+        AtomicLong now = new AtomicLong(1_000_000);
+        CountDownLatch fetched = new CountDownLatch(1);
+        List<String> fetchedKeys = Collections.synchronizedList(new ArrayList<>());
+        PrefetchScheduler scheduler = new PrefetchScheduler(2, 0, 60_000,
+            (city, token) -> {
+                fetchedKeys.add(city.getKey());
+                return Collections.emptyList();
+            },
+            (city, forecasts, fetchedAt) -> fetched.countDown(),
+            now::get);
+        // Austin was just loaded in the foreground
+        scheduler.markFresh(AUSTIN.getKey(), now.get());
+
+        scheduler.start(Arrays.asList(AUSTIN, DALLAS));
+        assertTrue(fetched.await(5, TimeUnit.SECONDS));
+        scheduler.stop();
+
+        assertEquals(Collections.singletonList(DALLAS.getKey()), fetchedKeys);
+        assertEquals(now.get(), scheduler.freshness(DALLAS.getKey()));
+    }
+
+    @Test
+    public void skipsCitiesPendingInForeground() throws Exception {
+        CountDownLatch fetched = new CountDownLatch(1);
+        List<String> fetchedKeys = Collections.synchronizedList(new ArrayList<>());
+        PrefetchScheduler scheduler = new PrefetchScheduler(1, 0, 60_000,
+            (city, token) -> {
+                fetchedKeys.add(city.getKey());
+                return Collections.emptyList();
+            },
+            (city, forecasts, fetchedAt) -> fetched.countDown(),
+            () -> 1_000_000);
+        // Two overlapping foreground loads of Austin; only one has finished
+        scheduler.markPending(AUSTIN.getKey());
+        scheduler.markPending(AUSTIN.getKey());
+        scheduler.clearPending(AUSTIN.getKey());
+        // A finished foreground load leaves Dallas to the scheduler
+        scheduler.markPending(DALLAS.getKey());
+        scheduler.clearPending(DALLAS.getKey());
+
+        scheduler.start(Arrays.asList(AUSTIN, DALLAS));
+        assertTrue(fetched.await(5, TimeUnit.SECONDS));
+        scheduler.stop();
+
+        assertEquals(Collections.singletonList(DALLAS.getKey()), fetchedKeys);
+        assertEquals(0, scheduler.freshness(AUSTIN.getKey()));
+    }
+
+    @Test
+    public void markFreshKeepsLatestTime() {
+        PrefetchScheduler scheduler = new PrefetchScheduler(1, 0, 60_000,
+            (city, token) -> Collections.emptyList(), (city, forecasts, fetchedAt) -> { }, () -> 0);
+        assertEquals(0, scheduler.freshness(AUSTIN.getKey()));
+
+        scheduler.markFresh(AUSTIN.getKey(), 200);
+        scheduler.markFresh(AUSTIN.getKey(), 100);
+
+        assertEquals(200, scheduler.freshness(AUSTIN.getKey()));
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.assignment5;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * End-to-end latency benchmark of the refresh path against a local stand-in
+ * for Open Meteo (StandInWeatherServer).
+ *
+ * Each iteration runs the same steps as a refresh in the app and times every stage:
+ * - url: MainActivity.buildForecastUrl() for all cities (one batch request)
+ * - connect: WeatherHttpClient.get() until the response headers arrive
+ * - download+parse: streaming the body through ForecastParser.parseBatch()
+ *   (decompression, JSON parsing and the per-day aggregation all happen while reading)
+ * - archive: get() plus HistoricalAggregator.aggregate() of the training window
+ * - total: the sum of the stages above
+ * p50/p95/p99 of each stage are printed after the warmup runs are discarded.
+ * bindForecastData() only updates views, so it needs a device and is not measured here.
+ *
+ * Only runs when asked to, so the unit test suite doesn't start a server:
+ * set benchmark.run=true (only percentileUsesNearestRank runs by default).
+ *
+ * Settings (system property "benchmark.<name>" or environment variable "BENCHMARK_<NAME>"):
+ * - run (false): run the benchmark at all
+ * - iterations (20), warmup (5): measured and discarded runs
+ * - locations (3), days (7), archiveDays (120): size of the synthetic payloads
+ * - latencyMs (0): server delay before each response
+ * - forecastFile, archiveFile: serve a recorded body (e.g., from files/recordings) instead
+ * - maxP95Ms (off): fail if the p95 of the total is above this budget
+ *
+ * Example: BENCHMARK_RUN=true BENCHMARK_ITERATIONS=200 BENCHMARK_LATENCYMS=50 ./gradlew :app:testDebugUnitTest
+ *          --tests com.example.assignment5.RefreshLatencyBenchmark
+ */
+public class RefreshLatencyBenchmark {
+
+    private static final String[] STAGES = {"url", "connect", "download+parse", "archive", "total"};
+
+    @Test
+    public void reportsStageLatencies() throws Exception {
+        Assume.assumeTrue("Set benchmark.run=true to run", Boolean.parseBoolean(stringSetting("run")));
+        int iterations = setting("iterations", 20);
+        int warmup = setting("warmup", 5);
+        int locations = setting("locations", 3);
+        int days = setting("days", 7);
+        int archiveDays = setting("archiveDays", 120);
+        long latencyMillis = setting("latencyMs", 0);
+        int maxP95Millis = setting("maxP95Ms", 0);
+
+        Calendar today = Calendar.getInstance();
+        int todayEpochDay = HistoricalAggregator.epochDay(String.format(Locale.US, "%04d-%02d-%02d",
+            today.get(Calendar.YEAR), today.get(Calendar.MONTH) + 1, today.get(Calendar.DAY_OF_MONTH)));
+        String archiveStart = HistoricalAggregator.dateString(todayEpochDay - archiveDays - 1);
+        String archiveEnd = HistoricalAggregator.dateString(todayEpochDay - 2);
+
+        byte[] forecastBody = payload("forecastFile", () -> StandInWeatherServer.syntheticForecast(
+            locations, todayEpochDay, days, ForecastParser.MAIN_VARIABLES));
+        byte[] archiveBody = payload("archiveFile", () -> StandInWeatherServer.syntheticArchive(
+            todayEpochDay - archiveDays - 1, archiveDays));
+
+        List<City> cities = new ArrayList<>();
+        for (int i = 0; i < locations; i++) {
+            cities.add(new City("City" + i, "TX", 30 + i, -97 - i));
+        }
+
+        // The client is process-wide - put its retry policy back for the other tests
+        WeatherHttpClient client = WeatherHttpClient.getInstance();
+        RetryPolicy previousPolicy = client.getRetryPolicy();
+        client.setRetryPolicy(RetryPolicy.NONE);
+        long[][] samples = new long[STAGES.length][iterations];
+
+        try (StandInWeatherServer server = new StandInWeatherServer(forecastBody, archiveBody, latencyMillis)) {
+            for (int run = 0; run < warmup + iterations; run++) {
+                long[] stage = new long[STAGES.length];
+
+                // 1. Build the batch forecast URL, as FetchForecastTask does
+                long start = System.nanoTime();
+                String url = server.rewrite(MainActivity.buildForecastUrl(cities, ForecastParser.MAIN_VARIABLES, null));
+                stage[0] = System.nanoTime() - start;
+
+                // 2. Connect and wait for the headers
+                start = System.nanoTime();
+                List<List<DailyForecast>> forecasts;
+                try (WeatherHttpClient.Response response = client.get(url, 10000, null)) {
+                    stage[1] = System.nanoTime() - start;
+                    assertEquals(200, response.code);
+
+                    // 3. Stream the body through the parser
+                    start = System.nanoTime();
+                    try (InputStream body = response.body()) {
+                        forecasts = ForecastParser.parseBatch(body, today, days);
+                    }
+                    stage[2] = System.nanoTime() - start;
+                }
+                assertEquals(locations, forecasts.size());
+
+                // 4. Download and aggregate the archive window, as FetchHistoricalDataTask does
+                start = System.nanoTime();
+                int[] archived = new int[1];
+                String archiveUrl = server.rewrite(
+                    MainActivity.buildHistoricalDataUrl(cities.get(0), archiveStart, archiveEnd));
+                try (WeatherHttpClient.Response response = client.get(archiveUrl, 15000, null);
+                     InputStream body = response.body()) {
+                    HistoricalAggregator.aggregate(body,
+                        (date, dayOfYear, meanTempF, minTempF, maxTempF, validHours) -> archived[0]++);
+                }
+                stage[3] = System.nanoTime() - start;
+                assertTrue(archived[0] > 0);
+
+                stage[4] = stage[0] + stage[1] + stage[2] + stage[3];
+                if (run >= warmup) {
+                    for (int s = 0; s < STAGES.length; s++) {
+                        samples[s][run - warmup] = stage[s];
+                    }
+                }
+            }
+            assertEquals(2 * (warmup + iterations), server.requestCount());
+        } finally {
+            client.setRetryPolicy(previousPolicy);
+        }
+
+        System.out.println(String.format(Locale.US,
+            "Refresh latency: %d runs, %d locations x %d days (%d bytes), archive %d days (%d bytes), server delay %d ms",
+            iterations, locations, days, forecastBody.length, archiveDays, archiveBody.length, latencyMillis));
+        System.out.println(String.format(Locale.US, "%-16s %10s %10s %10s", "stage", "p50 ms", "p95 ms", "p99 ms"));
+        for (int s = 0; s < STAGES.length; s++) {
+            long[] sorted = samples[s].clone();
+            Arrays.sort(sorted);
+            System.out.println(String.format(Locale.US, "%-16s %10.3f %10.3f %10.3f", STAGES[s],
+                percentile(sorted, 50) / 1e6, percentile(sorted, 95) / 1e6, percentile(sorted, 99) / 1e6));
+        }
+
+        if (maxP95Millis > 0) {
+            long[] total = samples[STAGES.length - 1].clone();
+            Arrays.sort(total);
+            double p95 = percentile(total, 95) / 1e6;
+            assertTrue("p95 refresh latency " + p95 + " ms is over the " + maxP95Millis + " ms budget",
+                p95 <= maxP95Millis);
+        }
+    }
+
+    @Test
+    public void percentileUsesNearestRank() {
+        long[] sorted = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+        assertEquals(5, percentile(sorted, 50));
+        assertEquals(10, percentile(sorted, 95));
+        assertEquals(1, percentile(new long[]{1}, 99));
+    }
+
+    /**
+     * Nearest-rank percentile of sorted samples.
+     */
+    static long percentile(long[] sorted, double percent) {
+        int rank = (int) Math.ceil(percent / 100 * sorted.length);
+        return sorted[Math.min(sorted.length, Math.max(1, rank)) - 1];
+    }
+
+    private interface PayloadFactory {
+        byte[] create();
+    }
+
+    private static byte[] payload(String name, PayloadFactory synthetic) throws IOException {
+        String path = stringSetting(name);
+        return path != null ? Files.readAllBytes(new File(path).toPath()) : synthetic.create();
+    }
+
+    private static int setting(String name, int defaultValue) {
+        String value = stringSetting(name);
+        return value != null ? Integer.parseInt(value.trim()) : defaultValue;
+    }
+
+    private static String stringSetting(String name) {
+        String value = System.getProperty("benchmark." + name);
+        return value != null ? value : System.getenv("BENCHMARK_" + name.toUpperCase(Locale.US));
+    }
+}
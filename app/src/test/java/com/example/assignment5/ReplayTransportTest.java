@@ -0,0 +1,64 @@
+package com.example.assignment5;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for recording and replaying weather responses.
+ */
+public class ReplayTransportTest {
+
+    private static final String URL = "https://api.open-meteo.com/v1/forecast?latitude=30.28&longitude=-97.76";
+    private static final byte[] BODY = "{\"hourly\":{}}".getBytes(StandardCharsets.UTF_8);
+
+    private static byte[] read(WeatherHttpClient.Response response) throws IOException {
+        try (WeatherHttpClient.Response r = response) {
+            return WeatherHttpClient.readBody(r.body(), -1, 1024);
+        }
+    }
+
+    @Test
+    public void replaysRecordedResponseWithoutTheNetwork() throws Exception {
+        File dir = Files.createTempDirectory("recordings").toFile();
+        AtomicInteger liveCalls = new AtomicInteger();
+        WeatherTransport live = (url, timeout, token) -> {
+            liveCalls.incrementAndGet();
+            return WeatherHttpClient.Response.fromBytes(HttpURLConnection.HTTP_OK, BODY, token);
+        };
+
+        assertArrayEquals(BODY, read(new RecordingTransport(live, dir).get(URL, 1000, null)));
+        WeatherHttpClient.Response replayed = new ReplayTransport(dir, 1).get(URL, 1000, null);
+
+        assertEquals(HttpURLConnection.HTTP_OK, replayed.code);
+        assertArrayEquals(BODY, read(replayed));
+        assertEquals(1, liveCalls.get());
+    }
+
+    @Test
+    public void injectsFailuresAndLatency() throws Exception {
+        ReplayTransport failing = new ReplayTransport(Files.createTempDirectory("recordings").toFile(), 1)
+            .withLatency(30, 30)
+            .withFailures(1.0, HttpURLConnection.HTTP_UNAVAILABLE);
+
+        long start = System.nanoTime();
+        WeatherHttpClient.Response response = failing.get(URL, 1000, null);
+
+        assertTrue(System.nanoTime() - start >= 30_000_000L);
+        assertEquals(HttpURLConnection.HTTP_UNAVAILABLE, response.code);
+        assertTrue(response.errorBody().contains("Injected failure"));
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void failsForUnrecordedUrl() throws Exception {
+        new ReplayTransport(Files.createTempDirectory("recordings").toFile(), 1).get(URL, 1000, null);
+    }
+}
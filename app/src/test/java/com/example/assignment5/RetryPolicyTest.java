@@ -0,0 +1,37 @@
+package com.example.assignment5;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for retry backoff.
+ */
+public class RetryPolicyTest {
+
+    @Test
+    public void backoffIsJitteredWithinExponentialCeiling() {
+        RetryPolicy policy = new RetryPolicy(5, 100, 300);
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            long first = policy.backoffMillis(1, random);
+            long second = policy.backoffMillis(2, random);
+            long capped = policy.backoffMillis(4, random);
+            assertTrue(first >= 0 && first <= 100);
+            assertTrue(second >= 0 && second <= 200);
+            assertTrue(capped >= 0 && capped <= 300);
+        }
+        assertEquals(0, RetryPolicy.NONE.backoffMillis(1, random));
+    }
+
+    @Test
+    public void retriesOnlyOverloadAndServerErrors() {
+        assertTrue(RetryPolicy.isRetryableStatus(429));
+        assertTrue(RetryPolicy.isRetryableStatus(503));
+        assertFalse(RetryPolicy.isRetryableStatus(400));
+        assertFalse(RetryPolicy.isRetryableStatus(404));
+        assertFalse(RetryPolicy.isRetryableStatus(200));
+    }
+}
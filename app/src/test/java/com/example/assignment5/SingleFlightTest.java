@@ -0,0 +1,176 @@
+package com.example.assignment5;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for request coalescing.
+ */
+public class SingleFlightTest {
+
+    @Test
+    public void concurrentCallersShareOneExecution() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>();
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        String[] joined = new String[1];
+
+        Thread leader = new Thread(() -> {
+            try {
+                flight.execute("key", () -> {
+                    executions.incrementAndGet();
+                    started.countDown();
+                    release.await();
+                    return "result";
+                });
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        leader.start();
+        started.await();
+
+        Thread follower = new Thread(() -> {
+            try {
+                joined[0] = flight.execute("key", () -> {
+                    executions.incrementAndGet();
+                    return "duplicate";
+                });
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        follower.start();
+        // Give the follower time to join the in-flight call
+        while (flight.sharedCount() == 0) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        leader.join();
+        follower.join();
+
+        assertEquals(1, executions.get());
+        assertEquals("result", joined[0]);
+    }
+
+    @Test(expected = IOException.class)
+    public void propagatesTheCallsException() throws Exception {
+        new SingleFlight<String>().execute("key", () -> {
+            throw new IOException("boom");
+        });
+    }
+
+    @Test
+    public void startsNewCallAfterPreviousFinished() throws Exception {
+        SingleFlight<Integer> flight = new SingleFlight<>();
+        AtomicInteger executions = new AtomicInteger();
+        flight.execute("key", executions::incrementAndGet);
+        assertEquals(Integer.valueOf(2), flight.execute("key", executions::incrementAndGet));
+    }
+
+    @Test
+    public void cancelledCallerStopsWaitingWithoutFailingOthers() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CancellationToken[] sharedToken = new CancellationToken[1];
+        CancellationToken prefetch = new CancellationToken(1);
+        CancellationToken foreground = new CancellationToken(2);
+        String[] results = new String[2];
+        Exception[] failures = new Exception[2];
+
+        Thread leader = new Thread(() -> {
+            try {
+                results[0] = flight.execute("key", prefetch, token -> {
+                    sharedToken[0] = token;
+                    started.countDown();
+                    release.await();
+                    return "result";
+                });
+            } catch (Exception e) {
+                failures[0] = e;
+            }
+        });
+        leader.start();
+        started.await();
+
+        Thread follower = new Thread(() -> {
+            try {
+                results[1] = flight.execute("key", foreground, token -> "duplicate");
+            } catch (Exception e) {
+                failures[1] = e;
+            }
+        });
+        follower.start();
+        while (flight.sharedCount() == 0) {
+            Thread.sleep(1);
+        }
+
+        // The prefetch is stopped - the shared call keeps running for the foreground load
+        prefetch.cancel();
+        assertFalse(sharedToken[0].isCancelled());
+        release.countDown();
+        leader.join();
+        follower.join();
+
+        assertTrue(failures[0] instanceof InterruptedIOException);
+        assertNull(failures[1]);
+        assertEquals("result", results[1]);
+    }
+
+    @Test
+    public void lastCancelledCallerAbortsTheCall() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CancellationToken leaderToken = new CancellationToken(1);
+        CancellationToken followerToken = new CancellationToken(2);
+        Exception[] failures = new Exception[2];
+
+        Thread leader = new Thread(() -> {
+            try {
+                flight.execute("key", leaderToken, token -> {
+                    started.countDown();
+                    // Runs until the flight's token is cancelled
+                    while (!token.isCancelled()) {
+                        Thread.sleep(1);
+                    }
+                    token.throwIfCancelled();
+                    return "unreachable";
+                });
+            } catch (Exception e) {
+                failures[0] = e;
+            }
+        });
+        leader.start();
+        started.await();
+
+        Thread follower = new Thread(() -> {
+            try {
+                flight.execute("key", followerToken, token -> "duplicate");
+            } catch (Exception e) {
+                failures[1] = e;
+            }
+        });
+        follower.start();
+        while (flight.sharedCount() == 0) {
+            Thread.sleep(1);
+        }
+
+        // A joiner stops waiting as soon as its own token is cancelled
+        followerToken.cancel();
+        follower.join();
+        assertTrue(failures[1] instanceof InterruptedIOException);
+        assertTrue(leader.isAlive());
+
+        leaderToken.cancel();
+        leader.join();
+        assertTrue(failures[0] instanceof InterruptedIOException);
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.assignment5;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local stand-in for the Open Meteo forecast and archive APIs.
+ *
+ * Serves fixed payloads (recorded responses or the synthetic ones built by
+ * syntheticForecast() / syntheticArchive()) on a loopback port:
+ * - /v1/forecast answers with the forecast payload, /v1/archive with the archive payload,
+ *   whatever the query parameters
+ * - Each response waits latencyMillis before the headers are sent (server think time)
+ * - Bodies are gzip-compressed when the client asks for it, like the real API
+ *
+ * Use rewrite() to point a URL built by the app at this server.
+ */
+final class StandInWeatherServer implements AutoCloseable {
+
+    // Offset of the synthetic forecast's time zone (US Central standard time)
+    private static final long FORECAST_UTC_OFFSET = -6 * 60 * 60;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final byte[] forecastBody;
+    private final byte[] archiveBody;
+    private final byte[] forecastGzip;
+    private final byte[] archiveGzip;
+    private final long latencyMillis;
+    private final AtomicInteger requestCount = new AtomicInteger();
+
+    /**
+     * Start the server on a free loopback port.
+     *
+     * @param forecastBody Body served for /v1/forecast
+     * @param archiveBody Body served for /v1/archive
+     * @param latencyMillis Delay before each response
+     */
+    StandInWeatherServer(byte[] forecastBody, byte[] archiveBody, long latencyMillis) throws IOException {
+        this.forecastBody = forecastBody;
+        this.archiveBody = archiveBody;
+        this.forecastGzip = gzip(forecastBody);
+        this.archiveGzip = gzip(archiveBody);
+        this.latencyMillis = latencyMillis;
+
+        // Without TCP_NODELAY the body write waits on the client's delayed ACK of the
+        // headers, which adds ~40 ms per response that the real API doesn't have
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/v1/forecast", exchange -> respond(exchange, this.forecastBody, forecastGzip));
+        server.createContext("/v1/archive", exchange -> respond(exchange, this.archiveBody, archiveGzip));
+        // Several threads, so concurrent requests from the client aren't serialized here
+        executor = Executors.newFixedThreadPool(4);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Base URL of the server (e.g., "http://127.0.0.1:50123").
+     */
+    String origin() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    /**
+     * Point a URL built for the real API at this server.
+     */
+    String rewrite(String url) {
+        return url.replace(WeatherHttpClient.FORECAST_ORIGIN, origin())
+            .replace(WeatherHttpClient.ARCHIVE_ORIGIN, origin());
+    }
+
+    int requestCount() {
+        return requestCount.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void respond(HttpExchange exchange, byte[] body, byte[] gzipBody) throws IOException {
+        requestCount.incrementAndGet();
+        try {
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        boolean compress = acceptEncoding != null && acceptEncoding.contains("gzip");
+        byte[] sent = compress ? gzipBody : body;
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        if (compress) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(200, sent.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(sent);
+        }
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(body);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Build a forecast response shaped like Open Meteo's (timeformat=unixtime, UTC-6).
+     *
+     * @param locations Number of locations (more than one gives a JSON array, like a batch request)
+     * @param firstDay First forecast day, as an epoch day
+     * @param days Days per location (24 hourly values each)
+     * @param variables Hourly variables to include (e.g., ForecastParser.MAIN_VARIABLES)
+     */
+    static byte[] syntheticForecast(int locations, int firstDay, int days, int[] variables) {
+        String[] names = ForecastParser.hourlyParameter(variables).split(",");
+        StringBuilder json = new StringBuilder(locations * days * 24 * (20 + 8 * names.length));
+        if (locations > 1) {
+            json.append('[');
+        }
+        for (int location = 0; location < locations; location++) {
+            if (location > 0) {
+                json.append(',');
+            }
+            json.append("{\"latitude\":").append(30 + location)
+                .append(",\"longitude\":").append(-97 - location)
+                .append(",\"utc_offset_seconds\":").append(FORECAST_UTC_OFFSET)
+                .append(",\"hourly\":{\"time\":[");
+            appendTimes(json, firstDay, days, FORECAST_UTC_OFFSET);
+            json.append(']');
+            for (int v = 0; v < names.length; v++) {
+                json.append(",\"").append(names[v]).append("\":[");
+                for (int hour = 0; hour < days * 24; hour++) {
+                    if (hour > 0) {
+                        json.append(',');
+                    }
+                    // Smooth daily cycle per variable, one decimal like the real API
+                    double value = 50 + 10 * v + 15 * Math.sin(hour * Math.PI / 12 + location);
+                    json.append(String.format(Locale.US, "%.1f", value));
+                }
+                json.append(']');
+            }
+            json.append("}}");
+        }
+        if (locations > 1) {
+            json.append(']');
+        }
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Build an archive response (hourly temperature_2m in Celsius, UTC, timeformat=unixtime).
+     *
+     * @param firstDay First archive day, as an epoch day
+     * @param days Number of days (24 hourly values each)
+     */
+    static byte[] syntheticArchive(int firstDay, int days) {
+        StringBuilder json = new StringBuilder(days * 24 * 26);
+        json.append("{\"latitude\":30.28,\"longitude\":-97.76,\"utc_offset_seconds\":0,"
+            + "\"timezone\":\"UTC\",\"hourly\":{\"time\":[");
+        appendTimes(json, firstDay, days, 0);
+        json.append("],\"temperature_2m\":[");
+        for (int hour = 0; hour < days * 24; hour++) {
+            if (hour > 0) {
+                json.append(',');
+            }
+            double value = 15 + 8 * Math.sin(hour * Math.PI / 12) + 5 * Math.sin(hour * Math.PI / (24 * 180));
+            json.append(String.format(Locale.US, "%.1f", value));
+        }
+        json.append("]}}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Append the unixtime of every hour of [firstDay, firstDay + days) in a zone utcOffset from UTC.
+     */
+    private static void appendTimes(StringBuilder json, int firstDay, int days, long utcOffset) {
+        long firstHour = (long) firstDay * HourlySeries.SECONDS_PER_DAY - utcOffset;
+        for (int hour = 0; hour < days * 24; hour++) {
+            if (hour > 0) {
+                json.append(',');
+            }
+            json.append(firstHour + (long) hour * HourlySeries.SECONDS_PER_HOUR);
+        }
+    }
+}
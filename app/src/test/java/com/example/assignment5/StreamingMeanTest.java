@@ -0,0 +1,50 @@
+package com.example.assignment5;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the single-variable streaming accumulator.
+ */
+public class StreamingMeanTest {
+
+    @Test
+    public void matchesTwoPassStatistics() {
+        double[] values = {1, 2, 4, 7, 11};
+        StreamingMean mean = new StreamingMean();
+        StreamingMoments moments = new StreamingMoments();
+        for (double value : values) {
+            mean.add(value);
+            moments.add(value, 0);
+        }
+
+        assertEquals(5, mean.count());
+        assertEquals(5, mean.mean(), 1e-12);
+        assertEquals(25, mean.sum(), 0);
+        assertEquals(moments.varianceX(), mean.variance(), 1e-12);
+    }
+
+    @Test
+    public void compensatedSumKeepsSmallValues() {
+        StreamingMean mean = new StreamingMean();
+        mean.add(1e16);
+        for (int i = 0; i < 1000; i++) {
+            mean.add(1.0);
+        }
+        mean.add(-1e16);
+        assertEquals(1000.0, mean.sum(), 0);
+    }
+
+    @Test
+    public void emptyAndResetStatesAreUndefined() {
+        StreamingMean mean = new StreamingMean();
+        assertTrue(Double.isNaN(mean.mean()));
+        assertEquals(0, mean.sum(), 0);
+
+        mean.add(5);
+        mean.reset();
+        assertEquals(0, mean.count());
+        assertTrue(Double.isNaN(mean.variance()));
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.assignment5;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the streaming mean / variance / covariance accumulator.
+ */
+public class StreamingMomentsTest {
+
+    @Test
+    public void matchesTwoPassStatistics() {
+        double[] x = {1, 2, 4, 7, 11};
+        double[] y = {3, 1, 4, 1, 5};
+        StreamingMoments moments = new StreamingMoments();
+        for (int i = 0; i < x.length; i++) {
+            moments.add(x[i], y[i]);
+        }
+
+        // Two-pass reference: means first, then deviations
+        double meanX = 5;
+        double meanY = 2.8;
+        double varX = 0;
+        double varY = 0;
+        double cov = 0;
+        for (int i = 0; i < x.length; i++) {
+            varX += (x[i] - meanX) * (x[i] - meanX) / x.length;
+            varY += (y[i] - meanY) * (y[i] - meanY) / x.length;
+            cov += (x[i] - meanX) * (y[i] - meanY) / x.length;
+        }
+        assertEquals(5, moments.count());
+        assertEquals(meanX, moments.meanX(), 1e-12);
+        assertEquals(meanY, moments.meanY(), 1e-12);
+        assertEquals(varX, moments.varianceX(), 1e-12);
+        assertEquals(varY, moments.varianceY(), 1e-12);
+        assertEquals(cov, moments.covariance(), 1e-12);
+        assertEquals(25, moments.sumX(), 0);
+        assertEquals(14, moments.sumY(), 1e-12);
+    }
+
+    @Test
+    public void fitsLineWithLargeXWithoutCancellation() {
+        // Epoch-day x values: n*Σx² and (Σx)² agree in their first ~15 digits,
+        // so the raw-sums formula loses the slope; the deviations don't
+        StreamingMoments moments = new StreamingMoments();
+        for (int i = 0; i < 3000; i++) {
+            double x = 1e8 + i;
+            moments.add(x, 0.25 * i + 40);
+        }
+        assertEquals(0.25, moments.slope(), 1e-9);
+        assertEquals(40 - 0.25 * 1e8, moments.intercept(), 1e-3);
+        assertEquals((3000.0 * 3000 - 1) / 12, moments.varianceX(), 1e-6);
+    }
+
+    @Test
+    public void mergedPartsEqualOneStream() {
+        StreamingMoments whole = new StreamingMoments();
+        StreamingMoments first = new StreamingMoments();
+        StreamingMoments second = new StreamingMoments();
+        for (int i = 0; i < 1000; i++) {
+            double x = (i * 37) % 366 + 1;
+            double y = 60 + 20 * Math.sin(x / 58.0) + (i % 7);
+            whole.add(x, y);
+            (i < 300 ? first : second).add(x, y);
+        }
+        first.merge(second);
+        first.merge(new StreamingMoments());
+
+        assertEquals(whole.count(), first.count());
+        assertEquals(whole.meanX(), first.meanX(), 1e-9);
+        assertEquals(whole.meanY(), first.meanY(), 1e-9);
+        assertEquals(whole.varianceX(), first.varianceX(), 1e-6);
+        assertEquals(whole.covariance(), first.covariance(), 1e-6);
+        assertEquals(whole.slope(), first.slope(), 1e-12);
+        assertEquals(whole.sumY(), first.sumY(), 1e-9);
+
+        StreamingMoments empty = new StreamingMoments();
+        empty.merge(whole);
+        assertEquals(whole.intercept(), empty.intercept(), 0);
+    }
+
+    @Test
+    public void compensatedSumKeepsSmallValues() {
+        StreamingMoments moments = new StreamingMoments();
+        moments.add(1e16, 1e16);
+        for (int i = 0; i < 1000; i++) {
+            moments.add(1.0, 1.0);
+        }
+        moments.add(-1e16, -1e16);
+        assertEquals(1000.0, moments.sumX(), 0);
+        assertEquals(1000.0, moments.sumY(), 0);
+    }
+
+    @Test
+    public void emptyAndResetStatesAreUndefined() {
+        StreamingMoments moments = new StreamingMoments();
+        assertTrue(Double.isNaN(moments.meanX()));
+        assertEquals(0, moments.sumX(), 0);
+
+        moments.add(5, 5);
+        moments.add(5, 6);
+        // All x equal - no line can be fitted
+        assertTrue(Double.isNaN(moments.slope()));
+
+        moments.reset();
+        assertEquals(0, moments.count());
+        assertTrue(Double.isNaN(moments.varianceX()));
+    }
+}
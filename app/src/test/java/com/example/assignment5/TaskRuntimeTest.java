@@ -0,0 +1,104 @@
+package com.example.assignment5;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the background task runtime.
+ */
+public class TaskRuntimeTest {
+
+    /**
+     * Task that runs a piece of code and counts down when its result is delivered.
+     */
+    private static TaskRuntime.Task<String> task(String name, Runnable work, CountDownLatch delivered,
+                                                 List<String> results) {
+        return new TaskRuntime.Task<String>() {
+            @Override
+            protected String doInBackground() {
+                work.run();
+                return name;
+            }
+
+            @Override
+            protected void onPostExecute(String result) {
+                results.add(result);
+                delivered.countDown();
+            }
+        };
+    }
+
+    @Test
+    public void runsQueuedTasksByPriority() throws Exception {
+        TaskRuntime runtime = new TaskRuntime(1, 1, Runnable::run);
+        List<String> results = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch delivered = new CountDownLatch(4);
+
+        // Occupy the only IO thread, then queue work behind it
+        runtime.execute(task("running", () -> await(blocker), delivered, results),
+            TaskRuntime.Pool.IO, TaskRuntime.Priority.LOW);
+        Thread.sleep(50);
+        runtime.execute(task("low", () -> { }, delivered, results), TaskRuntime.Pool.IO, TaskRuntime.Priority.LOW);
+        runtime.execute(task("normal", () -> { }, delivered, results), TaskRuntime.Pool.IO, TaskRuntime.Priority.NORMAL);
+        runtime.execute(task("high", () -> { }, delivered, results), TaskRuntime.Pool.IO, TaskRuntime.Priority.HIGH);
+        blocker.countDown();
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("running", "high", "normal", "low"), results);
+        runtime.shutdownNow();
+    }
+
+    @Test
+    public void cpuWorkDoesNotWaitForBusyIoPool() throws Exception {
+        TaskRuntime runtime = new TaskRuntime(1, 1, Runnable::run);
+        List<String> results = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch cpuDone = new CountDownLatch(1);
+
+        runtime.execute(task("io", () -> await(blocker), new CountDownLatch(1), results),
+            TaskRuntime.Pool.IO, TaskRuntime.Priority.HIGH);
+        runtime.execute(task("cpu", () -> { }, cpuDone, results), TaskRuntime.Pool.CPU, TaskRuntime.Priority.LOW);
+
+        assertTrue(cpuDone.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("cpu"), results);
+        blocker.countDown();
+        runtime.shutdownNow();
+    }
+
+    @Test
+    public void cancelledTaskIsNotDelivered() throws Exception {
+        TaskRuntime runtime = new TaskRuntime(1, 1, Runnable::run);
+        List<String> results = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch delivered = new CountDownLatch(2);
+
+        runtime.execute(task("first", () -> await(blocker), delivered, results),
+            TaskRuntime.Pool.IO, TaskRuntime.Priority.NORMAL);
+        TaskRuntime.Task<String> cancelled = runtime.execute(
+            task("cancelled", () -> { }, delivered, results), TaskRuntime.Pool.IO, TaskRuntime.Priority.NORMAL);
+        runtime.execute(task("last", () -> { }, delivered, results), TaskRuntime.Pool.IO, TaskRuntime.Priority.NORMAL);
+        cancelled.cancel();
+        blocker.countDown();
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("first", "last"), results);
+        runtime.shutdownNow();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.assignment5;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for WeatherHttpClient's content decoding.
+ */
+public class WeatherHttpClientTest {
+
+    private static final String JSON = "{\"hourly\":{\"temperature_2m\":[1.0,2.0,3.0]}}";
+
+    private static String readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[256];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void decodesGzip() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(JSON.getBytes(StandardCharsets.UTF_8));
+        }
+        InputStream decoded = WeatherHttpClient.decode(
+            new ByteArrayInputStream(compressed.toByteArray()), "gzip");
+        assertEquals(JSON, readAll(decoded));
+    }
+
+    @Test
+    public void decodesZlibAndRawDeflate() throws Exception {
+        for (boolean raw : new boolean[]{false, true}) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (DeflaterOutputStream deflate = new DeflaterOutputStream(
+                    compressed, new Deflater(Deflater.DEFAULT_COMPRESSION, raw))) {
+                deflate.write(JSON.getBytes(StandardCharsets.UTF_8));
+            }
+            InputStream decoded = WeatherHttpClient.decode(
+                new ByteArrayInputStream(compressed.toByteArray()), "deflate");
+            assertEquals(JSON, readAll(decoded));
+        }
+    }
+
+    @Test
+    public void passesIdentityThrough() throws Exception {
+        InputStream plain = new ByteArrayInputStream(JSON.getBytes(StandardCharsets.UTF_8));
+        assertSame(plain, WeatherHttpClient.decode(plain, null));
+    }
+
+    @Test
+    public void readsBodyWithUnknownOrWrongLength() throws Exception {
+        byte[] body = (JSON + "\n" + JSON).getBytes(StandardCharsets.UTF_8);
+        for (long contentLength : new long[]{-1, 4, body.length}) {
+            byte[] read = WeatherHttpClient.readBody(new ByteArrayInputStream(body), contentLength, 1024);
+            // Line breaks survive, unlike the old readLine() loop
+            assertArrayEquals(body, read);
+        }
+    }
+
+    @Test
+    public void acceptsBodyExactlyAtLimit() throws Exception {
+        byte[] body = new byte[100];
+        assertEquals(100, WeatherHttpClient.readBody(new ByteArrayInputStream(body), -1, 100).length);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsBodyOverLimit() throws Exception {
+        WeatherHttpClient.readBody(new ByteArrayInputStream(new byte[101]), 101, 100);
+    }
+
+    @Test
+    public void permitTimeoutsDoNotOpenTheCircuit() throws Exception {
+        byte[] body = JSON.getBytes(StandardCharsets.UTF_8);
+        WeatherHttpClient client = WeatherHttpClient.getInstance();
+        try (StandInWeatherServer server = new StandInWeatherServer(body, body, 0)) {
+            client.setMaxConnectionsPerHost(1);
+            String url = server.origin() + "/v1/forecast?latitude=1";
+            long circuitsOpened = client.circuitOpenCount();
+            try (WeatherHttpClient.Response held = client.get(url, 5000, null)) {
+                // The only slot is taken, so every request times out locally
+                for (int i = 0; i < 6; i++) {
+                    try {
+                        client.get(url, 50, null).close();
+                        fail("Expected a permit timeout");
+                    } catch (WeatherHttpClient.PermitTimeoutException expected) {
+                        // Not the host's fault
+                    }
+                }
+                assertEquals(JSON, readAll(held.body()));
+            }
+            assertEquals(circuitsOpened, client.circuitOpenCount());
+            try (WeatherHttpClient.Response response = client.get(url, 5000, null)) {
+                assertEquals(200, response.code);
+            }
+        } finally {
+            client.setMaxConnectionsPerHost(4);
+        }
+    }
+
+    @Test
+    public void offlineFailuresDoNotOpenTheCircuit() throws Exception {
+        WeatherHttpClient client = WeatherHttpClient.getInstance();
+        // ".invalid" never resolves (RFC 2606), like any host while the device is offline
+        String url = "http://weather.invalid/v1/forecast?latitude=1";
+        long circuitsOpened = client.circuitOpenCount();
+        long retries = client.retryCount();
+        for (int i = 0; i < 6; i++) {
+            try {
+                client.get(url, 1000, null).close();
+                fail("Expected the host name not to resolve");
+            } catch (UnknownHostException expected) {
+                // Reported as a connectivity problem, not as an open circuit
+            }
+        }
+        assertEquals(circuitsOpened, client.circuitOpenCount());
+        assertEquals(retries, client.retryCount());
+    }
+}